@@ -0,0 +1,90 @@
+package com.jonservices.beerstocks.benchmark;
+
+import com.jonservices.beerstocks.BeerstocksApplication;
+import com.jonservices.beerstocks.data.dto.BeerDTO;
+import com.jonservices.beerstocks.data.dto.BeerFilterDTO;
+import com.jonservices.beerstocks.service.BeerService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Filters a catalog of one million beers by brand and quantity range. The setup prints the H2 query plans and
+ * fails when they don't go through the brand and quantity indexes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+@State(Scope.Benchmark)
+public class BeerFilterQueryBenchmark {
+
+    private static final int BEERS = 1_000_000;
+
+    private static final int BRANDS = 1_000;
+
+    private static final int BATCH_SIZE = 10_000;
+
+    private static final String INSERT_BEER = "INSERT INTO beers (name, brand, max, quantity) VALUES (?, ?, ?, ?)";
+
+    private static final String BRAND_QUERY = "SELECT * FROM beers WHERE brand = 'Brand 42' AND quantity BETWEEN 100 AND 200";
+
+    private static final String QUANTITY_QUERY = "SELECT * FROM beers WHERE quantity BETWEEN 500 AND 501";
+
+    private ConfigurableApplicationContext context;
+
+    private BeerService beerService;
+
+    @Setup
+    public void setup() {
+        context = new SpringApplicationBuilder(BeerstocksApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("logging.level.root=WARN")
+                .run();
+        beerService = context.getBean(BeerService.class);
+        final JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        for (int from = 0; from < BEERS; from += BATCH_SIZE) {
+            final List<Integer> batch = IntStream.range(from, from + BATCH_SIZE).boxed().collect(Collectors.toList());
+            jdbcTemplate.batchUpdate(INSERT_BEER, batch, BATCH_SIZE, (statement, i) -> {
+                statement.setString(1, "Beer " + i);
+                statement.setString(2, "Brand " + i % BRANDS);
+                statement.setInt(3, 1_000);
+                statement.setInt(4, i * 7919 % 1_000);
+            });
+        }
+        jdbcTemplate.execute("ANALYZE");
+        assertUsesIndex(jdbcTemplate, BRAND_QUERY, "idx_beers_brand_quantity");
+        assertUsesIndex(jdbcTemplate, QUANTITY_QUERY, "idx_beers_quantity");
+    }
+
+    private static void assertUsesIndex(JdbcTemplate jdbcTemplate, String query, String index) {
+        final String plan = jdbcTemplate.queryForObject("EXPLAIN " + query, String.class);
+        System.out.println(plan);
+        if (plan == null || !plan.toLowerCase().contains(index))
+            throw new IllegalStateException("Expected " + index + " in the plan of " + query);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<BeerDTO> findByBrandAndQuantityRange() {
+        return beerService.findAll(new BeerFilterDTO("Brand 42", 100, 200, null, null, "quantity,desc"));
+    }
+
+    @Benchmark
+    public List<BeerDTO> findByQuantityRange() {
+        return beerService.findAll(new BeerFilterDTO(null, 500, 501, null, null, null));
+    }
+
+}
@@ -0,0 +1,40 @@
+package com.jonservices.beerstocks.benchmark;
+
+import com.jonservices.beerstocks.data.dto.BeerDTO;
+import com.jonservices.beerstocks.data.model.Beer;
+import com.jonservices.beerstocks.mapper.BeerMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BeerMapperBenchmark {
+
+    private final BeerMapper beerMapper = BeerMapper.INSTANCE;
+
+    private Beer beer;
+
+    private BeerDTO beerDTO;
+
+    @Setup
+    public void setup() {
+        beer = new Beer(1L, "Skol Beats", "Ambev", 5, 2, 0L);
+        beerDTO = new BeerDTO(1L, "Skol Beats", "Ambev", 5, 2);
+    }
+
+    @Benchmark
+    public BeerDTO toDTO() {
+        return beerMapper.toDTO(beer);
+    }
+
+    @Benchmark
+    public Beer toModel() {
+        return beerMapper.toModel(beerDTO);
+    }
+
+}
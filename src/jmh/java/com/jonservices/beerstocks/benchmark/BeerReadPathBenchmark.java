@@ -0,0 +1,72 @@
+package com.jonservices.beerstocks.benchmark;
+
+import com.jonservices.beerstocks.BeerstocksApplication;
+import com.jonservices.beerstocks.data.dto.BeerDTO;
+import com.jonservices.beerstocks.mapper.BeerMapper;
+import com.jonservices.beerstocks.repository.BeerRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Compares listing beers through managed entities and the mapper with the DTO constructor expression.
+ * Run it with {@code -prof gc} to compare the allocation per operation as well.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BeerReadPathBenchmark {
+
+    private static final String INSERT_BEER = "INSERT INTO beers (name, brand, max, quantity) VALUES (?, ?, ?, ?)";
+
+    @Param({"1000", "10000"})
+    private int beers;
+
+    private ConfigurableApplicationContext context;
+
+    private BeerRepository beerRepository;
+
+    private final BeerMapper beerMapper = BeerMapper.INSTANCE;
+
+    @Setup
+    public void setup() {
+        context = new SpringApplicationBuilder(BeerstocksApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("logging.level.root=WARN")
+                .run();
+        beerRepository = context.getBean(BeerRepository.class);
+        final List<Integer> rows = IntStream.range(0, beers).boxed().collect(Collectors.toList());
+        context.getBean(JdbcTemplate.class).batchUpdate(INSERT_BEER, rows, rows.size(), (statement, i) -> {
+            statement.setString(1, "Benchmark Beer " + i);
+            statement.setString(2, "Benchmark");
+            statement.setInt(3, 500);
+            statement.setInt(4, i % 500);
+        });
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<BeerDTO> entitiesWithMapper() {
+        return beerRepository.findAll().stream().map(beerMapper::toDTO).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<BeerDTO> constructorExpression() {
+        return beerRepository.findAllAsDTO();
+    }
+
+}
@@ -0,0 +1,178 @@
+package com.jonservices.beerstocks.benchmark;
+
+import com.jonservices.beerstocks.BeerstocksApplication;
+import com.jonservices.beerstocks.data.dto.BeerDTO;
+import com.jonservices.beerstocks.exceptions.BeerStockExceededException;
+import com.jonservices.beerstocks.service.BeerService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Failed decrements per second, end to end: every request asks for more than the stock of the beer and is
+ * rejected with {@code 400}. The {@code spring} format is the previous error handling, where the rejection
+ * goes through Spring Boot's error page, and {@code problem} the compact problem details.
+ * <p>
+ * Each thread keeps its own connection and writes every request in one go, so the client's Nagle algorithm
+ * doesn't hold back the body. Tomcat closes the connection after a {@code 400}, so it is opened again after
+ * every request, as real clients have to. {@code exceptionWithStackTrace} and {@code stacklessException} isolate the cost
+ * of capturing a stack trace at about the depth of a request thread in the controller.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class ErrorPathBenchmark {
+
+    private static final int STACK_DEPTH = 120;
+
+    @State(Scope.Benchmark)
+    public static class Server {
+
+        @Param({"spring", "problem"})
+        private String format;
+
+        private ConfigurableApplicationContext context;
+
+        private int port;
+
+        private byte[] failedDecrement;
+
+        @Setup
+        public void setup() {
+            context = new SpringApplicationBuilder(BeerstocksApplication.class)
+                    .run("--server.port=0",
+                            "--logging.level.root=WARN",
+                            "--beerstocks.errors.format=" + format);
+            final Long beerId = context.getBean(BeerService.class)
+                    .create(new BeerDTO(null, "Benchmark Sold Out", "Benchmark", 10, 0))
+                    .getId();
+            port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            final String body = "{\"quantity\":1}";
+            failedDecrement = ("PATCH /beers/" + beerId + "/decrement HTTP/1.1\r\n" +
+                    "Host: localhost\r\n" +
+                    "Content-Type: application/json\r\n" +
+                    "Content-Length: " + body.length() + "\r\n" +
+                    "\r\n" + body).getBytes(StandardCharsets.US_ASCII);
+        }
+
+        @TearDown
+        public void tearDown() {
+            context.close();
+        }
+
+    }
+
+    @State(Scope.Thread)
+    public static class Connection {
+
+        private int port;
+
+        private Socket socket;
+
+        private OutputStream output;
+
+        private InputStream input;
+
+        @Setup
+        public void setup(Server server) throws IOException {
+            port = server.port;
+            connect();
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            socket.close();
+        }
+
+        int send(byte[] request) throws IOException {
+            output.write(request);
+            output.flush();
+            final String statusLine = readLine();
+            int contentLength = -1;
+            boolean chunked = false;
+            boolean close = false;
+            for (String header = readLine(); !header.isEmpty(); header = readLine()) {
+                final String name = header.substring(0, header.indexOf(':')).trim();
+                final String value = header.substring(header.indexOf(':') + 1).trim();
+                if (name.equalsIgnoreCase("Content-Length"))
+                    contentLength = Integer.parseInt(value);
+                else if (name.equalsIgnoreCase("Transfer-Encoding"))
+                    chunked = value.equalsIgnoreCase("chunked");
+                else if (name.equalsIgnoreCase("Connection"))
+                    close = value.equalsIgnoreCase("close");
+            }
+            if (chunked) {
+                for (int size = Integer.parseInt(readLine(), 16); size > 0; size = Integer.parseInt(readLine(), 16)) {
+                    input.readNBytes(size);
+                    readLine();
+                }
+                readLine();
+            } else if (contentLength > 0) {
+                input.readNBytes(contentLength);
+            }
+            if (close) {
+                socket.close();
+                connect();
+            }
+            return Integer.parseInt(statusLine.substring(9, 12));
+        }
+
+        private void connect() throws IOException {
+            socket = new Socket("localhost", port);
+            socket.setTcpNoDelay(true);
+            output = socket.getOutputStream();
+            input = new BufferedInputStream(socket.getInputStream());
+        }
+
+        private String readLine() throws IOException {
+            final ByteArrayOutputStream line = new ByteArrayOutputStream();
+            for (int b = input.read(); b != '\n'; b = input.read()) {
+                if (b == -1)
+                    throw new IOException("Connection closed by the server");
+                if (b != '\r')
+                    line.write(b);
+            }
+            return line.toString(StandardCharsets.US_ASCII);
+        }
+
+    }
+
+    @Benchmark
+    @Threads(8)
+    public int failedDecrement(Server server, Connection connection) throws IOException {
+        final int status = connection.send(server.failedDecrement);
+        if (status != 400)
+            throw new IllegalStateException("Expected a rejected decrement, got " + status);
+        return status;
+    }
+
+    @Benchmark
+    public Exception exceptionWithStackTrace() {
+        return atDepth(STACK_DEPTH, true);
+    }
+
+    @Benchmark
+    public Exception stacklessException() {
+        return atDepth(STACK_DEPTH, false);
+    }
+
+    private static Exception atDepth(int depth, boolean withStackTrace) {
+        if (depth > 0)
+            return atDepth(depth - 1, withStackTrace);
+        return withStackTrace ? new IllegalStateException("Quantity is less than 0 or stock exceeds max quantity of: 10") :
+                new BeerStockExceededException(10);
+    }
+
+}
@@ -0,0 +1,67 @@
+package com.jonservices.beerstocks.benchmark;
+
+import com.jonservices.beerstocks.BeerstocksApplication;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test comparing the execution modes: many concurrent clients call an endpoint that queries the database
+ * while Tomcat is limited to a small platform thread pool. Sample time mode reports the p99 latency next to the
+ * throughput. Only the platform mode runs by default, as the project targets runtimes without virtual threads.
+ * The virtual mode is selected explicitly and needs Java 21 or newer, e.g.
+ * {@code -Djmh.args="ExecutionMode -p mode=platform,virtual -jvm /path/to/jdk-21/bin/java"}.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+@Threads(256)
+@State(Scope.Benchmark)
+public class ExecutionModeLoadBenchmark {
+
+    @Param({"platform"})
+    private String mode;
+
+    private ConfigurableApplicationContext context;
+
+    private HttpClient httpClient;
+
+    private HttpRequest request;
+
+    @Setup
+    public void setup() {
+        if (mode.equals("virtual") && Runtime.version().feature() < 21)
+            throw new IllegalStateException("The virtual mode needs Java 21 or newer, this fork runs on Java " +
+                    Runtime.version().feature() + "; pass a newer JVM with -jvm");
+        context = new SpringApplicationBuilder(BeerstocksApplication.class)
+                .run("--server.port=0",
+                        "--server.tomcat.threads.max=32",
+                        "--server.tomcat.accept-count=1000",
+                        "--logging.level.root=WARN",
+                        "--beerstocks.execution.mode=" + mode);
+        final int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/beers/page?limit=50")).GET().build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int findPage() throws IOException, InterruptedException {
+        return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+}
@@ -0,0 +1,47 @@
+package com.jonservices.beerstocks.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jonservices.beerstocks.data.dto.BeerDTO;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonSerializationBenchmark {
+
+    @Param({"1000", "100000"})
+    private int size;
+
+    // Configured the same way Spring MVC configures the mapper used to write responses
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private List<BeerDTO> beers;
+
+    @Setup
+    public void setup() {
+        beers = new ArrayList<>(size);
+        for (long id = 1; id <= size; id++)
+            beers.add(new BeerDTO(id, "Beer " + id, "Brand " + id % 100, 500, (int) (id % 500)));
+    }
+
+    @Benchmark
+    public void serializeList() throws IOException {
+        objectMapper.writeValue(OutputStream.nullOutputStream(), beers);
+    }
+
+    @Benchmark
+    public byte[] serializeListToBytes() throws IOException {
+        return objectMapper.writeValueAsBytes(beers);
+    }
+
+}
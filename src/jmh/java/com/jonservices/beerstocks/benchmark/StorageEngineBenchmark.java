@@ -0,0 +1,103 @@
+package com.jonservices.beerstocks.benchmark;
+
+import com.jonservices.beerstocks.BeerstocksApplication;
+import com.jonservices.beerstocks.cache.BeerCache;
+import com.jonservices.beerstocks.data.dto.BeerDTO;
+import com.jonservices.beerstocks.data.enums.StockAction;
+import com.jonservices.beerstocks.service.BeerService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs BeerService against the JPA store on the embedded H2 database and against the in-memory store of the
+ * {@code memory} profile, with {@code BEERS} beers registered, booting the application without the web layer.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StorageEngineBenchmark {
+
+    private static final int BEERS = 1000;
+
+    @Param({"jpa", "memory"})
+    private String store;
+
+    private ConfigurableApplicationContext context;
+
+    private BeerService beerService;
+
+    private BeerCache beerCache;
+
+    private Long beerId;
+
+    @Setup
+    public void setup() {
+        final SpringApplicationBuilder builder = new SpringApplicationBuilder(BeerstocksApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("logging.level.root=WARN");
+        if (store.equals("memory"))
+            builder.profiles("memory");
+        context = builder.run();
+        beerService = context.getBean(BeerService.class);
+        beerCache = context.getBean(BeerCache.class);
+        beerId = beerService.create(new BeerDTO(null, "Benchmark Pilsen", "Benchmark", 500, 250)).getId();
+        for (int i = 0; i < BEERS; i++)
+            beerService.create(new BeerDTO(null, "Benchmark Lager " + i, "Benchmark " + i % 10, 100, i % 100));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @State(Scope.Thread)
+    public static class StockActions {
+
+        private boolean increment;
+
+        // Alternating actions keep the quantity around its initial value for the whole run
+        StockAction next() {
+            increment = !increment;
+            return increment ? StockAction.INCREMENT : StockAction.DECREMENT;
+        }
+
+    }
+
+    @Benchmark
+    @Threads(1)
+    public BeerDTO updateStock(StockActions stockActions) {
+        return beerService.updateStock(beerId, 1, stockActions.next());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public BeerDTO updateStockContended(StockActions stockActions) {
+        return beerService.updateStock(beerId, 1, stockActions.next());
+    }
+
+    @Benchmark
+    public BeerDTO findByIdUncached() {
+        beerCache.evict(beerId);
+        return beerService.findById(beerId);
+    }
+
+    @Benchmark
+    public BeerDTO findByNameUncached() {
+        beerCache.evict(beerId);
+        return beerService.findByName("Benchmark Pilsen");
+    }
+
+    @Benchmark
+    public List<BeerDTO> findAll() {
+        return beerService.findAll();
+    }
+
+}
@@ -0,0 +1,33 @@
+package com.jonservices.beerstocks.alerts;
+
+import com.jonservices.beerstocks.data.dto.StockAlertDTO;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the alerts in a queue, for tests and local runs.
+ */
+@Component
+@ConditionalOnProperty(name = "beerstocks.alerts.sink", havingValue = "memory")
+public class InMemoryStockAlertSink implements StockAlertSink {
+
+    private final BlockingQueue<StockAlertDTO> alerts = new LinkedBlockingQueue<>();
+
+    @Override
+    public void send(StockAlertDTO alert) {
+        alerts.add(alert);
+    }
+
+    public StockAlertDTO poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return alerts.poll(timeout, unit);
+    }
+
+    public int size() {
+        return alerts.size();
+    }
+
+}
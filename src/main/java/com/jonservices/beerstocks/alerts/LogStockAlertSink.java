@@ -0,0 +1,19 @@
+package com.jonservices.beerstocks.alerts;
+
+import com.jonservices.beerstocks.data.dto.StockAlertDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "beerstocks.alerts.sink", havingValue = "log", matchIfMissing = true)
+public class LogStockAlertSink implements StockAlertSink {
+
+    @Override
+    public void send(StockAlertDTO alert) {
+        log.warn("Beer {} ({}) went from {} to {} stock: {} of {}", alert.getId(), alert.getName(),
+                alert.getPreviousLevel(), alert.getLevel(), alert.getQuantity(), alert.getMax());
+    }
+
+}
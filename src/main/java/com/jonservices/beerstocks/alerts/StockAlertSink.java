@@ -0,0 +1,13 @@
+package com.jonservices.beerstocks.alerts;
+
+import com.jonservices.beerstocks.data.dto.StockAlertDTO;
+
+/**
+ * Destination of the alerts raised when a beer crosses a stock threshold, chosen with
+ * {@code beerstocks.alerts.sink}. Called after the change is committed and must not block.
+ */
+public interface StockAlertSink {
+
+    void send(StockAlertDTO alert);
+
+}
@@ -0,0 +1,105 @@
+package com.jonservices.beerstocks.alerts;
+
+import com.jonservices.beerstocks.data.dto.BeerDTO;
+import com.jonservices.beerstocks.data.dto.StockAlertDTO;
+import com.jonservices.beerstocks.data.enums.BeerChangeType;
+import com.jonservices.beerstocks.data.enums.StockLevel;
+import com.jonservices.beerstocks.events.BeerChangedEvent;
+import com.jonservices.beerstocks.store.BeerStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Raises an alert whenever a committed stock update moves a beer across the low stock or the overstock
+ * threshold, both fractions of the beer's max. Each update is compared with the stock it started from,
+ * so alerts fire once per crossing and the table is never scanned for them.
+ * <p>
+ * Also keeps the index of low stock beers, loaded with a single query at startup and then maintained
+ * from the same changes.
+ */
+@Component
+public class StockThresholdMonitor {
+
+    private final ConcurrentNavigableMap<Long, BeerDTO> lowStockBeers = new ConcurrentSkipListMap<>();
+    private final BeerStore beerStore;
+    private final StockAlertSink stockAlertSink;
+    private final double lowStockRatio;
+    private final double overstockRatio;
+
+    @Autowired
+    public StockThresholdMonitor(BeerStore beerStore,
+                                 StockAlertSink stockAlertSink,
+                                 @Value("${beerstocks.alerts.low-stock-ratio:0.2}") double lowStockRatio,
+                                 @Value("${beerstocks.alerts.overstock-ratio:0.9}") double overstockRatio) {
+        this.beerStore = beerStore;
+        this.stockAlertSink = stockAlertSink;
+        this.lowStockRatio = lowStockRatio;
+        this.overstockRatio = overstockRatio;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadLowStockBeers() {
+        beerStore.findByQuantityBelowRatioOfMax(lowStockRatio).forEach(beer -> lowStockBeers.put(beer.getId(), beer));
+    }
+
+    /**
+     * Low stock beers ordered by id.
+     */
+    public List<BeerDTO> findLowStockBeers() {
+        return new ArrayList<>(lowStockBeers.values());
+    }
+
+    public StockLevel levelOf(int quantity, int max) {
+        if (quantity < max * lowStockRatio)
+            return StockLevel.LOW;
+        if (quantity >= max * overstockRatio)
+            return StockLevel.HIGH;
+        return StockLevel.NORMAL;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBeerChanged(BeerChangedEvent event) {
+        final BeerDTO beer = event.getBeer();
+        if (event.getType() == BeerChangeType.DELETED) {
+            lowStockBeers.remove(beer.getId());
+            return;
+        }
+        final StockLevel level = levelOf(beer.getQuantity(), beer.getMax());
+        index(beer, level);
+        if (event.getType() == BeerChangeType.STOCK_UPDATED) {
+            final StockLevel previousLevel = levelOf(beer.getQuantity() - event.getDelta(), beer.getMax());
+            if (level != previousLevel)
+                stockAlertSink.send(StockAlertDTO.builder()
+                        .id(beer.getId())
+                        .name(beer.getName())
+                        .previousLevel(previousLevel)
+                        .level(level)
+                        .quantity(beer.getQuantity())
+                        .max(beer.getMax())
+                        .build());
+        }
+    }
+
+    private void index(BeerDTO beer, StockLevel level) {
+        lowStockBeers.compute(beer.getId(), (id, indexedBeer) -> {
+            // Commits of the same beer may be delivered out of order, never go back to an older version
+            if (indexedBeer != null && isOlder(beer, indexedBeer))
+                return indexedBeer;
+            return level == StockLevel.LOW ? beer : null;
+        });
+    }
+
+    private boolean isOlder(BeerDTO beer, BeerDTO indexedBeer) {
+        return beer.getVersion() != null && indexedBeer.getVersion() != null && beer.getVersion() < indexedBeer.getVersion();
+    }
+
+}
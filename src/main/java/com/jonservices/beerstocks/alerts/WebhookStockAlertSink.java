@@ -0,0 +1,60 @@
+package com.jonservices.beerstocks.alerts;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jonservices.beerstocks.data.dto.StockAlertDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+/**
+ * Posts every alert as JSON to {@code beerstocks.alerts.webhook-url}. Requests are sent asynchronously and
+ * a failed delivery is only logged, an alert is never worth failing or delaying a stock update.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "beerstocks.alerts.sink", havingValue = "webhook")
+public class WebhookStockAlertSink implements StockAlertSink {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(TIMEOUT).build();
+    private final URI webhookUrl;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public WebhookStockAlertSink(@Value("${beerstocks.alerts.webhook-url}") URI webhookUrl, ObjectMapper objectMapper) {
+        this.webhookUrl = webhookUrl;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void send(StockAlertDTO alert) {
+        final HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(webhookUrl)
+                    .timeout(TIMEOUT)
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(alert)))
+                    .build();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, e) -> {
+                    if (e != null || response.statusCode() >= 300)
+                        log.warn("Could not deliver stock alert of beer {} to {}", alert.getId(), webhookUrl, e);
+                });
+    }
+
+}
@@ -0,0 +1,155 @@
+package com.jonservices.beerstocks.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.ConcurrentStatsCounter;
+import com.github.benmanes.caffeine.cache.stats.StatsCounter;
+import com.jonservices.beerstocks.data.dto.BeerDTO;
+import com.jonservices.beerstocks.data.enums.BeerChangeType;
+import com.jonservices.beerstocks.events.BeerChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Read-through cache of beers keyed by id, with a secondary index from name to id.
+ * <p>
+ * Entries are evicted once a change is committed. Every eviction bumps a generation counter and a
+ * loaded value is only stored when no eviction happened while it was being read, so a load racing
+ * with a stock update can never put a stale quantity back in the cache.
+ * <p>
+ * Concurrent misses for the same id or name share a single load: the first caller reads the beer and the
+ * others wait for its result, or its exception. A caller only joins a load started in the same generation, so
+ * a read arriving after a committed update never gets the value read before it. {@code beer.lookups} counts
+ * the loads that were {@code queried} and the ones {@code coalesced} into a running one.
+ * Returned instances are shared and must not be modified.
+ */
+@Component
+public class BeerCache {
+
+    public static final String CACHE_NAME = "beers";
+    public static final String LOOKUPS_COUNTER = "beer.lookups";
+
+    private final Cache<Long, BeerDTO> beersById;
+    private final Map<String, Long> idsByName = new ConcurrentHashMap<>();
+    private final StatsCounter statsCounter = new ConcurrentStatsCounter();
+    private final AtomicLong generation = new AtomicLong();
+    private final Map<Object, Flight> flights = new ConcurrentHashMap<>();
+    private final Counter queriedLookups;
+    private final Counter coalescedLookups;
+
+    @Autowired
+    public BeerCache(@Value("${beerstocks.cache.maximum-size:10000}") long maximumSize,
+                     @Value("${beerstocks.cache.time-to-live:5m}") Duration timeToLive,
+                     MeterRegistry meterRegistry) {
+        beersById = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive)
+                .executor(Runnable::run)
+                .removalListener((Long id, BeerDTO beer, RemovalCause cause) -> {
+                    if (beer != null && cause != RemovalCause.REPLACED)
+                        idsByName.remove(beer.getName(), id);
+                })
+                .recordStats(() -> statsCounter)
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, beersById, CACHE_NAME);
+        queriedLookups = meterRegistry.counter(LOOKUPS_COUNTER, "result", "queried");
+        coalescedLookups = meterRegistry.counter(LOOKUPS_COUNTER, "result", "coalesced");
+    }
+
+    public BeerDTO getById(Long id, Supplier<BeerDTO> loader) {
+        final BeerDTO cachedBeer = beersById.getIfPresent(id);
+        return cachedBeer != null ? cachedBeer : load(id, loader);
+    }
+
+    public BeerDTO getByName(String name, Supplier<BeerDTO> loader) {
+        final Long id = idsByName.get(name);
+        if (id == null) {
+            statsCounter.recordMisses(1);
+            return load(name, loader);
+        }
+        return getById(id, loader);
+    }
+
+    public void evict(Long id) {
+        generation.incrementAndGet();
+        beersById.invalidate(id);
+    }
+
+    public long size() {
+        return beersById.estimatedSize();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBeerChanged(BeerChangedEvent event) {
+        if (event.getType() != BeerChangeType.CREATED)
+            evict(event.getBeer().getId());
+    }
+
+    private BeerDTO load(Object key, Supplier<BeerDTO> loader) {
+        final long loadGeneration = generation.get();
+        final Flight newFlight = new Flight(loadGeneration);
+        final Flight flight = flights.compute(key, (k, runningFlight) ->
+                runningFlight != null && runningFlight.generation == loadGeneration ? runningFlight : newFlight);
+        if (flight != newFlight) {
+            coalescedLookups.increment();
+            return join(flight);
+        }
+        queriedLookups.increment();
+        try {
+            final BeerDTO beer = loader.get();
+            store(beer, loadGeneration);
+            flight.result.complete(beer);
+            return beer;
+        } catch (RuntimeException | Error e) {
+            flight.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            flights.remove(key, flight);
+        }
+    }
+
+    private void store(BeerDTO beer, long loadGeneration) {
+        beersById.asMap().compute(beer.getId(), (id, cachedBeer) -> {
+            if (generation.get() != loadGeneration)
+                return cachedBeer;
+            idsByName.put(beer.getName(), id);
+            return beer;
+        });
+    }
+
+    private static BeerDTO join(Flight flight) {
+        try {
+            return flight.result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof Error)
+                throw (Error) e.getCause();
+            throw (RuntimeException) e.getCause();
+        }
+    }
+
+    private static class Flight {
+
+        private final long generation;
+        private final CompletableFuture<BeerDTO> result = new CompletableFuture<>();
+
+        private Flight(long generation) {
+            this.generation = generation;
+        }
+
+    }
+
+}
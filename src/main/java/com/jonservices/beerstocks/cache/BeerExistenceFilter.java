@@ -0,0 +1,186 @@
+package com.jonservices.beerstocks.cache;
+
+import com.jonservices.beerstocks.store.BeerStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter over the ids and names of the registered beers, so lookups of beers that certainly don't
+ * exist, and name checks of new beers, skip the database. It answers "maybe" until it is first built at
+ * startup, and never answers "absent" for a registered beer.
+ * <p>
+ * Beers are added in the transaction that inserts them, before they can be read. Deleted beers can't be
+ * removed from the filter, so it is rebuilt from the store every
+ * {@code beerstocks.existence-filter.rebuild-interval-ms} to shed them. Beers added while it is rebuilt, or
+ * whose transaction is still running when the rebuild starts, are carried over to the new filter.
+ */
+@Slf4j
+@Component
+public class BeerExistenceFilter {
+
+    public static final String CHECKS_COUNTER = "beer.existence.checks";
+
+    private static final long NAME_SEED = 0x9E3779B97F4A7C15L;
+
+    private final BeerStore beerStore;
+    private final long expectedInsertions;
+    private final double falsePositiveRate;
+    private final Set<Long> pendingKeys = ConcurrentHashMap.newKeySet();
+    private final Counter absentChecks;
+    private final Counter maybeChecks;
+    private volatile Sketch sketch;
+    private volatile Sketch rebuildingSketch;
+
+    @Autowired
+    public BeerExistenceFilter(BeerStore beerStore,
+                               MeterRegistry meterRegistry,
+                               @Value("${beerstocks.existence-filter.expected-insertions:100000}") long expectedInsertions,
+                               @Value("${beerstocks.existence-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.beerStore = beerStore;
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveRate = falsePositiveRate;
+        absentChecks = meterRegistry.counter(CHECKS_COUNTER, "result", "absent");
+        maybeChecks = meterRegistry.counter(CHECKS_COUNTER, "result", "maybe");
+    }
+
+    public boolean mightContain(Long id) {
+        return mightContain(idKey(id));
+    }
+
+    public boolean mightContain(String name) {
+        return mightContain(nameKey(name));
+    }
+
+    /**
+     * Adds a beer being inserted. Must be called in the inserting transaction, before it commits.
+     */
+    public void add(Long id, String name) {
+        add(idKey(id));
+        add(nameKey(name));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${beerstocks.existence-filter.rebuild-interval-ms:600000}",
+            initialDelayString = "${beerstocks.existence-filter.rebuild-interval-ms:600000}")
+    public synchronized void rebuild() {
+        final long count = beerStore.count();
+        final Sketch nextSketch = new Sketch(Math.max(expectedInsertions, 2 * count), falsePositiveRate);
+        // Keys added from now on go to both sketches, keys of running transactions are copied
+        rebuildingSketch = nextSketch;
+        try {
+            pendingKeys.forEach(nextSketch::add);
+            beerStore.forEach(beer -> {
+                nextSketch.add(idKey(beer.getId()));
+                nextSketch.add(nameKey(beer.getName()));
+            });
+            sketch = nextSketch;
+            log.debug("Rebuilt the beer existence filter with {} beers", count);
+        } finally {
+            rebuildingSketch = null;
+        }
+    }
+
+    private boolean mightContain(long key) {
+        final Sketch currentSketch = sketch;
+        if (currentSketch != null && !currentSketch.mightContain(key)) {
+            absentChecks.increment();
+            return false;
+        }
+        maybeChecks.increment();
+        return true;
+    }
+
+    private void add(long key) {
+        // Registered first, so a rebuild starting now either copies it or is seen below
+        final boolean pending = TransactionSynchronizationManager.isSynchronizationActive() && pendingKeys.add(key);
+        if (pending)
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    pendingKeys.remove(key);
+                }
+            });
+        final Sketch currentSketch = sketch;
+        if (currentSketch != null)
+            currentSketch.add(key);
+        final Sketch nextSketch = rebuildingSketch;
+        if (nextSketch != null)
+            nextSketch.add(key);
+    }
+
+    private static long idKey(Long id) {
+        return mix(id);
+    }
+
+    private static long nameKey(String name) {
+        long hash = NAME_SEED;
+        for (int i = 0; i < name.length(); i++)
+            hash = 31 * hash + name.charAt(i);
+        return mix(hash ^ NAME_SEED);
+    }
+
+    private static long mix(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Fixed size bit set probed at {@code hashes} positions derived from the two halves of a 64 bit key.
+     */
+    private static class Sketch {
+
+        private final AtomicLongArray words;
+        private final long bits;
+        private final int hashes;
+
+        private Sketch(long expectedInsertions, double falsePositiveRate) {
+            final double ln2 = Math.log(2);
+            final long optimalBits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (ln2 * ln2));
+            words = new AtomicLongArray((int) Math.min(Integer.MAX_VALUE, (optimalBits + 63) / 64));
+            bits = (long) words.length() * 64;
+            hashes = Math.max(1, (int) Math.round((double) bits / expectedInsertions * ln2));
+        }
+
+        private void add(long key) {
+            final int low = (int) key;
+            final int high = (int) (key >>> 32);
+            for (int i = 0; i < hashes; i++) {
+                final long bit = Math.floorMod(low + (long) i * high, bits);
+                final int word = (int) (bit >>> 6);
+                final long mask = 1L << bit;
+                long current = words.get(word);
+                // Retried when another bit of the word was set concurrently
+                while ((current & mask) == 0 && !words.compareAndSet(word, current, current | mask))
+                    current = words.get(word);
+            }
+        }
+
+        private boolean mightContain(long key) {
+            final int low = (int) key;
+            final int high = (int) (key >>> 32);
+            for (int i = 0; i < hashes; i++) {
+                final long bit = Math.floorMod(low + (long) i * high, bits);
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0)
+                    return false;
+            }
+            return true;
+        }
+
+    }
+
+}
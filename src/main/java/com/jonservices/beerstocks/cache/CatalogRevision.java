@@ -0,0 +1,45 @@
+package com.jonservices.beerstocks.cache;
+
+import com.jonservices.beerstocks.events.BeerChangedEvent;
+import com.jonservices.beerstocks.events.LocationStockChangedEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Monotonic revision of the whole catalog, bumped once every change is committed. It backs the ETag of
+ * the beer collection, so an unchanged catalog can be answered without reading the database.
+ * <p>
+ * The revision lives in memory, so the ETag also carries the startup time of this instance: a restart
+ * never answers an old ETag as not modified.
+ */
+@Component
+public class CatalogRevision {
+
+    private final String bootId = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+    private final AtomicLong revision = new AtomicLong();
+
+    /**
+     * Must be read before the catalog itself: a change committed in between then only costs an extra
+     * download on the next poll, instead of serving stale data under the new ETag.
+     */
+    public String eTag() {
+        return "\"" + bootId + "-" + revision.get() + "\"";
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBeerChanged(BeerChangedEvent event) {
+        revision.incrementAndGet();
+    }
+
+    /**
+     * Transfers and reservations change the stock of locations without a {@link BeerChangedEvent}, and clients
+     * polling the catalog must see them too.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLocationStockChanged(LocationStockChangedEvent event) {
+        revision.incrementAndGet();
+    }
+
+}
@@ -1,15 +1,56 @@
 package com.jonservices.beerstocks.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.jonservices.beerstocks.alerts.StockThresholdMonitor;
+import com.jonservices.beerstocks.cache.CatalogRevision;
 import com.jonservices.beerstocks.data.dto.BeerDTO;
+import com.jonservices.beerstocks.data.dto.BeerFilterDTO;
+import com.jonservices.beerstocks.data.dto.BeerPageDTO;
+import com.jonservices.beerstocks.data.dto.BeerStockDTO;
+import com.jonservices.beerstocks.data.dto.BrandStatsDTO;
+import com.jonservices.beerstocks.data.dto.ImportSummaryDTO;
 import com.jonservices.beerstocks.data.dto.MessageResponseDTO;
 import com.jonservices.beerstocks.data.dto.QuantityDTO;
+import com.jonservices.beerstocks.data.dto.StockBatchDTO;
+import com.jonservices.beerstocks.data.dto.StockBatchResultDTO;
+import com.jonservices.beerstocks.data.dto.StockChangeDTO;
+import com.jonservices.beerstocks.data.dto.StockMovementPageDTO;
+import com.jonservices.beerstocks.data.dto.StockReservationDTO;
+import com.jonservices.beerstocks.data.dto.StockReservationRequestDTO;
+import com.jonservices.beerstocks.data.dto.StockTransferDTO;
+import com.jonservices.beerstocks.data.enums.ImportFormat;
 import com.jonservices.beerstocks.data.enums.StockAction;
 import com.jonservices.beerstocks.docs.BeerControllerDocs;
+import com.jonservices.beerstocks.exceptions.OperationNotSupportedException;
+import com.jonservices.beerstocks.service.BeerImportService;
 import com.jonservices.beerstocks.service.BeerService;
+import com.jonservices.beerstocks.service.StockBatchService;
+import com.jonservices.beerstocks.service.StockLedgerService;
+import com.jonservices.beerstocks.service.StockReservationService;
+import com.jonservices.beerstocks.stats.InventoryStatistics;
+import com.jonservices.beerstocks.stream.StockChangeBroadcaster;
+import com.jonservices.beerstocks.stream.StockChangeListener;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
 
 @RestController
@@ -17,22 +58,131 @@ import java.util.List;
 @CrossOrigin(maxAge = 3600)
 public class BeerController implements BeerControllerDocs {
 
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+    public static final String TEXT_CSV_VALUE = "text/csv";
+    public static final String STOCK_UPDATE_TIMER = "beer.stock.update";
+    public static final String STOCK_CHANGE_EVENT = "stock-change";
+
     @Autowired
     private BeerService beerService;
 
+    @Autowired(required = false)
+    private StockBatchService stockBatchService;
+
+    @Autowired(required = false)
+    private BeerImportService beerImportService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired(required = false)
+    private StockLedgerService stockLedgerService;
+
+    @Autowired(required = false)
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private StockThresholdMonitor stockThresholdMonitor;
+
+    @Autowired
+    private InventoryStatistics inventoryStatistics;
+
+    @Autowired
+    private CatalogRevision catalogRevision;
+
+    @Autowired
+    private StockChangeBroadcaster stockChangeBroadcaster;
+
+    @Value("${beerstocks.stream.timeout:30m}")
+    private Duration streamTimeout = Duration.ofMinutes(30);
+
     @GetMapping
-    public List<BeerDTO> findAll() {
-        return beerService.findAll();
+    public List<BeerDTO> findAll(@Valid BeerFilterDTO filter, WebRequest request) {
+        if (request.checkNotModified(catalogRevision.eTag()))
+            return null;
+        return filter.isEmpty() ? beerService.findAll() : beerService.findAll(filter);
+    }
+
+    @GetMapping("/page")
+    public BeerPageDTO findPage(@RequestParam(required = false) Long cursor,
+                                @RequestParam(defaultValue = "" + BeerService.DEFAULT_PAGE_SIZE) int limit) {
+        return beerService.findPage(cursor, limit);
+    }
+
+    @GetMapping(value = "/export", produces = APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> export() {
+        final ObjectWriter writer = objectMapper.writerFor(BeerDTO.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        final StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.setRootValueSeparator(null);
+                beerService.forEach(beerDTO -> writeLine(writer, generator, beerDTO));
+            }
+        };
+        return ResponseEntity.ok().body(body);
+    }
+
+    @GetMapping("/stats")
+    public List<BrandStatsDTO> findStats(@RequestParam(required = false) String brand) {
+        return inventoryStatistics.findStats(brand);
+    }
+
+    @GetMapping("/low-stock")
+    public List<BeerDTO> findLowStock() {
+        return stockThresholdMonitor.findLowStockBeers();
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream() {
+        final SseEmitter emitter = new SseEmitter(streamTimeout.toMillis());
+        final Runnable unsubscribe = stockChangeBroadcaster.subscribe(new StockChangeListener() {
+            @Override
+            public void send(StockChangeDTO change) throws IOException {
+                emitter.send(SseEmitter.event().name(STOCK_CHANGE_EVENT).data(change, MediaType.APPLICATION_JSON));
+            }
+
+            @Override
+            public void closed() {
+                emitter.complete();
+            }
+        });
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(unsubscribe);
+        emitter.onError(e -> unsubscribe.run());
+        return emitter;
     }
 
     @GetMapping("/{id}")
-    public BeerDTO findById(@PathVariable Long id) {
-        return beerService.findById(id);
+    public BeerDTO findById(@PathVariable Long id, WebRequest request) {
+        final BeerDTO beerDTO = beerService.findById(id);
+        return request.checkNotModified(eTagOf(beerDTO)) ? null : beerDTO;
+    }
+
+    @GetMapping("/{id}/movements")
+    public StockMovementPageDTO findMovements(@PathVariable Long id,
+                                             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+                                             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+                                             @RequestParam(required = false) Long cursor,
+                                             @RequestParam(defaultValue = "" + BeerService.DEFAULT_PAGE_SIZE) int limit) {
+        return supported(stockLedgerService, "Stock movements").findPage(id, from, to, cursor, limit);
+    }
+
+    @GetMapping("/{id}/locations")
+    public List<BeerStockDTO> findLocations(@PathVariable Long id) {
+        return beerService.findLocations(id);
+    }
+
+    @GetMapping("/search")
+    public List<BeerDTO> searchByPrefix(@RequestParam String prefix,
+                                        @RequestParam(defaultValue = "" + BeerService.DEFAULT_SEARCH_LIMIT) int limit) {
+        return beerService.searchByPrefix(prefix, limit);
     }
 
     @GetMapping("/search/{name}")
-    public BeerDTO findByName(@PathVariable String name) {
-        return beerService.findByName(name);
+    public BeerDTO findByName(@PathVariable String name, WebRequest request) {
+        final BeerDTO beerDTO = beerService.findByName(name);
+        return request.checkNotModified(eTagOf(beerDTO)) ? null : beerDTO;
     }
 
     @PostMapping
@@ -40,19 +190,92 @@ public class BeerController implements BeerControllerDocs {
         return beerService.create(beerDTO);
     }
 
+    @PostMapping(value = "/import", consumes = {TEXT_CSV_VALUE, APPLICATION_NDJSON_VALUE})
+    public ImportSummaryDTO importBeers(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                        InputStream body) throws IOException {
+        final ImportFormat format = MediaType.valueOf(TEXT_CSV_VALUE).includes(contentType) ?
+                ImportFormat.CSV :
+                ImportFormat.NDJSON;
+        return supported(beerImportService, "Imports").importBeers(body, format);
+    }
+
     @PatchMapping("/{id}/increment")
+    @Timed(value = STOCK_UPDATE_TIMER, extraTags = {"action", "INCREMENT"})
     public BeerDTO increment(@PathVariable Long id, @RequestBody @Valid QuantityDTO quantityDTO) {
         return beerService.updateStock(id, quantityDTO.getQuantity(), StockAction.INCREMENT);
     }
 
     @PatchMapping("{id}/decrement")
+    @Timed(value = STOCK_UPDATE_TIMER, extraTags = {"action", "DECREMENT"})
     public BeerDTO decrement(@PathVariable Long id, @RequestBody @Valid QuantityDTO quantityDTO) {
         return beerService.updateStock(id, quantityDTO.getQuantity(), StockAction.DECREMENT);
     }
 
+    @PatchMapping("/{id}/locations/{location}/increment")
+    @Timed(value = STOCK_UPDATE_TIMER, extraTags = {"action", "INCREMENT"})
+    public BeerDTO increment(@PathVariable Long id, @PathVariable String location, @RequestBody @Valid QuantityDTO quantityDTO) {
+        return beerService.updateStock(id, location, quantityDTO.getQuantity(), StockAction.INCREMENT);
+    }
+
+    @PatchMapping("/{id}/locations/{location}/decrement")
+    @Timed(value = STOCK_UPDATE_TIMER, extraTags = {"action", "DECREMENT"})
+    public BeerDTO decrement(@PathVariable Long id, @PathVariable String location, @RequestBody @Valid QuantityDTO quantityDTO) {
+        return beerService.updateStock(id, location, quantityDTO.getQuantity(), StockAction.DECREMENT);
+    }
+
+    @PostMapping("/{id}/transfers")
+    @Timed(value = STOCK_UPDATE_TIMER, extraTags = {"action", "TRANSFER"})
+    public List<BeerStockDTO> transfer(@PathVariable Long id, @RequestBody @Valid StockTransferDTO stockTransferDTO) {
+        return beerService.transfer(id, stockTransferDTO);
+    }
+
+    @PostMapping("/{id}/reservations")
+    public StockReservationDTO reserve(@PathVariable Long id, @RequestBody @Valid StockReservationRequestDTO stockReservationRequestDTO) {
+        return supported(stockReservationService, "Reservations").reserve(id, stockReservationRequestDTO);
+    }
+
+    @PostMapping("/{id}/reservations/{reservationId}/confirm")
+    public StockReservationDTO confirmReservation(@PathVariable Long id, @PathVariable Long reservationId) {
+        return supported(stockReservationService, "Reservations").confirm(id, reservationId);
+    }
+
+    @PostMapping("/{id}/reservations/{reservationId}/cancel")
+    public StockReservationDTO cancelReservation(@PathVariable Long id, @PathVariable Long reservationId) {
+        return supported(stockReservationService, "Reservations").cancel(id, reservationId);
+    }
+
+    @PostMapping("/stock/batch")
+    @Timed(value = STOCK_UPDATE_TIMER, extraTags = {"action", "BATCH"})
+    public StockBatchResultDTO updateStockBatch(@RequestBody @Valid StockBatchDTO stockBatchDTO) {
+        return supported(stockBatchService, "Stock batches").updateStock(stockBatchDTO);
+    }
+
     @DeleteMapping("{id}")
     public MessageResponseDTO delete(@PathVariable Long id) {
         return beerService.delete(id);
     }
 
+    /**
+     * Batches, imports, the ledger and reservations work on the database tables, so their services don't exist
+     * with the {@code memory} profile.
+     */
+    private static <T> T supported(T service, String operation) {
+        if (service == null)
+            throw new OperationNotSupportedException(operation);
+        return service;
+    }
+
+    private String eTagOf(BeerDTO beerDTO) {
+        return "\"" + beerDTO.getId() + "-" + beerDTO.getVersion() + "\"";
+    }
+
+    private void writeLine(ObjectWriter writer, JsonGenerator generator, BeerDTO beerDTO) {
+        try {
+            writer.writeValue(generator, beerDTO);
+            generator.writeRaw('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
 }
@@ -1,5 +1,6 @@
 package com.jonservices.beerstocks.data.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -32,4 +33,11 @@ public class BeerDTO {
     @Max(100)
     private Integer quantity;
 
+    @JsonIgnore
+    private Long version;
+
+    public BeerDTO(Long id, String name, String brand, Integer max, Integer quantity) {
+        this(id, name, brand, max, quantity, null);
+    }
+
 }
@@ -0,0 +1,42 @@
+package com.jonservices.beerstocks.data.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Min;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BeerFilterDTO {
+
+    private String brand;
+
+    @Min(0)
+    private Integer minQuantity;
+
+    @Min(0)
+    private Integer maxQuantity;
+
+    @DecimalMin("0")
+    @DecimalMax("1")
+    private Double minFillRatio;
+
+    @DecimalMin("0")
+    @DecimalMax("1")
+    private Double maxFillRatio;
+
+    /**
+     * {@code property[,asc|desc]} orders separated by {@code ;}, e.g. {@code brand;quantity,desc}.
+     */
+    private String sort;
+
+    public boolean isEmpty() {
+        return brand == null && minQuantity == null && maxQuantity == null && minFillRatio == null &&
+                maxFillRatio == null && sort == null;
+    }
+
+}
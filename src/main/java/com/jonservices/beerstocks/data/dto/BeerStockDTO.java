@@ -0,0 +1,20 @@
+package com.jonservices.beerstocks.data.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BeerStockDTO {
+
+    private String location;
+
+    private int quantity;
+
+    private int reserved;
+
+}
@@ -0,0 +1,24 @@
+package com.jonservices.beerstocks.data.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BrandStatsDTO {
+
+    private String brand;
+
+    private long skuCount;
+
+    private long totalQuantity;
+
+    private long totalCapacity;
+
+    private double fillRatio;
+
+}
@@ -0,0 +1,22 @@
+package com.jonservices.beerstocks.data.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Builder
+@Data
+public class ImportSummaryDTO {
+
+    private long received;
+
+    private long imported;
+
+    private long rejected;
+
+    private List<ImportErrorDTO> errors;
+
+    private boolean errorsTruncated;
+
+}
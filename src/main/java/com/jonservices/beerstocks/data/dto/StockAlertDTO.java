@@ -0,0 +1,27 @@
+package com.jonservices.beerstocks.data.dto;
+
+import com.jonservices.beerstocks.data.enums.StockLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockAlertDTO {
+
+    private Long id;
+
+    private String name;
+
+    private StockLevel previousLevel;
+
+    private StockLevel level;
+
+    private int quantity;
+
+    private int max;
+
+}
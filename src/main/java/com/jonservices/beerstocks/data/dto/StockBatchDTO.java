@@ -0,0 +1,26 @@
+package com.jonservices.beerstocks.data.dto;
+
+import com.jonservices.beerstocks.data.enums.BatchMode;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockBatchDTO {
+
+    @NotNull
+    private BatchMode mode = BatchMode.ATOMIC;
+
+    @NotEmpty
+    @Size(max = 1000)
+    private List<@Valid @NotNull StockMovementDTO> movements;
+
+}
@@ -0,0 +1,21 @@
+package com.jonservices.beerstocks.data.dto;
+
+import com.jonservices.beerstocks.data.enums.BatchMode;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Builder
+@Data
+public class StockBatchResultDTO {
+
+    private BatchMode mode;
+
+    private int applied;
+
+    private int rejected;
+
+    private List<StockMovementResultDTO> results;
+
+}
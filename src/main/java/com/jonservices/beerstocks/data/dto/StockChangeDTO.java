@@ -0,0 +1,23 @@
+package com.jonservices.beerstocks.data.dto;
+
+import com.jonservices.beerstocks.data.enums.BeerChangeType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockChangeDTO {
+
+    private Long id;
+
+    private Integer quantity;
+
+    private int delta;
+
+    private BeerChangeType action;
+
+}
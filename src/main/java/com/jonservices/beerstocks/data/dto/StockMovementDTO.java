@@ -0,0 +1,28 @@
+package com.jonservices.beerstocks.data.dto;
+
+import com.jonservices.beerstocks.data.enums.StockAction;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockMovementDTO {
+
+    @NotNull
+    private Long id;
+
+    @NotNull
+    private StockAction action;
+
+    @NotNull
+    @Max(100)
+    @Min(1)
+    private Integer quantity;
+
+}
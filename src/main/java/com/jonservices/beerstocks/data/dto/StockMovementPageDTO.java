@@ -0,0 +1,16 @@
+package com.jonservices.beerstocks.data.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Builder
+@Data
+public class StockMovementPageDTO {
+
+    private List<StockMovementRecordDTO> content;
+
+    private Long nextCursor;
+
+}
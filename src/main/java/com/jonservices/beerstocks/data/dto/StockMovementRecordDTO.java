@@ -0,0 +1,29 @@
+package com.jonservices.beerstocks.data.dto;
+
+import com.jonservices.beerstocks.data.enums.StockAction;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockMovementRecordDTO {
+
+    private Long id;
+
+    private Long beerId;
+
+    private String locationId;
+
+    private StockAction action;
+
+    private int delta;
+
+    private int quantity;
+
+    private Instant createdAt;
+
+}
@@ -0,0 +1,24 @@
+package com.jonservices.beerstocks.data.dto;
+
+import com.jonservices.beerstocks.data.enums.MovementStatus;
+import com.jonservices.beerstocks.data.enums.StockAction;
+import lombok.Builder;
+import lombok.Data;
+
+@Builder
+@Data
+public class StockMovementResultDTO {
+
+    private Long id;
+
+    private StockAction action;
+
+    private int quantity;
+
+    private MovementStatus status;
+
+    private Integer resultingQuantity;
+
+    private String message;
+
+}
@@ -0,0 +1,29 @@
+package com.jonservices.beerstocks.data.dto;
+
+import com.jonservices.beerstocks.data.enums.ReservationStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockReservationDTO {
+
+    private Long id;
+
+    private Long beerId;
+
+    private String locationId;
+
+    private int quantity;
+
+    private ReservationStatus status;
+
+    private Instant expiresAt;
+
+}
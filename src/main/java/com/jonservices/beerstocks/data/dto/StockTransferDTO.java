@@ -0,0 +1,31 @@
+package com.jonservices.beerstocks.data.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockTransferDTO {
+
+    @NotBlank
+    @Size(max = 50)
+    private String from;
+
+    @NotBlank
+    @Size(max = 50)
+    private String to;
+
+    @NotNull
+    @Max(100)
+    @Min(1)
+    private Integer quantity;
+
+}
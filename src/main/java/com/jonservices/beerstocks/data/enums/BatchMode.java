@@ -0,0 +1,6 @@
+package com.jonservices.beerstocks.data.enums;
+
+public enum BatchMode {
+    ATOMIC,
+    BEST_EFFORT
+}
@@ -0,0 +1,7 @@
+package com.jonservices.beerstocks.data.enums;
+
+public enum BeerChangeType {
+    CREATED,
+    STOCK_UPDATED,
+    DELETED
+}
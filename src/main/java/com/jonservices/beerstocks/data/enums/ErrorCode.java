@@ -0,0 +1,26 @@
+package com.jonservices.beerstocks.data.enums;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Stable codes of the errors returned by the API, along with the title of their problem details. Clients may
+ * rely on the codes, so they must not be renamed.
+ */
+@Getter
+@AllArgsConstructor
+public enum ErrorCode {
+    BEER_NOT_FOUND("Beer not found"),
+    BEER_ALREADY_REGISTERED("Beer already registered"),
+    BEER_STOCK_EXCEEDED("Stock limits exceeded"),
+    BEER_LOCATION_STOCK_EXCEEDED("Location stock exceeded"),
+    BEER_SORT_NOT_SUPPORTED("Sort not supported"),
+    BEER_CONCURRENT_UPDATE("Concurrent update"),
+    STOCK_RESERVATION_NOT_FOUND("Reservation not found"),
+    STOCK_RESERVATION_NOT_ACTIVE("Reservation not active"),
+    IDEMPOTENCY_KEY_REUSED("Idempotency key reused"),
+    OPERATION_NOT_SUPPORTED("Operation not supported"),
+    VALIDATION_FAILED("Invalid request");
+
+    private final String title;
+}
@@ -0,0 +1,8 @@
+package com.jonservices.beerstocks.data.enums;
+
+public enum ReservationStatus {
+    ACTIVE,
+    CONFIRMED,
+    CANCELLED,
+    EXPIRED
+}
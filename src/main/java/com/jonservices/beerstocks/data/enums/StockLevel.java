@@ -0,0 +1,7 @@
+package com.jonservices.beerstocks.data.enums;
+
+public enum StockLevel {
+    LOW,
+    NORMAL,
+    HIGH
+}
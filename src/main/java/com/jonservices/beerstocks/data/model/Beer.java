@@ -1,5 +1,6 @@
 package com.jonservices.beerstocks.data.model;
 
+import com.jonservices.beerstocks.data.dto.BeerDTO;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -11,8 +12,18 @@ import javax.persistence.*;
 @Data
 @Entity
 @Table(name = "beers")
+@SqlResultSetMapping(name = Beer.BEER_DTO_MAPPING, classes = @ConstructorResult(targetClass = BeerDTO.class, columns = {
+        @ColumnResult(name = "id", type = Long.class),
+        @ColumnResult(name = "name", type = String.class),
+        @ColumnResult(name = "brand", type = String.class),
+        @ColumnResult(name = "max", type = Integer.class),
+        @ColumnResult(name = "quantity", type = Integer.class),
+        @ColumnResult(name = "version", type = Long.class)
+}))
 public class Beer {
 
+    public static final String BEER_DTO_MAPPING = "BeerDTO";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -29,4 +40,8 @@ public class Beer {
     @Column(nullable = false)
     private int quantity;
 
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
 }
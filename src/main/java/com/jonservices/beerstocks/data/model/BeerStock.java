@@ -0,0 +1,44 @@
+package com.jonservices.beerstocks.data.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+
+/**
+ * Stock of a beer at one location. The quantity of the {@link Beer} is the sum of its locations, kept up to
+ * date by every stock change instead of being summed on reads. The reserved part of the quantity is held by
+ * active reservations and cannot be decremented or transferred.
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+@Entity
+@Table(name = "beer_stock")
+public class BeerStock {
+
+    public static final String DEFAULT_LOCATION = "default";
+
+    @EmbeddedId
+    private BeerStockId id;
+
+    @Column(nullable = false)
+    private int quantity;
+
+    @Column(nullable = false)
+    private int reserved;
+
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
+    public static BeerStock of(Long beerId, String locationId, int quantity) {
+        return new BeerStock(new BeerStockId(beerId, locationId), quantity, 0, null);
+    }
+
+    public int getAvailable() {
+        return quantity - reserved;
+    }
+
+}
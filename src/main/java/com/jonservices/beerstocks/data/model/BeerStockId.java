@@ -0,0 +1,23 @@
+package com.jonservices.beerstocks.data.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
+import java.io.Serializable;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+@Embeddable
+public class BeerStockId implements Serializable {
+
+    @Column(nullable = false)
+    private Long beerId;
+
+    @Column(nullable = false)
+    private String locationId;
+
+}
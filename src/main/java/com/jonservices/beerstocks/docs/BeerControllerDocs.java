@@ -1,44 +1,110 @@
 package com.jonservices.beerstocks.docs;
 
 import com.jonservices.beerstocks.data.dto.BeerDTO;
+import com.jonservices.beerstocks.data.dto.BeerFilterDTO;
+import com.jonservices.beerstocks.data.dto.BeerPageDTO;
+import com.jonservices.beerstocks.data.dto.BeerStockDTO;
+import com.jonservices.beerstocks.data.dto.BrandStatsDTO;
+import com.jonservices.beerstocks.data.dto.ImportSummaryDTO;
 import com.jonservices.beerstocks.data.dto.MessageResponseDTO;
 import com.jonservices.beerstocks.data.dto.QuantityDTO;
+import com.jonservices.beerstocks.data.dto.StockBatchDTO;
+import com.jonservices.beerstocks.data.dto.StockBatchResultDTO;
+import com.jonservices.beerstocks.data.dto.StockMovementPageDTO;
+import com.jonservices.beerstocks.data.dto.StockReservationDTO;
+import com.jonservices.beerstocks.data.dto.StockReservationRequestDTO;
+import com.jonservices.beerstocks.data.dto.StockTransferDTO;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
 import java.util.List;
 
 @Tag(name = "Beer Controller")
 public interface BeerControllerDocs {
 
-    @Operation(summary = "Find all beers")
-    @ApiResponse(responseCode = "200", description = "Returns OK status")
+    @Operation(summary = "Find all beers, optionally filtered by brand, quantity range and fill ratio range and sorted by the informed properties")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Returns OK status with the catalog ETag"),
+            @ApiResponse(responseCode = "304", description = "Returns NOT MODIFIED status when If-None-Match holds the current catalog ETag"),
+            @ApiResponse(responseCode = "400", description = "Returns BAD REQUEST when a filter is out of range or a sort property is not supported")
+    })
+    List<BeerDTO> findAll(@Valid BeerFilterDTO filter, WebRequest request);
+
+    @Operation(summary = "Finds a page of beers ordered by id, starting after the informed cursor")
+    @ApiResponse(responseCode = "200", description = "Returns OK status with the page and the cursor of the next one")
+    @ResponseStatus(HttpStatus.OK)
+    BeerPageDTO findPage(@RequestParam Long cursor, @RequestParam int limit);
+
+    @Operation(summary = "Streams all beers as newline delimited JSON")
+    @ApiResponse(responseCode = "200", description = "Returns OK status while streaming one beer per line")
+    @ResponseStatus(HttpStatus.OK)
+    ResponseEntity<StreamingResponseBody> export();
+
+    @Operation(summary = "Finds the number of beers, total quantity, total capacity and fill ratio per brand, or of the informed brand")
+    @ApiResponse(responseCode = "200", description = "Returns OK status with the totals ordered by brand")
     @ResponseStatus(HttpStatus.OK)
-    List<BeerDTO> findAll();
+    List<BrandStatsDTO> findStats(@RequestParam String brand);
+
+    @Operation(summary = "Lists the beers whose quantity is below the low stock fraction of their max, ordered by id")
+    @ApiResponse(responseCode = "200", description = "Returns OK status with the low stock beers")
+    @ResponseStatus(HttpStatus.OK)
+    List<BeerDTO> findLowStock();
+
+    @Operation(summary = "Streams committed stock changes as Server-Sent Events")
+    @ApiResponse(responseCode = "200", description = "Returns OK status and keeps sending stock-change events, coalesced per beer")
+    SseEmitter stream();
 
     @Operation(summary = "Finds a beer by its id")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Returns OK status if the beer exists"),
             @ApiResponse(responseCode = "400", description = "Returns BAD REQUEST status when an invalid id format is passed"),
+            @ApiResponse(responseCode = "304", description = "Returns NOT MODIFIED status when If-None-Match holds the ETag of the current beer version"),
             @ApiResponse(responseCode = "404", description = "Returns NOT FOUND status when the beer does not exists")
     })
+    BeerDTO findById(@PathVariable Long id, WebRequest request);
+
+    @Operation(summary = "Finds a page of the stock movements of a beer in the [from, to) time range, ordered by movement id")
+    @ApiResponse(responseCode = "200", description = "Returns OK status with the page and the cursor of the next one")
     @ResponseStatus(HttpStatus.OK)
-    BeerDTO findById(@PathVariable Long id);
+    StockMovementPageDTO findMovements(@PathVariable Long id, @RequestParam Instant from, @RequestParam Instant to,
+                                       @RequestParam Long cursor, @RequestParam int limit);
+
+    @Operation(summary = "Finds the stock of a beer at each location")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Returns OK status with the locations ordered by id"),
+            @ApiResponse(responseCode = "404", description = "Returns NOT FOUND status when the beer does not exists")
+    })
+    @ResponseStatus(HttpStatus.OK)
+    List<BeerStockDTO> findLocations(@PathVariable Long id);
+
+    @Operation(summary = "Finds beers whose name starts with the informed prefix, ignoring case, ordered by name")
+    @ApiResponse(responseCode = "200", description = "Returns OK status with up to limit beers")
+    @ResponseStatus(HttpStatus.OK)
+    List<BeerDTO> searchByPrefix(@RequestParam String prefix, @RequestParam int limit);
 
     @Operation(summary = "Finds a beer by its name")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Returns OK status if beer exists"),
+            @ApiResponse(responseCode = "304", description = "Returns NOT MODIFIED status when If-None-Match holds the ETag of the current beer version"),
             @ApiResponse(responseCode = "404", description = "Returns NOT FOUND status when beer does not exist")
     })
-    @ResponseStatus(HttpStatus.OK)
-    BeerDTO findByName(@PathVariable String name);
+    BeerDTO findByName(@PathVariable String name, WebRequest request);
 
     @Operation(summary = "Saves a beer in the database")
     @ApiResponses(value = {
@@ -48,6 +114,14 @@ public interface BeerControllerDocs {
     @ResponseStatus(HttpStatus.CREATED)
     BeerDTO create(@RequestBody @Valid BeerDTO beerDTO);
 
+    @Operation(summary = "Imports beers from a CSV (name,brand,max,quantity) or newline delimited JSON body")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Returns OK status with the number of imported beers and the rejected lines"),
+            @ApiResponse(responseCode = "415", description = "Returns UNSUPPORTED MEDIA TYPE when the body is neither text/csv nor application/x-ndjson")
+    })
+    @ResponseStatus(HttpStatus.OK)
+    ImportSummaryDTO importBeers(MediaType contentType, InputStream body) throws IOException;
+
     @Operation(summary = "Increments beer quantity on stock")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Returns OK status when stock is incremented"),
@@ -66,11 +140,75 @@ public interface BeerControllerDocs {
     @ResponseStatus(HttpStatus.OK)
     BeerDTO decrement(@PathVariable Long id, @RequestBody @Valid QuantityDTO quantityDTO);
 
+    @Operation(summary = "Increments beer quantity on stock at a location")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Returns OK status with the aggregate quantity when stock is incremented"),
+            @ApiResponse(responseCode = "400", description = "Returns BAD REQUEST when missing required fields or wrong field range value"),
+            @ApiResponse(responseCode = "404", description = "Returns NOT FOUND status when beer does not exist")
+    })
+    @ResponseStatus(HttpStatus.OK)
+    BeerDTO increment(@PathVariable Long id, @PathVariable String location, @RequestBody @Valid QuantityDTO quantityDTO);
+
+    @Operation(summary = "Decrements beer quantity on stock at a location")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Returns OK status with the aggregate quantity when stock is decremented"),
+            @ApiResponse(responseCode = "400", description = "Returns BAD REQUEST when missing required fields, wrong field range value or not enough stock at the location"),
+            @ApiResponse(responseCode = "404", description = "Returns NOT FOUND status when beer does not exist")
+    })
+    @ResponseStatus(HttpStatus.OK)
+    BeerDTO decrement(@PathVariable Long id, @PathVariable String location, @RequestBody @Valid QuantityDTO quantityDTO);
+
+    @Operation(summary = "Moves stock of a beer from one location to another in a single transaction")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Returns OK status with the resulting stock of every location"),
+            @ApiResponse(responseCode = "400", description = "Returns BAD REQUEST when missing required fields, wrong field range value or not enough stock at the source location"),
+            @ApiResponse(responseCode = "404", description = "Returns NOT FOUND status when beer does not exist")
+    })
+    @ResponseStatus(HttpStatus.OK)
+    List<BeerStockDTO> transfer(@PathVariable Long id, @RequestBody @Valid StockTransferDTO stockTransferDTO);
+
+    @Operation(summary = "Reserves stock of a location until it is confirmed, cancelled or expires")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Returns CREATED status with the active reservation and its expiry"),
+            @ApiResponse(responseCode = "400", description = "Returns BAD REQUEST when missing required fields, wrong field range value or not enough available stock at the location"),
+            @ApiResponse(responseCode = "404", description = "Returns NOT FOUND status when beer does not exist")
+    })
+    @ResponseStatus(HttpStatus.CREATED)
+    StockReservationDTO reserve(@PathVariable Long id, @RequestBody @Valid StockReservationRequestDTO stockReservationRequestDTO);
+
+    @Operation(summary = "Confirms a reservation, decrementing the reserved stock")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Returns OK status with the confirmed reservation"),
+            @ApiResponse(responseCode = "404", description = "Returns NOT FOUND status when the reservation does not exist"),
+            @ApiResponse(responseCode = "409", description = "Returns CONFLICT status when the reservation was already confirmed, cancelled or expired")
+    })
+    @ResponseStatus(HttpStatus.OK)
+    StockReservationDTO confirmReservation(@PathVariable Long id, @PathVariable Long reservationId);
+
+    @Operation(summary = "Cancels a reservation, making its stock available again")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Returns OK status with the cancelled reservation"),
+            @ApiResponse(responseCode = "404", description = "Returns NOT FOUND status when the reservation does not exist"),
+            @ApiResponse(responseCode = "409", description = "Returns CONFLICT status when the reservation was already confirmed, cancelled or expired")
+    })
+    @ResponseStatus(HttpStatus.OK)
+    StockReservationDTO cancelReservation(@PathVariable Long id, @PathVariable Long reservationId);
+
+    @Operation(summary = "Applies a batch of stock movements in a single transaction")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Returns OK status with the result of every movement"),
+            @ApiResponse(responseCode = "400", description = "Returns BAD REQUEST when missing required fields or wrong field range value"),
+            @ApiResponse(responseCode = "409", description = "Returns CONFLICT status when concurrent updates keep conflicting with the batch")
+    })
+    @ResponseStatus(HttpStatus.OK)
+    StockBatchResultDTO updateStockBatch(@RequestBody @Valid StockBatchDTO stockBatchDTO);
+
     @Operation(summary = "Removes a beer from the database")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Returns OK status when a beer is deleted"),
             @ApiResponse(responseCode = "400", description = "Returns BAD REQUEST status when an invalid id format is passed"),
-            @ApiResponse(responseCode = "404", description = "Returns NOT FOUND status when the beer does not exists")
+            @ApiResponse(responseCode = "404", description = "Returns NOT FOUND status when the beer does not exists"),
+            @ApiResponse(responseCode = "409", description = "Returns CONFLICT status when concurrent updates keep conflicting with the deletion")
     })
     @ResponseStatus(HttpStatus.OK)
     MessageResponseDTO delete(@PathVariable Long id);
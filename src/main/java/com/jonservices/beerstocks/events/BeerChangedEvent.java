@@ -0,0 +1,49 @@
+package com.jonservices.beerstocks.events;
+
+import com.jonservices.beerstocks.data.dto.BeerDTO;
+import com.jonservices.beerstocks.data.enums.BeerChangeType;
+import com.jonservices.beerstocks.data.model.BeerStock;
+import lombok.Value;
+
+/**
+ * Published whenever a beer is created, has its stock updated or is deleted.
+ * {@code beer} holds the state after the change (the last known state for deletions)
+ * and {@code delta} the applied stock difference, which is 0 unless the stock was updated.
+ * {@code location} is the location whose stock was updated, {@code null} for other changes.
+ * {@code buffered} tells a stock update acknowledged by the write-behind buffer, which is only written to the
+ * database by a later flush.
+ */
+@Value
+public class BeerChangedEvent {
+
+    BeerChangeType type;
+
+    BeerDTO beer;
+
+    int delta;
+
+    String location;
+
+    boolean buffered;
+
+    public static BeerChangedEvent created(BeerDTO beer) {
+        return new BeerChangedEvent(BeerChangeType.CREATED, beer, 0, null, false);
+    }
+
+    public static BeerChangedEvent stockUpdated(BeerDTO beer, int delta) {
+        return stockUpdated(beer, BeerStock.DEFAULT_LOCATION, delta);
+    }
+
+    public static BeerChangedEvent stockUpdated(BeerDTO beer, String location, int delta) {
+        return new BeerChangedEvent(BeerChangeType.STOCK_UPDATED, beer, delta, location, false);
+    }
+
+    public static BeerChangedEvent bufferedStockUpdated(BeerDTO beer, int delta) {
+        return new BeerChangedEvent(BeerChangeType.STOCK_UPDATED, beer, delta, BeerStock.DEFAULT_LOCATION, true);
+    }
+
+    public static BeerChangedEvent deleted(BeerDTO beer) {
+        return new BeerChangedEvent(BeerChangeType.DELETED, beer, 0, null, false);
+    }
+
+}
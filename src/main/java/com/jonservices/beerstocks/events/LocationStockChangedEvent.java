@@ -0,0 +1,14 @@
+package com.jonservices.beerstocks.events;
+
+import lombok.Value;
+
+/**
+ * Published when the stock of some location of a beer changes without changing its aggregate quantity, as
+ * transfers and reservations do, so no {@link BeerChangedEvent} is published for it.
+ */
+@Value
+public class LocationStockChangedEvent {
+
+    Long beerId;
+
+}
@@ -0,0 +1,22 @@
+package com.jonservices.beerstocks.events;
+
+import lombok.Value;
+
+/**
+ * Published when stock of a beer is moved between two of its locations. {@code beerQuantity} holds the
+ * aggregate quantity of the beer, which a transfer leaves as it was.
+ */
+@Value
+public class StockTransferredEvent {
+
+    Long beerId;
+
+    String from;
+
+    String to;
+
+    int quantity;
+
+    int beerQuantity;
+
+}
@@ -1,13 +1,14 @@
 package com.jonservices.beerstocks.exceptions;
 
+import com.jonservices.beerstocks.data.enums.ErrorCode;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
 @ResponseStatus(HttpStatus.BAD_REQUEST)
-public class BeerAlreadyRegisteredException extends RuntimeException {
+public class BeerAlreadyRegisteredException extends BeerStocksException {
 
     public BeerAlreadyRegisteredException(String name) {
-        super("Beer with name " + name + " already registered in the system");
+        super(ErrorCode.BEER_ALREADY_REGISTERED, "Beer with name " + name + " already registered in the system");
     }
 
 }
@@ -0,0 +1,14 @@
+package com.jonservices.beerstocks.exceptions;
+
+import com.jonservices.beerstocks.data.enums.ErrorCode;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class BeerConcurrentUpdateException extends BeerStocksException {
+
+    public BeerConcurrentUpdateException(String operation) {
+        super(ErrorCode.BEER_CONCURRENT_UPDATE, "Could not complete " + operation + " because of concurrent updates, please try again");
+    }
+
+}
@@ -0,0 +1,14 @@
+package com.jonservices.beerstocks.exceptions;
+
+import com.jonservices.beerstocks.data.enums.ErrorCode;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class BeerLocationStockExceededException extends BeerStocksException {
+
+    public BeerLocationStockExceededException(String location) {
+        super(ErrorCode.BEER_LOCATION_STOCK_EXCEEDED, String.format("Quantity is greater than the stock at location: %s", location));
+    }
+
+}
@@ -1,13 +1,14 @@
 package com.jonservices.beerstocks.exceptions;
 
+import com.jonservices.beerstocks.data.enums.ErrorCode;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
 @ResponseStatus(HttpStatus.NOT_FOUND)
-public class BeerNotFoundException extends RuntimeException {
+public class BeerNotFoundException extends BeerStocksException {
 
     public BeerNotFoundException(String attribute, Object value) {
-        super("Beer not found with " + attribute + " " + value);
+        super(ErrorCode.BEER_NOT_FOUND, "Beer not found with " + attribute + " " + value);
     }
 
 }
@@ -0,0 +1,14 @@
+package com.jonservices.beerstocks.exceptions;
+
+import com.jonservices.beerstocks.data.enums.ErrorCode;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class BeerSortNotSupportedException extends BeerStocksException {
+
+    public BeerSortNotSupportedException(String sort) {
+        super(ErrorCode.BEER_SORT_NOT_SUPPORTED, "Beers cannot be sorted by " + sort);
+    }
+
+}
@@ -1,13 +1,14 @@
 package com.jonservices.beerstocks.exceptions;
 
+import com.jonservices.beerstocks.data.enums.ErrorCode;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
 @ResponseStatus(HttpStatus.BAD_REQUEST)
-public class BeerStockExceededException extends RuntimeException {
+public class BeerStockExceededException extends BeerStocksException {
 
     public BeerStockExceededException(int max) {
-        super(String.format("Quantity is less than 0 or stock exceeds max quantity of: %s", max));
+        super(ErrorCode.BEER_STOCK_EXCEEDED, String.format("Quantity is less than 0 or stock exceeds max quantity of: %s", max));
     }
 
 }
@@ -0,0 +1,23 @@
+package com.jonservices.beerstocks.exceptions;
+
+import com.jonservices.beerstocks.data.enums.ErrorCode;
+
+/**
+ * Base of the exceptions thrown by rejected requests. Rejections such as a decrement beyond the stock are
+ * part of the normal flow, so these exceptions don't capture a stack trace: the error code and message
+ * identify them.
+ */
+public abstract class BeerStocksException extends RuntimeException {
+
+    private final ErrorCode errorCode;
+
+    protected BeerStocksException(ErrorCode errorCode, String message) {
+        super(message, null, false, false);
+        this.errorCode = errorCode;
+    }
+
+    public ErrorCode getErrorCode() {
+        return errorCode;
+    }
+
+}
@@ -0,0 +1,14 @@
+package com.jonservices.beerstocks.exceptions;
+
+import com.jonservices.beerstocks.data.enums.ErrorCode;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
+public class IdempotencyKeyReusedException extends BeerStocksException {
+
+    public IdempotencyKeyReusedException(String key) {
+        super(ErrorCode.IDEMPOTENCY_KEY_REUSED, String.format("Idempotency key %s was already used with another request body", key));
+    }
+
+}
@@ -0,0 +1,14 @@
+package com.jonservices.beerstocks.exceptions;
+
+import com.jonservices.beerstocks.data.enums.ErrorCode;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.NOT_IMPLEMENTED)
+public class OperationNotSupportedException extends BeerStocksException {
+
+    public OperationNotSupportedException(String operation) {
+        super(ErrorCode.OPERATION_NOT_SUPPORTED, operation + " are not supported by the in-memory storage");
+    }
+
+}
@@ -0,0 +1,92 @@
+package com.jonservices.beerstocks.exceptions;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.jonservices.beerstocks.data.enums.ErrorCode;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.BindException;
+import org.springframework.validation.FieldError;
+import org.springframework.validation.ObjectError;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Writes rejected requests as compact {@code application/problem+json} bodies holding the title, status,
+ * stable error code and detail of the error, e.g.
+ * {@code {"title":"Beer not found","status":404,"code":"BEER_NOT_FOUND","detail":"Beer not found with id 7"}}.
+ * <p>
+ * Everything but the detail only depends on the exception type, so it is serialized once per type and only
+ * the escaped message is appended on each error. Setting {@code beerstocks.errors.format=spring} falls back
+ * to Spring Boot's error body, with the status of the {@link ResponseStatus} of each exception.
+ */
+@RestControllerAdvice
+@ConditionalOnProperty(name = "beerstocks.errors.format", havingValue = "problem", matchIfMissing = true)
+public class ProblemDetailsExceptionHandler {
+
+    public static final MediaType APPLICATION_PROBLEM_JSON = MediaType.parseMediaType("application/problem+json");
+
+    private static final byte[] BODY_END = "\"}".getBytes(StandardCharsets.UTF_8);
+
+    private final Map<Class<?>, Problem> problemsByType = new ConcurrentHashMap<>();
+    private final Problem validationProblem = new Problem(HttpStatus.BAD_REQUEST, ErrorCode.VALIDATION_FAILED);
+
+    @ExceptionHandler(BeerStocksException.class)
+    public ResponseEntity<byte[]> handle(BeerStocksException e) {
+        return problemsByType.computeIfAbsent(e.getClass(), type -> new Problem(statusOf(type), e.getErrorCode()))
+                .toResponse(e.getMessage());
+    }
+
+    @ExceptionHandler(BindException.class)
+    public ResponseEntity<byte[]> handle(BindException e) {
+        final String detail = e.getAllErrors().stream()
+                .map(ProblemDetailsExceptionHandler::describe)
+                .sorted()
+                .collect(Collectors.joining(", "));
+        return validationProblem.toResponse(detail);
+    }
+
+    private static HttpStatus statusOf(Class<?> type) {
+        final ResponseStatus responseStatus = AnnotatedElementUtils.findMergedAnnotation(type, ResponseStatus.class);
+        return responseStatus == null ? HttpStatus.BAD_REQUEST : responseStatus.code();
+    }
+
+    private static String describe(ObjectError error) {
+        return error instanceof FieldError ?
+                ((FieldError) error).getField() + " " + error.getDefaultMessage() :
+                error.getDefaultMessage();
+    }
+
+    private static class Problem {
+
+        private final HttpStatus status;
+        private final byte[] bodyStart;
+
+        private Problem(HttpStatus status, ErrorCode errorCode) {
+            this.status = status;
+            this.bodyStart = ("{\"title\":\"" + new String(JsonStringEncoder.getInstance().quoteAsString(errorCode.getTitle()))
+                    + "\",\"status\":" + status.value()
+                    + ",\"code\":\"" + errorCode.name()
+                    + "\",\"detail\":\"").getBytes(StandardCharsets.UTF_8);
+        }
+
+        private ResponseEntity<byte[]> toResponse(String detail) {
+            final byte[] escapedDetail = JsonStringEncoder.getInstance().quoteAsUTF8(detail == null ? "" : detail);
+            final byte[] body = new byte[bodyStart.length + escapedDetail.length + BODY_END.length];
+            System.arraycopy(bodyStart, 0, body, 0, bodyStart.length);
+            System.arraycopy(escapedDetail, 0, body, bodyStart.length, escapedDetail.length);
+            System.arraycopy(BODY_END, 0, body, bodyStart.length + escapedDetail.length, BODY_END.length);
+            return ResponseEntity.status(status).contentType(APPLICATION_PROBLEM_JSON).body(body);
+        }
+
+    }
+
+}
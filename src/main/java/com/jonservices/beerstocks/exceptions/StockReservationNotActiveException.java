@@ -0,0 +1,15 @@
+package com.jonservices.beerstocks.exceptions;
+
+import com.jonservices.beerstocks.data.enums.ErrorCode;
+import com.jonservices.beerstocks.data.enums.ReservationStatus;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class StockReservationNotActiveException extends BeerStocksException {
+
+    public StockReservationNotActiveException(Long id, ReservationStatus status) {
+        super(ErrorCode.STOCK_RESERVATION_NOT_ACTIVE, String.format("Reservation %s is not active anymore, it is %s", id, status));
+    }
+
+}
@@ -0,0 +1,14 @@
+package com.jonservices.beerstocks.exceptions;
+
+import com.jonservices.beerstocks.data.enums.ErrorCode;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.NOT_FOUND)
+public class StockReservationNotFoundException extends BeerStocksException {
+
+    public StockReservationNotFoundException(Long beerId, Long id) {
+        super(ErrorCode.STOCK_RESERVATION_NOT_FOUND, String.format("Reservation %s not found for beer with id %s", id, beerId));
+    }
+
+}
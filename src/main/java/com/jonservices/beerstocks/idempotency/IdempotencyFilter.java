@@ -0,0 +1,304 @@
+package com.jonservices.beerstocks.idempotency;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.ConcurrentStatsCounter;
+import com.github.benmanes.caffeine.cache.stats.StatsCounter;
+import com.jonservices.beerstocks.exceptions.IdempotencyKeyReusedException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Runs a {@code POST} or {@code PATCH} carrying an {@code Idempotency-Key} header only once per key, so a client
+ * retrying a timed out stock movement doesn't apply it twice.
+ * <p>
+ * The first request with a key stores a future of its response, and the response is kept for
+ * {@code beerstocks.idempotency.window} once completed. Repeated requests with the same key, method and path
+ * get the stored response replayed without reaching the controller, and duplicates arriving while the first
+ * one is still running wait for its response. Server errors are not stored, so a retry after one runs again,
+ * and neither are responses sent with {@code sendError}, whose body is only written later by the error
+ * dispatch. The SHA-256 of the request body is stored along with the response: a key repeated with another
+ * body is a client bug, not a retry, and is rejected with {@code 422 Unprocessable Entity}.
+ * The store holds at most {@code beerstocks.idempotency.maximum-size} keys and lives in memory, so keys are
+ * forgotten on restart and are not shared between instances.
+ */
+@Component
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
+    public static final String CACHE_NAME = "idempotency";
+
+    private final Cache<String, CompletableFuture<StoredResponse>> responses;
+    private final StatsCounter statsCounter = new ConcurrentStatsCounter();
+    private final List<HandlerExceptionResolver> handlerExceptionResolvers;
+
+    @Autowired
+    public IdempotencyFilter(@Value("${beerstocks.idempotency.maximum-size:10000}") long maximumSize,
+                             @Value("${beerstocks.idempotency.window:10m}") Duration window,
+                             MeterRegistry meterRegistry,
+                             List<HandlerExceptionResolver> handlerExceptionResolvers) {
+        this.handlerExceptionResolvers = handlerExceptionResolvers;
+        responses = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(window)
+                .recordStats(() -> statsCounter)
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, responses, CACHE_NAME);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        final String method = request.getMethod();
+        return !(HttpMethod.POST.matches(method) || HttpMethod.PATCH.matches(method))
+                || request.getHeader(IDEMPOTENCY_KEY_HEADER) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        final String key = request.getMethod() + " " + request.getRequestURI() + " " + request.getHeader(IDEMPOTENCY_KEY_HEADER);
+        while (true) {
+            final CompletableFuture<StoredResponse> pending = new CompletableFuture<>();
+            final CompletableFuture<StoredResponse> stored = responses.asMap().putIfAbsent(key, pending);
+            if (stored == null) {
+                statsCounter.recordMisses(1);
+                execute(key, pending, request, response, filterChain);
+                return;
+            }
+            statsCounter.recordHits(1);
+            final StoredResponse storedResponse = stored.join();
+            if (storedResponse != null) {
+                // Only read once a response is stored, since a duplicate running in place of the first needs its body
+                if (storedResponse.matches(new DigestingRequestWrapper(request).digest()))
+                    storedResponse.replay(response);
+                else
+                    reject(request, response, new IdempotencyKeyReusedException(request.getHeader(IDEMPOTENCY_KEY_HEADER)));
+                return;
+            }
+            // The first request failed and released the key, so this one runs in its place
+        }
+    }
+
+    private void execute(String key, CompletableFuture<StoredResponse> pending, HttpServletRequest request,
+                         HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        final DigestingRequestWrapper requestWrapper = new DigestingRequestWrapper(request);
+        final ErrorTrackingResponseWrapper responseWrapper = new ErrorTrackingResponseWrapper(response);
+        StoredResponse storedResponse = null;
+        try {
+            filterChain.doFilter(requestWrapper, responseWrapper);
+            if (!request.isAsyncStarted() && !responseWrapper.isErrorSent()
+                    && responseWrapper.getStatus() < HttpServletResponse.SC_INTERNAL_SERVER_ERROR)
+                storedResponse = StoredResponse.of(requestWrapper.digest(), responseWrapper);
+        } finally {
+            if (storedResponse == null)
+                responses.asMap().remove(key, pending);
+            pending.complete(storedResponse);
+        }
+        responseWrapper.copyBodyToResponse();
+    }
+
+    /**
+     * Renders the rejection like any other API error, going through the resolvers in the order the dispatcher
+     * uses them, so it is counted and rendered like handler exceptions. Falls back to a plain {@code sendError}
+     * when no resolver handles it.
+     */
+    private void reject(HttpServletRequest request, HttpServletResponse response, IdempotencyKeyReusedException e)
+            throws IOException {
+        for (HandlerExceptionResolver resolver : handlerExceptionResolvers)
+            if (resolver.resolveException(request, response, null, e) != null)
+                return;
+        response.sendError(HttpStatus.UNPROCESSABLE_ENTITY.value(), e.getMessage());
+    }
+
+    private static class StoredResponse {
+
+        private final byte[] requestDigest;
+        private final int status;
+        private final String contentType;
+        private final Map<String, List<String>> headers;
+        private final byte[] body;
+
+        private StoredResponse(byte[] requestDigest, int status, String contentType, Map<String, List<String>> headers,
+                               byte[] body) {
+            this.requestDigest = requestDigest;
+            this.status = status;
+            this.contentType = contentType;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        private static StoredResponse of(byte[] requestDigest, ContentCachingResponseWrapper response) {
+            final Map<String, List<String>> headers = new LinkedHashMap<>();
+            for (String name : response.getHeaderNames())
+                if (!HttpHeaders.CONTENT_TYPE.equalsIgnoreCase(name))
+                    headers.put(name, new ArrayList<>(response.getHeaders(name)));
+            return new StoredResponse(requestDigest, response.getStatus(), response.getContentType(), headers,
+                    response.getContentAsByteArray());
+        }
+
+        private boolean matches(byte[] requestDigest) {
+            return MessageDigest.isEqual(this.requestDigest, requestDigest);
+        }
+
+        private void replay(HttpServletResponse response) throws IOException {
+            response.setStatus(status);
+            if (contentType != null)
+                response.setContentType(contentType);
+            headers.forEach((name, values) -> values.forEach(value -> response.addHeader(name, value)));
+            response.setHeader(IDEMPOTENT_REPLAYED_HEADER, "true");
+            response.setContentLength(body.length);
+            response.getOutputStream().write(body);
+        }
+
+    }
+
+    /**
+     * Digests the request body while the controller reads it, so the body is never held in memory.
+     */
+    private static class DigestingRequestWrapper extends HttpServletRequestWrapper {
+
+        private final MessageDigest messageDigest;
+        private DigestingInputStream inputStream;
+        private BufferedReader reader;
+
+        private DigestingRequestWrapper(HttpServletRequest request) {
+            super(request);
+            try {
+                messageDigest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e); // Every Java platform provides SHA-256
+            }
+        }
+
+        @Override
+        public ServletInputStream getInputStream() throws IOException {
+            if (inputStream == null)
+                inputStream = new DigestingInputStream(super.getInputStream(), messageDigest);
+            return inputStream;
+        }
+
+        @Override
+        public BufferedReader getReader() throws IOException {
+            if (reader == null) {
+                final String encoding = getCharacterEncoding();
+                final Charset charset = encoding == null ? StandardCharsets.ISO_8859_1 : Charset.forName(encoding);
+                reader = new BufferedReader(new InputStreamReader(getInputStream(), charset));
+            }
+            return reader;
+        }
+
+        /**
+         * Reads whatever the controller left of the body, then returns the digest of the whole body.
+         */
+        private byte[] digest() throws IOException {
+            final ServletInputStream body = getInputStream();
+            final byte[] buffer = new byte[8192];
+            while (body.read(buffer) != -1) {
+                // Digested while read
+            }
+            return messageDigest.digest();
+        }
+
+    }
+
+    private static class DigestingInputStream extends ServletInputStream {
+
+        private final ServletInputStream delegate;
+        private final MessageDigest messageDigest;
+
+        private DigestingInputStream(ServletInputStream delegate, MessageDigest messageDigest) {
+            this.delegate = delegate;
+            this.messageDigest = messageDigest;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int b = delegate.read();
+            if (b != -1)
+                messageDigest.update((byte) b);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            final int read = delegate.read(b, off, len);
+            if (read > 0)
+                messageDigest.update(b, off, read);
+            return read;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return delegate.isFinished();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            delegate.setReadListener(readListener);
+        }
+
+    }
+
+    private static class ErrorTrackingResponseWrapper extends ContentCachingResponseWrapper {
+
+        private boolean errorSent;
+
+        private ErrorTrackingResponseWrapper(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            errorSent = true;
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            errorSent = true;
+            super.sendError(sc, msg);
+        }
+
+        private boolean isErrorSent() {
+            return errorSent;
+        }
+
+    }
+
+}
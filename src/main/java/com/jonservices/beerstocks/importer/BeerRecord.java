@@ -0,0 +1,26 @@
+package com.jonservices.beerstocks.importer;
+
+import com.jonservices.beerstocks.data.dto.BeerDTO;
+import lombok.Value;
+
+/**
+ * A parsed line of an import, holding either the beer or the reason it could not be parsed.
+ */
+@Value
+public class BeerRecord {
+
+    long line;
+
+    BeerDTO beer;
+
+    String error;
+
+    public static BeerRecord parsed(long line, BeerDTO beer) {
+        return new BeerRecord(line, beer, null);
+    }
+
+    public static BeerRecord failed(long line, String error) {
+        return new BeerRecord(line, null, error);
+    }
+
+}
@@ -0,0 +1,30 @@
+package com.jonservices.beerstocks.importer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jonservices.beerstocks.data.enums.ImportFormat;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+/**
+ * Reads beers one line at a time, so that an import never holds more than a line of its body in memory.
+ */
+public interface BeerRecordReader {
+
+    /**
+     * Written by some editors at the start of UTF-8 files, dropped from the first line.
+     */
+    String BYTE_ORDER_MARK = "\uFEFF";
+
+    /**
+     * Returns the next record, or null once the input is exhausted. Blank lines are skipped.
+     */
+    BeerRecord next() throws IOException;
+
+    static BeerRecordReader of(ImportFormat format, BufferedReader reader, ObjectMapper objectMapper) {
+        return format == ImportFormat.CSV ?
+                new CsvBeerRecordReader(reader) :
+                new NdjsonBeerRecordReader(reader, objectMapper);
+    }
+
+}
@@ -0,0 +1,97 @@
+package com.jonservices.beerstocks.importer;
+
+import com.jonservices.beerstocks.data.dto.BeerDTO;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads {@code name,brand,max,quantity} lines. A header line with these column names is skipped when it is the
+ * first non-blank line, after a byte order mark if any, and fields may be double quoted, with {@code ""} standing
+ * for a quote inside a quoted field.
+ */
+public class CsvBeerRecordReader implements BeerRecordReader {
+
+    private static final String HEADER = "name,brand,max,quantity";
+    private static final int COLUMNS = 4;
+
+    private final BufferedReader reader;
+    private long line;
+    private boolean started;
+
+    public CsvBeerRecordReader(BufferedReader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    public BeerRecord next() throws IOException {
+        String text;
+        do {
+            text = reader.readLine();
+            line++;
+            if (text != null && line == 1 && text.startsWith(BeerRecordReader.BYTE_ORDER_MARK))
+                text = text.substring(1);
+        } while (text != null && (text.isBlank() || isHeader(text)));
+        if (text == null)
+            return null;
+
+        final List<String> fields = split(text);
+        if (fields == null)
+            return BeerRecord.failed(line, "Unterminated quoted field");
+        if (fields.size() != COLUMNS)
+            return BeerRecord.failed(line, "Expected " + COLUMNS + " columns (" + HEADER + ") but found " + fields.size());
+        try {
+            return BeerRecord.parsed(line, new BeerDTO(null,
+                    fields.get(0),
+                    fields.get(1),
+                    parseInteger(fields.get(2)),
+                    parseInteger(fields.get(3))));
+        } catch (NumberFormatException e) {
+            return BeerRecord.failed(line, "max and quantity must be integers");
+        }
+    }
+
+    private boolean isHeader(String text) {
+        if (started)
+            return false;
+        started = true;
+        return text.trim().equalsIgnoreCase(HEADER);
+    }
+
+    private Integer parseInteger(String field) {
+        return field.isBlank() ? null : Integer.valueOf(field.trim());
+    }
+
+    private List<String> split(String text) {
+        final List<String> fields = new ArrayList<>(COLUMNS);
+        final StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted)
+            return null;
+        fields.add(field.toString());
+        return fields;
+    }
+
+}
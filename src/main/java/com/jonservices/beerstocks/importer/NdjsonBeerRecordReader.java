@@ -0,0 +1,42 @@
+package com.jonservices.beerstocks.importer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.jonservices.beerstocks.data.dto.BeerDTO;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+public class NdjsonBeerRecordReader implements BeerRecordReader {
+
+    private final BufferedReader reader;
+    private final ObjectReader beerReader;
+    private long line;
+
+    public NdjsonBeerRecordReader(BufferedReader reader, ObjectMapper objectMapper) {
+        this.reader = reader;
+        this.beerReader = objectMapper.readerFor(BeerDTO.class);
+    }
+
+    @Override
+    public BeerRecord next() throws IOException {
+        String text;
+        do {
+            text = reader.readLine();
+            line++;
+            if (text != null && line == 1 && text.startsWith(BeerRecordReader.BYTE_ORDER_MARK))
+                text = text.substring(1);
+        } while (text != null && text.isBlank());
+        if (text == null)
+            return null;
+        try {
+            final BeerDTO beer = beerReader.readValue(text);
+            beer.setId(null);
+            return BeerRecord.parsed(line, beer);
+        } catch (JsonProcessingException e) {
+            return BeerRecord.failed(line, "Invalid JSON: " + e.getOriginalMessage());
+        }
+    }
+
+}
@@ -0,0 +1,15 @@
+package com.jonservices.beerstocks.mapper;
+
+import com.jonservices.beerstocks.data.dto.StockMovementRecordDTO;
+import com.jonservices.beerstocks.data.model.StockMovement;
+import org.mapstruct.Mapper;
+import org.mapstruct.factory.Mappers;
+
+@Mapper
+public interface StockMovementMapper {
+
+    StockMovementMapper INSTANCE = Mappers.getMapper(StockMovementMapper.class);
+
+    StockMovementRecordDTO toDTO(StockMovement stockMovement);
+
+}
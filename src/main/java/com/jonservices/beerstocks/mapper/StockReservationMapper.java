@@ -0,0 +1,15 @@
+package com.jonservices.beerstocks.mapper;
+
+import com.jonservices.beerstocks.data.dto.StockReservationDTO;
+import com.jonservices.beerstocks.data.model.StockReservation;
+import org.mapstruct.Mapper;
+import org.mapstruct.factory.Mappers;
+
+@Mapper
+public interface StockReservationMapper {
+
+    StockReservationMapper INSTANCE = Mappers.getMapper(StockReservationMapper.class);
+
+    StockReservationDTO toDTO(StockReservation stockReservation);
+
+}
@@ -0,0 +1,31 @@
+package com.jonservices.beerstocks.repository;
+
+import com.jonservices.beerstocks.data.dto.BeerDTO;
+import com.jonservices.beerstocks.data.model.Beer;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Read paths that build {@link BeerDTO}s straight from the query results, without managed {@link Beer} entities.
+ */
+public interface BeerProjectionRepository {
+
+    List<BeerDTO> findAllAsDTO(Specification<Beer> specification, Sort sort);
+
+    /**
+     * Finds beers whose lower cased name is in the informed range, which lets the database walk the
+     * name_normalized index instead of scanning the table.
+     */
+    List<BeerDTO> searchByNormalizedNameBetween(String from, String to, int limit);
+
+    /**
+     * Atomically applies a stock delta, only when the resulting quantity stays between 0 and the beer's max,
+     * and returns the updated beer from the same statement. Empty means either the beer does not exist or the
+     * limit was exceeded.
+     */
+    Optional<BeerDTO> updateQuantity(Long id, int delta);
+
+}
@@ -0,0 +1,65 @@
+package com.jonservices.beerstocks.repository;
+
+import com.jonservices.beerstocks.data.dto.BeerDTO;
+import com.jonservices.beerstocks.data.model.Beer;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+import java.util.List;
+import java.util.Optional;
+
+import static org.springframework.data.jpa.repository.query.QueryUtils.toOrders;
+
+class BeerProjectionRepositoryImpl implements BeerProjectionRepository {
+
+    private static final String SEARCH_BY_NORMALIZED_NAME = "SELECT id, name, brand, max, quantity, version FROM beers " +
+            "WHERE name_normalized >= :from AND name_normalized < :to ORDER BY name_normalized LIMIT :limit";
+    // The final table of the UPDATE holds the rows as it left them, so no second query reads them back
+    private static final String UPDATE_QUANTITY = "SELECT id, name, brand, max, quantity, version FROM FINAL TABLE (" +
+            "UPDATE beers SET quantity = quantity + :delta, version = version + 1 " +
+            "WHERE id = :id AND quantity + :delta BETWEEN 0 AND max)";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<BeerDTO> findAllAsDTO(Specification<Beer> specification, Sort sort) {
+        final CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        final CriteriaQuery<BeerDTO> query = builder.createQuery(BeerDTO.class);
+        final Root<Beer> beer = query.from(Beer.class);
+        query.select(builder.construct(BeerDTO.class, beer.get("id"), beer.get("name"), beer.get("brand"),
+                beer.get("max"), beer.get("quantity"), beer.get("version")));
+        if (specification != null)
+            query.where(specification.toPredicate(beer, query, builder));
+        query.orderBy(toOrders(sort, beer, builder));
+        return entityManager.createQuery(query).getResultList();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<BeerDTO> searchByNormalizedNameBetween(String from, String to, int limit) {
+        return entityManager.createNativeQuery(SEARCH_BY_NORMALIZED_NAME, Beer.BEER_DTO_MAPPING)
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .setParameter("limit", limit)
+                .getResultList();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Optional<BeerDTO> updateQuantity(Long id, int delta) {
+        entityManager.flush();
+        final List<BeerDTO> beers = entityManager.createNativeQuery(UPDATE_QUANTITY, Beer.BEER_DTO_MAPPING)
+                .setParameter("delta", delta)
+                .setParameter("id", id)
+                .getResultList();
+        entityManager.clear(); // Managed copies of the beer no longer match its row
+        return beers.stream().findFirst();
+    }
+
+}
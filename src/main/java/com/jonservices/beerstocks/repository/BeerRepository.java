@@ -1,13 +1,64 @@
 package com.jonservices.beerstocks.repository;
 
+import com.jonservices.beerstocks.data.dto.BeerDTO;
 import com.jonservices.beerstocks.data.model.Beer;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 @Repository
-public interface BeerRepository extends JpaRepository<Beer, Long> {
+public interface BeerRepository extends JpaRepository<Beer, Long>, JpaSpecificationExecutor<Beer>,
+        BeerProjectionRepository {
+
+    /**
+     * Constructor expression that builds the DTO from the selected columns, so list reads neither hydrate
+     * managed entities nor go through the mapper.
+     */
+    String BEER_DTO = "new com.jonservices.beerstocks.data.dto.BeerDTO(b.id, b.name, b.brand, b.max, b.quantity, b.version)";
 
     Optional<Beer> findByName(String name);
+
+    List<Beer> findByNameIn(Collection<String> names);
+
+    @Query("SELECT b.name FROM Beer b WHERE b.name IN :names")
+    Set<String> findNamesIn(@Param("names") Collection<String> names);
+
+    @Query("SELECT " + BEER_DTO + " FROM Beer b")
+    List<BeerDTO> findAllAsDTO();
+
+    @Query(value = "SELECT * FROM beers WHERE quantity < max * CAST(:ratio AS DOUBLE PRECISION)", nativeQuery = true)
+    List<Beer> findByQuantityBelowRatioOfMax(@Param("ratio") double ratio);
+
+    @Query("SELECT b.brand AS brand, COUNT(b) AS skuCount, SUM(b.quantity) AS totalQuantity, SUM(b.max) AS totalCapacity " +
+            "FROM Beer b GROUP BY b.brand")
+    List<BrandTotals> sumByBrand();
+
+    @Query("SELECT " + BEER_DTO + " FROM Beer b WHERE b.id > :id ORDER BY b.id")
+    List<BeerDTO> findAsDTOByIdGreaterThan(@Param("id") Long id, Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT " + BEER_DTO + " FROM Beer b ORDER BY b.id")
+    Stream<BeerDTO> streamAllAsDTO();
+
+    /**
+     * Bumps the version of a beer, locking its row until the end of the transaction. Returns 0 when the beer
+     * does not exist.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Beer b SET b.version = b.version + 1 WHERE b.id = :id")
+    int incrementVersion(@Param("id") Long id);
 }
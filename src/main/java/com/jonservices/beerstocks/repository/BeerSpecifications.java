@@ -0,0 +1,61 @@
+package com.jonservices.beerstocks.repository;
+
+import com.jonservices.beerstocks.data.dto.BeerFilterDTO;
+import com.jonservices.beerstocks.data.model.Beer;
+import com.jonservices.beerstocks.exceptions.BeerSortNotSupportedException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Translates a {@link BeerFilterDTO} into a query. Brand and quantity conditions are plain comparisons on
+ * indexed columns, fill ratios compare the quantity with a fraction of the max.
+ */
+public final class BeerSpecifications {
+
+    private static final Set<String> SORTABLE_PROPERTIES = Set.of("id", "name", "brand", "max", "quantity");
+
+    private BeerSpecifications() {
+    }
+
+    public static Specification<Beer> of(BeerFilterDTO filter) {
+        final List<Specification<Beer>> specifications = new ArrayList<>();
+        if (filter.getBrand() != null)
+            specifications.add((beer, query, builder) -> builder.equal(beer.get("brand"), filter.getBrand()));
+        if (filter.getMinQuantity() != null)
+            specifications.add((beer, query, builder) -> builder.ge(beer.get("quantity"), filter.getMinQuantity()));
+        if (filter.getMaxQuantity() != null)
+            specifications.add((beer, query, builder) -> builder.le(beer.get("quantity"), filter.getMaxQuantity()));
+        if (filter.getMinFillRatio() != null)
+            specifications.add((beer, query, builder) -> builder.ge(beer.get("quantity"),
+                    builder.prod(beer.<Number>get("max"), builder.literal(filter.getMinFillRatio()))));
+        if (filter.getMaxFillRatio() != null)
+            specifications.add((beer, query, builder) -> builder.le(beer.get("quantity"),
+                    builder.prod(beer.<Number>get("max"), builder.literal(filter.getMaxFillRatio()))));
+        return specifications.stream().reduce(Specification::and).orElse(null);
+    }
+
+    /**
+     * Parses {@code property[,asc|desc]} orders separated by {@code ;}, defaulting to the id so that results have a stable order.
+     */
+    public static Sort sortOf(BeerFilterDTO filter) {
+        if (filter.getSort() == null || filter.getSort().isBlank())
+            return Sort.by("id");
+        final List<Sort.Order> orders = new ArrayList<>();
+        for (String sort : filter.getSort().split(";")) {
+            final String[] parts = sort.split(",");
+            final String property = parts[0].trim();
+            if (!SORTABLE_PROPERTIES.contains(property) || parts.length > 2)
+                throw new BeerSortNotSupportedException(sort);
+            final Sort.Direction direction = parts.length == 1 ?
+                    Sort.Direction.ASC :
+                    Sort.Direction.fromOptionalString(parts[1].trim()).orElseThrow(() -> new BeerSortNotSupportedException(sort));
+            orders.add(new Sort.Order(direction, property));
+        }
+        return Sort.by(orders);
+    }
+
+}
@@ -0,0 +1,40 @@
+package com.jonservices.beerstocks.repository;
+
+import com.jonservices.beerstocks.data.model.BeerStock;
+import com.jonservices.beerstocks.data.model.BeerStockId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface BeerStockRepository extends JpaRepository<BeerStock, BeerStockId> {
+
+    List<BeerStock> findByIdBeerIdOrderByIdLocationId(Long beerId);
+
+    /**
+     * Atomically applies a delta to the stock of a location, only when the resulting quantity still covers the
+     * reserved stock. Returns 0 when the location holds no stock of the beer yet or the stock is not enough.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE BeerStock s SET s.quantity = s.quantity + :delta, s.version = s.version + 1 " +
+            "WHERE s.id.beerId = :beerId AND s.id.locationId = :locationId AND s.quantity + :delta >= s.reserved")
+    int updateQuantity(@Param("beerId") Long beerId, @Param("locationId") String locationId, @Param("delta") int delta);
+
+    /**
+     * Atomically reserves stock of a location, only when enough of it is available. Returns 0 otherwise.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE BeerStock s SET s.reserved = s.reserved + :quantity, s.version = s.version + 1 " +
+            "WHERE s.id.beerId = :beerId AND s.id.locationId = :locationId AND s.quantity - s.reserved >= :quantity")
+    int reserve(@Param("beerId") Long beerId, @Param("locationId") String locationId, @Param("quantity") int quantity);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE BeerStock s SET s.reserved = s.reserved - :quantity, s.version = s.version + 1 " +
+            "WHERE s.id.beerId = :beerId AND s.id.locationId = :locationId")
+    int release(@Param("beerId") Long beerId, @Param("locationId") String locationId, @Param("quantity") int quantity);
+
+}
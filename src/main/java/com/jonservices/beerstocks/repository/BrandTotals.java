@@ -0,0 +1,16 @@
+package com.jonservices.beerstocks.repository;
+
+/**
+ * Stock totals of a brand, as aggregated by {@link BeerRepository#sumByBrand()}.
+ */
+public interface BrandTotals {
+
+    String getBrand();
+
+    long getSkuCount();
+
+    long getTotalQuantity();
+
+    long getTotalCapacity();
+
+}
@@ -0,0 +1,21 @@
+package com.jonservices.beerstocks.repository;
+
+import com.jonservices.beerstocks.data.model.StockMovement;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface StockMovementRepository extends JpaRepository<StockMovement, Long> {
+
+    @Query("SELECT m FROM StockMovement m WHERE m.beerId = :beerId AND m.createdAt >= :from AND m.createdAt < :to " +
+            "AND m.id > :cursor ORDER BY m.id")
+    List<StockMovement> findPage(@Param("beerId") Long beerId, @Param("from") Instant from, @Param("to") Instant to,
+                                 @Param("cursor") Long cursor, Pageable pageable);
+
+}
@@ -0,0 +1,29 @@
+package com.jonservices.beerstocks.repository;
+
+import com.jonservices.beerstocks.data.enums.ReservationStatus;
+import com.jonservices.beerstocks.data.model.StockReservation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StockReservationRepository extends JpaRepository<StockReservation, Long> {
+
+    Optional<StockReservation> findByIdAndBeerId(Long id, Long beerId);
+
+    List<StockReservation> findByStatus(ReservationStatus status);
+
+    /**
+     * Moves a reservation out of the informed status. Returns 0 when it is not in that status anymore, so
+     * confirming, cancelling and expiring the same reservation concurrently only succeeds once.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE StockReservation r SET r.status = :to WHERE r.id = :id AND r.status = :from")
+    int updateStatus(@Param("id") Long id, @Param("from") ReservationStatus from, @Param("to") ReservationStatus to);
+
+}
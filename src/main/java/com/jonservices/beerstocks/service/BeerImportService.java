@@ -0,0 +1,188 @@
+package com.jonservices.beerstocks.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jonservices.beerstocks.cache.BeerExistenceFilter;
+import com.jonservices.beerstocks.data.dto.BeerDTO;
+import com.jonservices.beerstocks.data.dto.ImportErrorDTO;
+import com.jonservices.beerstocks.data.dto.ImportSummaryDTO;
+import com.jonservices.beerstocks.data.enums.ImportFormat;
+import com.jonservices.beerstocks.data.model.BeerStock;
+import com.jonservices.beerstocks.events.BeerChangedEvent;
+import com.jonservices.beerstocks.exceptions.BeerAlreadyRegisteredException;
+import com.jonservices.beerstocks.exceptions.BeerStockExceededException;
+import com.jonservices.beerstocks.importer.BeerRecord;
+import com.jonservices.beerstocks.importer.BeerRecordReader;
+import com.jonservices.beerstocks.mapper.BeerMapper;
+import com.jonservices.beerstocks.repository.BeerRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Imports beers from a CSV or NDJSON stream in chunks: each chunk is checked for duplicated names with a
+ * single query and inserted with one JDBC batch in its own transaction, so memory depends on the chunk size
+ * and not on the size of the input.
+ */
+@Service
+@Profile("!memory")
+public class BeerImportService {
+
+    private static final String INSERT_BEER = "INSERT INTO beers (name, brand, max, quantity) VALUES (?, ?, ?, ?)";
+    private static final String INSERT_STOCK = "INSERT INTO beer_stock (beer_id, location_id, quantity) VALUES (?, ?, ?)";
+
+    private final BeerMapper beerMapper = BeerMapper.INSTANCE;
+    @Autowired
+    private BeerRepository beerRepository;
+    @Autowired
+    private BeerExistenceFilter beerExistenceFilter;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private Validator validator;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    @Value("${beerstocks.import.chunk-size:500}")
+    private int chunkSize = 500;
+    @Value("${beerstocks.import.max-reported-errors:100}")
+    private int maxReportedErrors = 100;
+
+    public ImportSummaryDTO importBeers(InputStream input, ImportFormat format) throws IOException {
+        final Summary summary = new Summary();
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        final BeerRecordReader records = BeerRecordReader.of(format, reader, objectMapper);
+        final List<BeerRecord> chunk = new ArrayList<>(chunkSize);
+        BeerRecord record;
+        while ((record = records.next()) != null) {
+            summary.received++;
+            final String error = record.getError() != null ? record.getError() : validate(record.getBeer());
+            if (error != null) {
+                summary.reject(record.getLine(), error);
+                continue;
+            }
+            chunk.add(record);
+            if (chunk.size() == chunkSize) {
+                insert(chunk, summary);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty())
+            insert(chunk, summary);
+        return summary.toDTO();
+    }
+
+    private String validate(BeerDTO beer) {
+        final Set<ConstraintViolation<BeerDTO>> violations = validator.validate(beer);
+        if (!violations.isEmpty())
+            return violations.stream()
+                    .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", "));
+        if (beer.getQuantity() > beer.getMax() || beer.getQuantity() < 0)
+            return new BeerStockExceededException(beer.getMax()).getMessage();
+        return null;
+    }
+
+    private void insert(List<BeerRecord> chunk, Summary summary) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> insertChunk(chunk, summary));
+        } catch (DataIntegrityViolationException e) {
+            // A name was registered concurrently: fall back to row by row inserts to find out which one
+            for (BeerRecord record : chunk)
+                transactionTemplate.executeWithoutResult(status -> insertChunk(List.of(record), summary));
+        }
+    }
+
+    private void insertChunk(List<BeerRecord> chunk, Summary summary) {
+        final Set<String> names = chunk.stream().map(record -> record.getBeer().getName()).collect(Collectors.toSet());
+        // Only names the existence filter can't rule out are looked up
+        final Set<String> candidateNames = names.stream().filter(beerExistenceFilter::mightContain).collect(Collectors.toSet());
+        final Set<String> registeredNames = candidateNames.isEmpty() ?
+                Collections.emptySet() :
+                beerRepository.findNamesIn(candidateNames);
+        final Set<String> chunkNames = new HashSet<>();
+        final List<BeerDTO> beersToInsert = new ArrayList<>(chunk.size());
+        final List<ImportErrorDTO> rejections = new ArrayList<>();
+        for (BeerRecord record : chunk) {
+            final String name = record.getBeer().getName();
+            if (registeredNames.contains(name) || !chunkNames.add(name))
+                rejections.add(new ImportErrorDTO(record.getLine(), new BeerAlreadyRegisteredException(name).getMessage()));
+            else
+                beersToInsert.add(record.getBeer());
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_BEER, beersToInsert, beersToInsert.size(), (statement, beer) -> {
+            statement.setString(1, beer.getName());
+            statement.setString(2, beer.getBrand());
+            statement.setInt(3, beer.getMax());
+            statement.setInt(4, beer.getQuantity());
+        });
+
+        // Rejections and counters are only recorded once the chunk went through, as it may be retried row by row
+        final Map<String, BeerDTO> insertedBeers = beerRepository.findByNameIn(chunkNames).stream()
+                .map(beerMapper::toDTO)
+                .collect(Collectors.toMap(BeerDTO::getName, Function.identity()));
+        final List<BeerDTO> createdBeers = beersToInsert.stream()
+                .map(beer -> insertedBeers.get(beer.getName()))
+                .collect(Collectors.toList());
+        createdBeers.forEach(beer -> beerExistenceFilter.add(beer.getId(), beer.getName()));
+        jdbcTemplate.batchUpdate(INSERT_STOCK, createdBeers, createdBeers.size(), (statement, beer) -> {
+            statement.setLong(1, beer.getId());
+            statement.setString(2, BeerStock.DEFAULT_LOCATION);
+            statement.setInt(3, beer.getQuantity());
+        });
+        createdBeers.forEach(beer -> eventPublisher.publishEvent(BeerChangedEvent.created(beer)));
+        rejections.forEach(rejection -> summary.reject(rejection.getLine(), rejection.getMessage()));
+        summary.imported += beersToInsert.size();
+    }
+
+    private class Summary {
+
+        private long received;
+        private long imported;
+        private long rejected;
+        private final List<ImportErrorDTO> errors = new ArrayList<>();
+
+        private void reject(long line, String message) {
+            rejected++;
+            if (errors.size() < maxReportedErrors)
+                errors.add(new ImportErrorDTO(line, message));
+        }
+
+        private ImportSummaryDTO toDTO() {
+            return ImportSummaryDTO.builder()
+                    .received(received)
+                    .imported(imported)
+                    .rejected(rejected)
+                    .errors(errors)
+                    .errorsTruncated(rejected > errors.size())
+                    .build();
+        }
+
+    }
+
+}
@@ -1,78 +1,201 @@
 package com.jonservices.beerstocks.service;
 
+import com.jonservices.beerstocks.cache.BeerCache;
+import com.jonservices.beerstocks.cache.BeerExistenceFilter;
 import com.jonservices.beerstocks.data.dto.BeerDTO;
+import com.jonservices.beerstocks.data.dto.BeerFilterDTO;
+import com.jonservices.beerstocks.data.dto.BeerPageDTO;
+import com.jonservices.beerstocks.data.dto.BeerStockDTO;
 import com.jonservices.beerstocks.data.dto.MessageResponseDTO;
+import com.jonservices.beerstocks.data.dto.StockTransferDTO;
 import com.jonservices.beerstocks.data.enums.StockAction;
-import com.jonservices.beerstocks.data.model.Beer;
+import com.jonservices.beerstocks.data.model.BeerStock;
+import com.jonservices.beerstocks.events.BeerChangedEvent;
+import com.jonservices.beerstocks.events.LocationStockChangedEvent;
+import com.jonservices.beerstocks.events.StockTransferredEvent;
 import com.jonservices.beerstocks.exceptions.BeerAlreadyRegisteredException;
 import com.jonservices.beerstocks.exceptions.BeerNotFoundException;
 import com.jonservices.beerstocks.exceptions.BeerStockExceededException;
-import com.jonservices.beerstocks.mapper.BeerMapper;
-import com.jonservices.beerstocks.repository.BeerRepository;
+import com.jonservices.beerstocks.stock.StockWriteBehindBuffer;
+import com.jonservices.beerstocks.store.BeerStore;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
 public class BeerService {
 
-    private final BeerMapper beerMapper = BeerMapper.INSTANCE;
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+    public static final int DEFAULT_SEARCH_LIMIT = 10;
+    public static final int MAX_SEARCH_LIMIT = 50;
+
+    @Autowired
+    private BeerStore beerStore;
+    @Autowired
+    private BeerCache beerCache;
+    @Autowired
+    private BeerExistenceFilter beerExistenceFilter;
     @Autowired
-    private BeerRepository beerRepository;
+    private ApplicationEventPublisher eventPublisher;
+    @Autowired
+    private OptimisticLockRetrier optimisticLockRetrier;
+    @Autowired(required = false)
+    private StockWriteBehindBuffer stockWriteBehindBuffer;
 
     public List<BeerDTO> findAll() {
-        return beerRepository.findAll().stream().map(beerMapper::toDTO).collect(Collectors.toList());
+        return beerStore.findAll().stream().map(this::withPendingStock).collect(Collectors.toList());
+    }
+
+    public List<BeerDTO> findAll(BeerFilterDTO filter) {
+        return beerStore.findAll(filter).stream()
+                .map(this::withPendingStock)
+                .collect(Collectors.toList());
+    }
+
+    public BeerPageDTO findPage(Long cursor, int limit) {
+        final int pageSize = Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+        // One extra row tells whether there is a next page without a count query
+        final List<BeerDTO> beers = beerStore.findPage(cursor == null ? 0L : cursor, pageSize + 1);
+        final boolean hasNext = beers.size() > pageSize;
+        final List<BeerDTO> content = beers.stream()
+                .limit(pageSize)
+                .map(this::withPendingStock)
+                .collect(Collectors.toList());
+        return BeerPageDTO.builder()
+                .content(content)
+                .nextCursor(hasNext ? content.get(pageSize - 1).getId() : null)
+                .build();
+    }
+
+    public void forEach(Consumer<BeerDTO> consumer) {
+        beerStore.forEach(beer -> consumer.accept(withPendingStock(beer)));
     }
 
     public BeerDTO findById(Long id) {
-        final Beer beer = verifyIfExists(id);
-        return beerMapper.toDTO(beer);
+        return withPendingStock(beerCache.getById(id, () -> verifyIfExists(id)));
     }
 
     public BeerDTO findByName(String name) {
-        final Beer beer = verifyIfExists(name);
-        return beerMapper.toDTO(beer);
+        return withPendingStock(beerCache.getByName(name, () -> verifyIfExists(name)));
     }
 
+    public List<BeerDTO> searchByPrefix(String prefix, int limit) {
+        return beerStore.searchByPrefix(prefix, Math.min(Math.max(limit, 1), MAX_SEARCH_LIMIT)).stream()
+                .map(this::withPendingStock)
+                .collect(Collectors.toList());
+    }
+
+    @Transactional
     public BeerDTO create(BeerDTO beerDTO) {
         verifyIfAlreadyRegistered(beerDTO.getName());
         verifyIfStockExceeded(beerDTO.getQuantity(), beerDTO.getMax());
-        final Beer beerToSave = beerMapper.toModel(beerDTO);
-        final Beer savedBeer = beerRepository.save(beerToSave);
-        return beerMapper.toDTO(savedBeer);
+        final BeerDTO savedBeerDTO = beerStore.create(beerDTO);
+        beerExistenceFilter.add(savedBeerDTO.getId(), savedBeerDTO.getName());
+        eventPublisher.publishEvent(BeerChangedEvent.created(savedBeerDTO));
+        return savedBeerDTO;
     }
 
+    /**
+     * Updates the stock of the default location. Buffered updates don't touch the database, so they run
+     * without a transaction.
+     */
     public BeerDTO updateStock(Long id, int quantity, StockAction action) {
-        final Beer beer = verifyIfExists(id);
-        final int updatedQuantity = action.equals(StockAction.INCREMENT) ?
-                beer.getQuantity() + quantity : // Increment
-                beer.getQuantity() - quantity; // Decrement
-        verifyIfStockExceeded(updatedQuantity, beer.getMax());
-        beer.setQuantity(updatedQuantity);
-        final Beer stockUpdatedBeer = beerRepository.save(beer);
-        return beerMapper.toDTO(stockUpdatedBeer);
+        final int delta = toDelta(quantity, action);
+        if (stockWriteBehindBuffer == null)
+            return optimisticLockRetrier.execute("stock update", () -> applyStockUpdate(id, BeerStock.DEFAULT_LOCATION, delta));
+        final BeerDTO bufferedBeerDTO = stockWriteBehindBuffer.apply(id, delta);
+        eventPublisher.publishEvent(BeerChangedEvent.bufferedStockUpdated(bufferedBeerDTO, delta));
+        return bufferedBeerDTO;
+    }
+
+    /**
+     * Updates the stock of a location along with the aggregate quantity of the beer, in one transaction.
+     */
+    @Transactional
+    public BeerDTO updateStock(Long id, String location, int quantity, StockAction action) {
+        claimStock(id);
+        return applyStockUpdate(id, location, toDelta(quantity, action));
+    }
+
+    public List<BeerStockDTO> findLocations(Long id) {
+        final List<BeerStockDTO> stocks = beerStore.findLocations(id);
+        if (stocks.isEmpty())
+            verifyIfExists(id);
+        return stocks;
+    }
+
+    /**
+     * Moves stock between two locations of a beer. The aggregate quantity does not change, so no stock
+     * change is published, only a location one and the transfer itself.
+     */
+    @Transactional
+    public List<BeerStockDTO> transfer(Long id, StockTransferDTO stockTransferDTO) {
+        claimStock(id);
+        final List<BeerStockDTO> stocks = beerStore.transfer(id, stockTransferDTO.getFrom(), stockTransferDTO.getTo(),
+                stockTransferDTO.getQuantity());
+        eventPublisher.publishEvent(new LocationStockChangedEvent(id));
+        eventPublisher.publishEvent(new StockTransferredEvent(id, stockTransferDTO.getFrom(), stockTransferDTO.getTo(),
+                stockTransferDTO.getQuantity(), stocks.stream().mapToInt(BeerStockDTO::getQuantity).sum()));
+        return stocks;
     }
 
     public MessageResponseDTO delete(Long id) {
-        verifyIfExists(id);
-        beerRepository.deleteById(id);
+        if (!beerExistenceFilter.mightContain(id))
+            throw new BeerNotFoundException("id", id); // Certainly not registered, no need to query
+        final BeerDTO beer = optimisticLockRetrier.execute("delete", () ->
+                beerStore.delete(id).orElseThrow(() -> new BeerNotFoundException("id", id)));
+        eventPublisher.publishEvent(BeerChangedEvent.deleted(beer));
         return MessageResponseDTO.builder().message("Deleted beer with id " + id).build();
     }
 
-    private Beer verifyIfExists(Object value) {
+    private BeerDTO applyStockUpdate(Long id, String location, int delta) {
+        final BeerDTO stockUpdatedBeerDTO = beerStore.updateStock(id, location, delta);
+        eventPublisher.publishEvent(BeerChangedEvent.stockUpdated(stockUpdatedBeerDTO, location, delta));
+        return stockUpdatedBeerDTO;
+    }
+
+    /**
+     * Makes the write-behind buffer, when enabled, hand the stock of the beer over to this transaction.
+     */
+    private void claimStock(Long id) {
+        if (stockWriteBehindBuffer != null)
+            stockWriteBehindBuffer.claim(id);
+    }
+
+    private int toDelta(int quantity, StockAction action) {
+        return action.equals(StockAction.INCREMENT) ?
+                quantity : // Increment
+                -quantity; // Decrement
+    }
+
+    private BeerDTO withPendingStock(BeerDTO beerDTO) {
+        return stockWriteBehindBuffer == null ? beerDTO : stockWriteBehindBuffer.overlay(beerDTO);
+    }
+
+    private BeerDTO verifyIfExists(Object value) {
         final String type = value instanceof Long ? "id" : "name";
         final Supplier<BeerNotFoundException> notFoundException = () -> new BeerNotFoundException(type, value);
+        final boolean mightExist = type.equals("id") ?
+                beerExistenceFilter.mightContain((Long) value) :
+                beerExistenceFilter.mightContain((String) value);
+        if (!mightExist)
+            throw notFoundException.get(); // Certainly not registered, no need to query
         if (type.equals("id"))
-            return beerRepository.findById((Long) value).orElseThrow(notFoundException);
+            return beerStore.findById((Long) value).orElseThrow(notFoundException);
         else
-            return beerRepository.findByName((String) value).orElseThrow(notFoundException);
+            return beerStore.findByName((String) value).orElseThrow(notFoundException);
     }
 
     private void verifyIfAlreadyRegistered(String name) {
-        if (beerRepository.findByName(name).isPresent())
+        // A name ruled out by the filter is new; the store still rejects concurrent registrations of the name
+        if (beerExistenceFilter.mightContain(name) && beerStore.findByName(name).isPresent())
             throw new BeerAlreadyRegisteredException(name);
     }
 
@@ -0,0 +1,82 @@
+package com.jonservices.beerstocks.service;
+
+import com.jonservices.beerstocks.exceptions.BeerConcurrentUpdateException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Runs an action in its own transaction and runs it again, after a bounded exponential backoff with jitter,
+ * whenever the commit fails on an optimistic lock conflict. Once the attempts are exhausted the conflict is
+ * reported as a {@link BeerConcurrentUpdateException}.
+ * <p>
+ * With the {@code memory} profile there is no transaction manager, and the action runs as is: the in-memory
+ * store never raises optimistic lock failures.
+ */
+@Component
+public class OptimisticLockRetrier {
+
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+
+    @Autowired
+    public OptimisticLockRetrier(@Nullable PlatformTransactionManager transactionManager,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${beerstocks.retry.max-attempts:5}") int maxAttempts,
+                                 @Value("${beerstocks.retry.initial-backoff:5ms}") Duration initialBackoff,
+                                 @Value("${beerstocks.retry.max-backoff:100ms}") Duration maxBackoff) {
+        this.transactionTemplate = transactionManager == null ? null : new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoff.toMillis();
+        this.maxBackoffMillis = maxBackoff.toMillis();
+    }
+
+    public <T> T execute(String operation, Supplier<T> action) {
+        if (transactionTemplate == null)
+            return action.get();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> action.get());
+            } catch (OptimisticLockingFailureException e) {
+                counter("beer.optimistic.conflicts", operation).increment();
+                if (attempt >= maxAttempts) {
+                    counter("beer.optimistic.exhausted", operation).increment();
+                    throw new BeerConcurrentUpdateException(operation);
+                }
+                counter("beer.optimistic.retries", operation).increment();
+                backoff(operation, attempt);
+            }
+        }
+    }
+
+    private void backoff(String operation, int attempt) {
+        final long ceiling = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attempt - 1, 20));
+        if (ceiling <= 0)
+            return;
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1)); // Full jitter spreads out colliding retries
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BeerConcurrentUpdateException(operation);
+        }
+    }
+
+    private Counter counter(String name, String operation) {
+        return Counter.builder(name).tag("operation", operation).register(meterRegistry);
+    }
+
+}
@@ -0,0 +1,192 @@
+package com.jonservices.beerstocks.service;
+
+import com.jonservices.beerstocks.data.dto.StockBatchDTO;
+import com.jonservices.beerstocks.data.dto.StockBatchResultDTO;
+import com.jonservices.beerstocks.data.dto.StockMovementDTO;
+import com.jonservices.beerstocks.data.dto.StockMovementResultDTO;
+import com.jonservices.beerstocks.data.enums.BatchMode;
+import com.jonservices.beerstocks.data.enums.MovementStatus;
+import com.jonservices.beerstocks.data.enums.StockAction;
+import com.jonservices.beerstocks.data.model.Beer;
+import com.jonservices.beerstocks.data.model.BeerStock;
+import com.jonservices.beerstocks.data.model.BeerStockId;
+import com.jonservices.beerstocks.events.BeerChangedEvent;
+import com.jonservices.beerstocks.exceptions.BeerLocationStockExceededException;
+import com.jonservices.beerstocks.exceptions.BeerNotFoundException;
+import com.jonservices.beerstocks.exceptions.BeerStockExceededException;
+import com.jonservices.beerstocks.mapper.BeerMapper;
+import com.jonservices.beerstocks.repository.BeerRepository;
+import com.jonservices.beerstocks.repository.BeerStockRepository;
+import com.jonservices.beerstocks.stock.StockWriteBehindBuffer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+@Service
+@Profile("!memory")
+public class StockBatchService {
+
+    private static final String ATOMIC_ROLLBACK_MESSAGE = "Not applied because another movement of the atomic batch was rejected";
+
+    private final BeerMapper beerMapper = BeerMapper.INSTANCE;
+    @Autowired
+    private BeerRepository beerRepository;
+    @Autowired
+    private BeerStockRepository beerStockRepository;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    @Autowired
+    private OptimisticLockRetrier optimisticLockRetrier;
+    @Autowired(required = false)
+    private StockWriteBehindBuffer stockWriteBehindBuffer;
+
+    public StockBatchResultDTO updateStock(StockBatchDTO stockBatchDTO) {
+        // Versioned rows are read without locks; a concurrent update makes the commit fail and the batch run again
+        return optimisticLockRetrier.execute("stock batch", () -> applyBatch(stockBatchDTO));
+    }
+
+    private StockBatchResultDTO applyBatch(StockBatchDTO stockBatchDTO) {
+        final List<StockMovementDTO> movements = stockBatchDTO.getMovements();
+        final Set<Long> ids = movements.stream().map(StockMovementDTO::getId).collect(Collectors.toCollection(LinkedHashSet::new));
+        if (stockWriteBehindBuffer != null)
+            ids.forEach(stockWriteBehindBuffer::claim); // So that the rows read below hold the buffered deltas
+        final Map<Long, Beer> beers = beerRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Beer::getId, Function.identity()));
+        // Batches move the stock of the default location
+        final Map<Long, BeerStock> stocks = beerStockRepository.findAllById(ids.stream()
+                        .map(id -> new BeerStockId(id, BeerStock.DEFAULT_LOCATION))
+                        .collect(Collectors.toList())).stream()
+                .collect(Collectors.toMap(stock -> stock.getId().getBeerId(), Function.identity()));
+
+        final boolean atomic = stockBatchDTO.getMode() == BatchMode.ATOMIC;
+        final Map<Integer, String> failures = atomic ?
+                checkMerged(movements, beers, stocks) :
+                checkInOrder(movements, beers, stocks);
+        final boolean rolledBack = atomic && !failures.isEmpty();
+        if (!rolledBack)
+            acceptedDeltas(movements, failures).forEach((id, delta) -> {
+                final Beer beer = beers.get(id);
+                beer.setQuantity(beer.getQuantity() + delta); // Flushed as one JDBC batch on commit
+                final BeerStock stock = stocks.get(id);
+                if (stock != null)
+                    stock.setQuantity(stock.getQuantity() + delta);
+                else
+                    beerStockRepository.save(BeerStock.of(id, BeerStock.DEFAULT_LOCATION, delta));
+                eventPublisher.publishEvent(BeerChangedEvent.stockUpdated(beerMapper.toDTO(beer), delta));
+            });
+
+        final List<StockMovementResultDTO> results = IntStream.range(0, movements.size())
+                .mapToObj(index -> toResult(movements.get(index), beers.get(movements.get(index).getId()),
+                        failures.get(index), rolledBack))
+                .collect(Collectors.toList());
+        final int applied = (int) results.stream().filter(result -> result.getStatus() == MovementStatus.APPLIED).count();
+        return StockBatchResultDTO.builder()
+                .mode(stockBatchDTO.getMode())
+                .applied(applied)
+                .rejected(results.size() - applied)
+                .results(results)
+                .build();
+    }
+
+    /**
+     * Atomic batches are applied as a whole, so only the merged delta of each beer has to fit. When it doesn't,
+     * every movement of the beer is rejected.
+     */
+    private Map<Integer, String> checkMerged(List<StockMovementDTO> movements, Map<Long, Beer> beers, Map<Long, BeerStock> stocks) {
+        final Map<Long, String> failuresById = new HashMap<>();
+        mergeDeltas(movements, index -> true).forEach((id, delta) -> {
+            final String failure = failureOf(id, beers.get(id), stocks.get(id), 0, delta);
+            if (failure != null)
+                failuresById.put(id, failure);
+        });
+        final Map<Integer, String> failures = new HashMap<>();
+        for (int index = 0; index < movements.size(); index++) {
+            final String failure = failuresById.get(movements.get(index).getId());
+            if (failure != null)
+                failures.put(index, failure);
+        }
+        return failures;
+    }
+
+    /**
+     * Best effort movements are checked one by one, in order, against the quantity left by the ones accepted
+     * before them, so a rejected movement doesn't take the other movements of its beer down with it.
+     */
+    private Map<Integer, String> checkInOrder(List<StockMovementDTO> movements, Map<Long, Beer> beers, Map<Long, BeerStock> stocks) {
+        final Map<Long, Integer> acceptedDeltas = new HashMap<>();
+        final Map<Integer, String> failures = new HashMap<>();
+        for (int index = 0; index < movements.size(); index++) {
+            final Long id = movements.get(index).getId();
+            final int acceptedDelta = acceptedDeltas.getOrDefault(id, 0);
+            final int delta = deltaOf(movements.get(index));
+            final String failure = failureOf(id, beers.get(id), stocks.get(id), acceptedDelta, delta);
+            if (failure != null)
+                failures.put(index, failure);
+            else
+                acceptedDeltas.put(id, acceptedDelta + delta);
+        }
+        return failures;
+    }
+
+    private String failureOf(Long id, Beer beer, BeerStock stock, int acceptedDelta, int delta) {
+        if (beer == null)
+            return new BeerNotFoundException("id", id).getMessage();
+        if (isStockExceeded(beer.getQuantity() + acceptedDelta + delta, beer.getMax()))
+            return new BeerStockExceededException(beer.getMax()).getMessage();
+        if (availableOf(stock) + acceptedDelta + delta < 0)
+            return new BeerLocationStockExceededException(BeerStock.DEFAULT_LOCATION).getMessage();
+        return null;
+    }
+
+    private Map<Long, Integer> acceptedDeltas(List<StockMovementDTO> movements, Map<Integer, String> failures) {
+        return mergeDeltas(movements, index -> !failures.containsKey(index));
+    }
+
+    private Map<Long, Integer> mergeDeltas(List<StockMovementDTO> movements, IntPredicate included) {
+        final Map<Long, Integer> deltas = new LinkedHashMap<>();
+        for (int index = 0; index < movements.size(); index++)
+            if (included.test(index))
+                deltas.merge(movements.get(index).getId(), deltaOf(movements.get(index)), Integer::sum);
+        return deltas;
+    }
+
+    private int deltaOf(StockMovementDTO movement) {
+        return movement.getAction().equals(StockAction.INCREMENT) ?
+                movement.getQuantity() : // Increment
+                -movement.getQuantity(); // Decrement
+    }
+
+    private StockMovementResultDTO toResult(StockMovementDTO movement, Beer beer, String failure, boolean rolledBack) {
+        final MovementStatus status = failure != null ? MovementStatus.REJECTED :
+                rolledBack ? MovementStatus.NOT_APPLIED : MovementStatus.APPLIED;
+        return StockMovementResultDTO.builder()
+                .id(movement.getId())
+                .action(movement.getAction())
+                .quantity(movement.getQuantity())
+                .status(status)
+                .resultingQuantity(status == MovementStatus.APPLIED ? beer.getQuantity() : null)
+                .message(status == MovementStatus.NOT_APPLIED ? ATOMIC_ROLLBACK_MESSAGE : failure)
+                .build();
+    }
+
+    private int availableOf(BeerStock stock) {
+        return stock == null ? 0 : stock.getAvailable();
+    }
+
+    private boolean isStockExceeded(int quantity, int max) {
+        return quantity > max || quantity < 0;
+    }
+
+}
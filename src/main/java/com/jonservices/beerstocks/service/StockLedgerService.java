@@ -0,0 +1,90 @@
+package com.jonservices.beerstocks.service;
+
+import com.jonservices.beerstocks.data.dto.StockMovementPageDTO;
+import com.jonservices.beerstocks.data.dto.StockMovementRecordDTO;
+import com.jonservices.beerstocks.data.enums.BeerChangeType;
+import com.jonservices.beerstocks.data.enums.StockAction;
+import com.jonservices.beerstocks.data.model.StockMovement;
+import com.jonservices.beerstocks.events.BeerChangedEvent;
+import com.jonservices.beerstocks.events.StockTransferredEvent;
+import com.jonservices.beerstocks.mapper.StockMovementMapper;
+import com.jonservices.beerstocks.repository.StockMovementRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Append-only ledger of stock movements, for audit. Every committed stock update appends one movement in
+ * the transaction of the update itself, so the ledger and {@code beers.quantity} never disagree. Updates
+ * buffered by the write-behind mode are not in the database yet; its flush appends their movements in the
+ * transaction that writes their deltas.
+ * <p>
+ * Each movement records its location, and a transfer is appended as a decrement of its source and an
+ * increment of its destination, so the stock of every location can be rebuilt from the ledger.
+ */
+@Service
+@Profile("!memory")
+public class StockLedgerService {
+
+    private static final Instant END_OF_TIME = Instant.parse("9999-12-31T23:59:59Z");
+
+    private final StockMovementMapper stockMovementMapper = StockMovementMapper.INSTANCE;
+    @Autowired
+    private StockMovementRepository stockMovementRepository;
+    @Autowired
+    private BeerService beerService;
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onBeerChanged(BeerChangedEvent event) {
+        if (event.getType() != BeerChangeType.STOCK_UPDATED || event.getDelta() == 0 || event.isBuffered())
+            return;
+        append(event.getBeer().getId(), event.getLocation(), event.getDelta(), event.getBeer().getQuantity(), Instant.now());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onStockTransferred(StockTransferredEvent event) {
+        final Instant at = Instant.now();
+        append(event.getBeerId(), event.getFrom(), -event.getQuantity(), event.getBeerQuantity(), at);
+        append(event.getBeerId(), event.getTo(), event.getQuantity(), event.getBeerQuantity(), at);
+    }
+
+    public StockMovementPageDTO findPage(Long beerId, Instant from, Instant to, Long cursor, int limit) {
+        final int pageSize = Math.min(Math.max(limit, 1), BeerService.MAX_PAGE_SIZE);
+        // One extra row tells whether there is a next page without a count query
+        final List<StockMovement> movements = stockMovementRepository.findPage(beerId,
+                from == null ? Instant.EPOCH : from,
+                to == null ? END_OF_TIME : to,
+                cursor == null ? 0L : cursor,
+                PageRequest.of(0, pageSize + 1));
+        if (movements.isEmpty())
+            beerService.findById(beerId); // Tells an unknown beer from a beer without movements in the range
+        final boolean hasNext = movements.size() > pageSize;
+        final List<StockMovementRecordDTO> content = movements.stream()
+                .limit(pageSize)
+                .map(stockMovementMapper::toDTO)
+                .collect(Collectors.toList());
+        return StockMovementPageDTO.builder()
+                .content(content)
+                .nextCursor(hasNext ? content.get(pageSize - 1).getId() : null)
+                .build();
+    }
+
+    private void append(Long beerId, String location, int delta, int quantity, Instant at) {
+        final StockMovement movement = new StockMovement(null,
+                beerId,
+                location,
+                delta > 0 ? StockAction.INCREMENT : StockAction.DECREMENT,
+                delta,
+                quantity,
+                at);
+        stockMovementRepository.save(movement); // A plain insert, the id is generated by the database
+    }
+
+}
@@ -0,0 +1,204 @@
+package com.jonservices.beerstocks.service;
+
+import com.jonservices.beerstocks.data.dto.StockReservationDTO;
+import com.jonservices.beerstocks.data.dto.StockReservationRequestDTO;
+import com.jonservices.beerstocks.data.enums.ReservationStatus;
+import com.jonservices.beerstocks.data.enums.StockAction;
+import com.jonservices.beerstocks.data.model.BeerStock;
+import com.jonservices.beerstocks.data.model.StockReservation;
+import com.jonservices.beerstocks.events.LocationStockChangedEvent;
+import com.jonservices.beerstocks.exceptions.BeerLocationStockExceededException;
+import com.jonservices.beerstocks.exceptions.BeerNotFoundException;
+import com.jonservices.beerstocks.exceptions.StockReservationNotActiveException;
+import com.jonservices.beerstocks.exceptions.StockReservationNotFoundException;
+import com.jonservices.beerstocks.mapper.StockReservationMapper;
+import com.jonservices.beerstocks.repository.BeerRepository;
+import com.jonservices.beerstocks.repository.BeerStockRepository;
+import com.jonservices.beerstocks.repository.StockReservationRepository;
+import com.jonservices.beerstocks.stock.StockWriteBehindBuffer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds stock of a location for a while, e.g. during a checkout, without keeping any database lock. A
+ * reservation only moves quantity to the reserved part of the location's stock, which decrements and
+ * transfers cannot take. Confirming it decrements the stock, cancelling or letting it expire gives it back.
+ * <p>
+ * Expiries wait in a {@link DelayQueue}, so the sweeper thread sleeps until the next one is due instead of
+ * scanning the table. Active reservations are queued again on startup.
+ */
+@Slf4j
+@Service
+@Profile("!memory")
+public class StockReservationService {
+
+    private static final Duration SWEEP_RETRY_DELAY = Duration.ofSeconds(1);
+
+    private final StockReservationMapper stockReservationMapper = StockReservationMapper.INSTANCE;
+    private final DelayQueue<Expiry> expiries = new DelayQueue<>();
+    @Autowired
+    private StockReservationRepository stockReservationRepository;
+    @Autowired
+    private BeerStockRepository beerStockRepository;
+    @Autowired
+    private BeerRepository beerRepository;
+    @Autowired
+    private BeerService beerService;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    @Autowired(required = false)
+    private StockWriteBehindBuffer stockWriteBehindBuffer;
+    @Value("${beerstocks.reservations.ttl:15m}")
+    private Duration ttl = Duration.ofMinutes(15);
+    private Thread sweeper;
+
+    @Transactional
+    public StockReservationDTO reserve(Long beerId, StockReservationRequestDTO request) {
+        final String location = request.getLocation() == null ? BeerStock.DEFAULT_LOCATION : request.getLocation();
+        claimStock(beerId);
+        if (beerStockRepository.reserve(beerId, location, request.getQuantity()) == 0) {
+            if (!beerRepository.existsById(beerId))
+                throw new BeerNotFoundException("id", beerId);
+            throw new BeerLocationStockExceededException(location);
+        }
+        eventPublisher.publishEvent(new LocationStockChangedEvent(beerId));
+        final StockReservation reservation = stockReservationRepository.save(new StockReservation(null, beerId,
+                location, request.getQuantity(), ReservationStatus.ACTIVE, Instant.now().plus(ttl)));
+        // Queued once committed, so the sweeper never looks for a reservation it cannot see yet
+        afterCommit(() -> expiries.add(new Expiry(reservation.getId(), reservation.getExpiresAt())));
+        return stockReservationMapper.toDTO(reservation);
+    }
+
+    @Transactional
+    public StockReservationDTO confirm(Long beerId, Long id) {
+        claimStock(beerId); // Before the stock row is locked, as the claim may flush it
+        final StockReservation reservation = close(beerId, id, ReservationStatus.CONFIRMED);
+        beerService.updateStock(beerId, reservation.getLocationId(), reservation.getQuantity(), StockAction.DECREMENT);
+        return stockReservationMapper.toDTO(reservation);
+    }
+
+    @Transactional
+    public StockReservationDTO cancel(Long beerId, Long id) {
+        return stockReservationMapper.toDTO(close(beerId, id, ReservationStatus.CANCELLED));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startSweeper() {
+        stockReservationRepository.findByStatus(ReservationStatus.ACTIVE)
+                .forEach(reservation -> expiries.add(new Expiry(reservation.getId(), reservation.getExpiresAt())));
+        final CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("stock-reservation-sweeper-");
+        threadFactory.setDaemon(true);
+        sweeper = threadFactory.newThread(this::sweep);
+        sweeper.start();
+    }
+
+    @PreDestroy
+    public void stopSweeper() {
+        if (sweeper != null)
+            sweeper.interrupt();
+    }
+
+    /**
+     * Releases the stock of a reservation that is still active. Does nothing when it was confirmed or
+     * cancelled meanwhile.
+     */
+    void expire(Long id) {
+        transactionTemplate.executeWithoutResult(status -> stockReservationRepository.findById(id).ifPresent(reservation -> {
+            if (stockReservationRepository.updateStatus(id, ReservationStatus.ACTIVE, ReservationStatus.EXPIRED) > 0) {
+                beerStockRepository.release(reservation.getBeerId(), reservation.getLocationId(), reservation.getQuantity());
+                eventPublisher.publishEvent(new LocationStockChangedEvent(reservation.getBeerId()));
+            }
+        }));
+    }
+
+    private StockReservation close(Long beerId, Long id, ReservationStatus status) {
+        final StockReservation reservation = stockReservationRepository.findByIdAndBeerId(id, beerId)
+                .orElseThrow(() -> new StockReservationNotFoundException(beerId, id));
+        if (reservation.getStatus() == ReservationStatus.ACTIVE && reservation.getExpiresAt().isBefore(Instant.now()))
+            throw new StockReservationNotActiveException(id, ReservationStatus.EXPIRED); // Not swept yet
+        if (stockReservationRepository.updateStatus(id, ReservationStatus.ACTIVE, status) == 0)
+            throw new StockReservationNotActiveException(id, stockReservationRepository.findById(id)
+                    .map(StockReservation::getStatus)
+                    .orElse(reservation.getStatus()));
+        beerStockRepository.release(beerId, reservation.getLocationId(), reservation.getQuantity());
+        eventPublisher.publishEvent(new LocationStockChangedEvent(beerId));
+        reservation.setStatus(status);
+        return reservation;
+    }
+
+    private void sweep() {
+        while (!Thread.currentThread().isInterrupted()) {
+            Expiry expiry = null;
+            try {
+                expiry = expiries.take();
+                expire(expiry.id);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                log.warn("Could not expire reservation {}, will retry", expiry.id, e);
+                expiries.add(new Expiry(expiry.id, Instant.now().plus(SWEEP_RETRY_DELAY)));
+            }
+        }
+    }
+
+    private void claimStock(Long beerId) {
+        if (stockWriteBehindBuffer != null)
+            stockWriteBehindBuffer.claim(beerId);
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static class Expiry implements Delayed {
+
+        private final Long id;
+        private final Instant expiresAt;
+
+        private Expiry(Long id, Instant expiresAt) {
+            this.id = id;
+            this.expiresAt = expiresAt;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(Duration.between(Instant.now(), expiresAt).toNanos(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return expiresAt.compareTo(((Expiry) other).expiresAt);
+        }
+
+    }
+
+}
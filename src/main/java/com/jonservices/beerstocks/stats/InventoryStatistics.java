@@ -0,0 +1,175 @@
+package com.jonservices.beerstocks.stats;
+
+import com.jonservices.beerstocks.data.dto.BeerDTO;
+import com.jonservices.beerstocks.data.dto.BrandStatsDTO;
+import com.jonservices.beerstocks.events.BeerChangedEvent;
+import com.jonservices.beerstocks.repository.BrandTotals;
+import com.jonservices.beerstocks.stock.StockWriteBehindBuffer;
+import com.jonservices.beerstocks.store.BeerStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+/**
+ * Stock totals per brand, loaded once at startup with a single aggregation and then updated in O(1) from every
+ * committed change.
+ * <p>
+ * A periodic reconciliation compares them with the store. Changes committed while it runs make totals
+ * differ for a moment, so a brand is only repaired when the same difference is seen in two runs in a row.
+ */
+@Slf4j
+@Component
+public class InventoryStatistics {
+
+    public static final String DRIFT_COUNTER = "beer.stats.drift";
+
+    private final ConcurrentMap<String, Totals> totalsByBrand = new ConcurrentHashMap<>();
+    private final BeerStore beerStore;
+    private final Counter driftCounter;
+    @Autowired(required = false)
+    private StockWriteBehindBuffer stockWriteBehindBuffer;
+    private Map<String, Drift> suspectedDrifts = Collections.emptyMap();
+
+    @Autowired
+    public InventoryStatistics(BeerStore beerStore, MeterRegistry meterRegistry) {
+        this.beerStore = beerStore;
+        driftCounter = meterRegistry.counter(DRIFT_COUNTER);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        beerStore.sumByBrand().forEach(brandTotals -> totalsByBrand.put(brandTotals.getBrand(), Totals.of(brandTotals)));
+    }
+
+    /**
+     * Totals of every brand ordered by brand, or of the informed brand only.
+     */
+    public List<BrandStatsDTO> findStats(String brand) {
+        if (brand != null) {
+            final Totals totals = totalsByBrand.get(brand);
+            return totals == null ? Collections.emptyList() : Collections.singletonList(totals.toDTO(brand));
+        }
+        return totalsByBrand.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .map(entry -> entry.getValue().toDTO(entry.getKey()))
+                .collect(Collectors.toList());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBeerChanged(BeerChangedEvent event) {
+        final BeerDTO beer = event.getBeer();
+        switch (event.getType()) {
+            case CREATED:
+                add(beer.getBrand(), new Totals(1, beer.getQuantity(), beer.getMax()));
+                break;
+            case STOCK_UPDATED:
+                add(beer.getBrand(), new Totals(0, event.getDelta(), 0));
+                break;
+            case DELETED:
+                add(beer.getBrand(), new Totals(-1, -beer.getQuantity(), -beer.getMax()));
+                break;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${beerstocks.stats.reconcile-interval-ms:300000}",
+            initialDelayString = "${beerstocks.stats.reconcile-interval-ms:300000}")
+    public synchronized void reconcile() {
+        if (stockWriteBehindBuffer != null && stockWriteBehindBuffer.hasPendingDeltas())
+            return; // The database is behind the totals until the deltas are flushed
+        final Map<String, Totals> actualTotals = beerStore.sumByBrand().stream()
+                .collect(Collectors.toMap(BrandTotals::getBrand, Totals::of));
+        final Map<String, Drift> drifts = new HashMap<>();
+        for (String brand : union(actualTotals.keySet(), totalsByBrand.keySet())) {
+            final Drift drift = new Drift(totalsByBrand.get(brand), actualTotals.get(brand));
+            if (!Objects.equals(drift.getExpected(), drift.getActual()))
+                drifts.put(brand, drift);
+        }
+        drifts.forEach((brand, drift) -> {
+            if (drift.equals(suspectedDrifts.get(brand))) {
+                log.warn("Repairing stock totals of brand {}: {} instead of {}", brand, drift.getActual(), drift.getExpected());
+                driftCounter.increment();
+                // Only replaced if nothing changed them since they were read
+                if (drift.getActual() == null)
+                    totalsByBrand.remove(brand, drift.getExpected());
+                else if (drift.getExpected() == null)
+                    totalsByBrand.putIfAbsent(brand, drift.getActual());
+                else
+                    totalsByBrand.replace(brand, drift.getExpected(), drift.getActual());
+            }
+        });
+        suspectedDrifts = drifts;
+    }
+
+    private void add(String brand, Totals delta) {
+        totalsByBrand.compute(brand, (key, totals) -> {
+            final Totals updatedTotals = totals == null ? delta : totals.plus(delta);
+            return updatedTotals.getSkuCount() == 0 ? null : updatedTotals;
+        });
+    }
+
+    private static Set<String> union(Set<String> first, Set<String> second) {
+        final Set<String> union = new HashSet<>(first);
+        union.addAll(second);
+        return union;
+    }
+
+    @Value
+    private static class Totals {
+
+        long skuCount;
+
+        long quantity;
+
+        long capacity;
+
+        private static Totals of(BrandTotals brandTotals) {
+            return new Totals(brandTotals.getSkuCount(), brandTotals.getTotalQuantity(), brandTotals.getTotalCapacity());
+        }
+
+        private Totals plus(Totals other) {
+            return new Totals(skuCount + other.skuCount, quantity + other.quantity, capacity + other.capacity);
+        }
+
+        private BrandStatsDTO toDTO(String brand) {
+            return BrandStatsDTO.builder()
+                    .brand(brand)
+                    .skuCount(skuCount)
+                    .totalQuantity(quantity)
+                    .totalCapacity(capacity)
+                    .fillRatio(capacity == 0 ? 0 : (double) quantity / capacity)
+                    .build();
+        }
+
+    }
+
+    /**
+     * Totals kept in memory against the ones in the store, null when the brand is missing on that side.
+     */
+    @Value
+    private static class Drift {
+
+        Totals expected;
+
+        Totals actual;
+
+    }
+
+}
@@ -0,0 +1,49 @@
+package com.jonservices.beerstocks.stock;
+
+import lombok.Getter;
+import lombok.Value;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sum of the stock deltas of a beer that are not in the database yet, with the number of operations
+ * they came from, by which the beer version is bumped when they are flushed, and the movements themselves,
+ * appended to the ledger by the same flush.
+ */
+@Getter
+class PendingDelta {
+
+    private int delta;
+
+    private int operations;
+
+    private final List<Movement> movements = new ArrayList<>();
+
+    void add(int delta, Instant at) {
+        this.delta += delta;
+        operations++;
+        movements.add(new Movement(delta, at));
+    }
+
+    /**
+     * Takes back a delta added before, when the record of a failed sync is read back from the journal.
+     */
+    void revoke(int delta, Instant at) {
+        if (movements.remove(new Movement(delta, at))) {
+            this.delta -= delta;
+            operations--;
+        }
+    }
+
+    @Value
+    static class Movement {
+
+        int delta;
+
+        Instant at;
+
+    }
+
+}
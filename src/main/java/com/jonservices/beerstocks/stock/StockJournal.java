@@ -0,0 +1,152 @@
+package com.jonservices.beerstocks.stock;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Append-only log of the stock deltas acknowledged by the write-behind buffer, split in numbered segments.
+ * <p>
+ * Every record is a beer id followed by a delta and the time it was accepted at, with the id negated when
+ * the record revokes a delta whose sync failed. Appends are only written to the current segment and
+ * {@link #sync(long)} forces them to disk, so concurrent callers share a single fsync instead of paying
+ * one each. A segment is rotated out when its deltas are flushed and deleted once they are in the database.
+ */
+class StockJournal implements Closeable {
+
+    private static final String SEGMENT_PREFIX = "stock-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final int RECORD_SIZE = Long.BYTES + Integer.BYTES + Long.BYTES;
+
+    private final Path directory;
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+    private final Object syncLock = new Object();
+    private FileChannel channel;
+    private long segment;
+    private long writtenPosition;
+    private volatile long syncedPosition;
+
+    StockJournal(Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory);
+    }
+
+    /**
+     * Numbers of the segments left on disk, oldest first.
+     */
+    List<Long> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Reads a segment back as the deltas per beer. A record cut short by a crash is ignored,
+     * as it was never synced and therefore never acknowledged.
+     */
+    Map<Long, PendingDelta> read(long segment) throws IOException {
+        final ByteBuffer content = ByteBuffer.wrap(Files.readAllBytes(pathOf(segment)));
+        final Map<Long, PendingDelta> deltas = new HashMap<>();
+        while (content.remaining() >= RECORD_SIZE) {
+            final long id = content.getLong();
+            final int delta = content.getInt();
+            final Instant at = Instant.ofEpochMilli(content.getLong());
+            if (id < 0)
+                deltas.computeIfAbsent(-id, key -> new PendingDelta()).revoke(delta, at);
+            else
+                deltas.computeIfAbsent(id, key -> new PendingDelta()).add(delta, at);
+        }
+        return deltas;
+    }
+
+    synchronized void open(long segment) throws IOException {
+        this.segment = segment;
+        channel = FileChannel.open(pathOf(segment), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Appends a delta to the current segment and returns the position to {@link #sync(long)} before
+     * acknowledging it.
+     */
+    synchronized long append(long id, int delta, Instant at) throws IOException {
+        return write(id, delta, at);
+    }
+
+    /**
+     * Appends a record cancelling a delta appended before, synced along with the next appends.
+     */
+    synchronized void revoke(long id, int delta, Instant at) throws IOException {
+        write(-id, delta, at);
+    }
+
+    private long write(long id, int delta, Instant at) throws IOException {
+        record.clear();
+        record.putLong(id).putInt(delta).putLong(at.toEpochMilli()).flip();
+        while (record.hasRemaining())
+            channel.write(record);
+        writtenPosition += RECORD_SIZE;
+        return writtenPosition;
+    }
+
+    void sync(long position) throws IOException {
+        if (syncedPosition >= position)
+            return;
+        synchronized (syncLock) {
+            if (syncedPosition >= position)
+                return;
+            final FileChannel currentChannel;
+            final long target;
+            synchronized (this) {
+                currentChannel = channel;
+                target = writtenPosition;
+            }
+            currentChannel.force(false);
+            syncedPosition = target;
+        }
+    }
+
+    /**
+     * Closes the current segment, durably, and opens the next one. Returns the number of the closed segment.
+     */
+    long rotate() throws IOException {
+        synchronized (syncLock) {
+            synchronized (this) {
+                final long closedSegment = segment;
+                channel.force(false);
+                channel.close();
+                syncedPosition = writtenPosition;
+                open(closedSegment + 1);
+                return closedSegment;
+            }
+        }
+    }
+
+    void delete(long segment) throws IOException {
+        Files.deleteIfExists(pathOf(segment));
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null)
+            channel.close();
+    }
+
+    private Path pathOf(long segment) {
+        return directory.resolve(SEGMENT_PREFIX + segment + SEGMENT_SUFFIX);
+    }
+
+}
@@ -0,0 +1,500 @@
+package com.jonservices.beerstocks.stock;
+
+import com.jonservices.beerstocks.cache.BeerCache;
+import com.jonservices.beerstocks.data.dto.BeerDTO;
+import com.jonservices.beerstocks.data.enums.BeerChangeType;
+import com.jonservices.beerstocks.data.enums.StockAction;
+import com.jonservices.beerstocks.data.model.BeerStock;
+import com.jonservices.beerstocks.events.BeerChangedEvent;
+import com.jonservices.beerstocks.events.LocationStockChangedEvent;
+import com.jonservices.beerstocks.exceptions.BeerConcurrentUpdateException;
+import com.jonservices.beerstocks.exceptions.BeerLocationStockExceededException;
+import com.jonservices.beerstocks.exceptions.BeerNotFoundException;
+import com.jonservices.beerstocks.exceptions.BeerStockExceededException;
+import com.jonservices.beerstocks.mapper.BeerMapper;
+import com.jonservices.beerstocks.repository.BeerRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Opt-in write-behind mode for stock updates, for beers whose row would otherwise become a write hotspot.
+ * <p>
+ * The stock of every beer being updated is kept in memory, where deltas are checked against 0 and the beer's
+ * max under a lock of that beer only. An accepted delta is appended to a {@link StockJournal} and only applied
+ * to the in-memory stock once synced, so a failed sync leaves nothing behind to flush. Until then it is in
+ * flight: the deltas accepted meanwhile must fit whether or not it lands, which lets concurrent updates of a
+ * beer share one fsync. Periodically the deltas accumulated per beer are written with one batch of
+ * UPDATEs, in the same transaction that appends the deltas to the stock movements ledger and records the
+ * flushed journal segment as checkpoint, so the ledger never runs ahead of the beers and replaying the journal
+ * after a crash never applies a segment twice.
+ * <p>
+ * Updates go to the default location, and each delta is written to both the beer and its default location.
+ * Other stock writers, such as stock batches, location scoped updates, transfers or reservations, check their
+ * limits against the database, so they {@link #claim} the beer first: its pending deltas are flushed before
+ * they read it, and it takes no delta until their transaction completes, after which its in-memory stock is
+ * reloaded with their changes. Changes that only release stock, like cancelled reservations, just leave the
+ * in-memory stock stale, and the next delta of a stale beer first flushes the pending deltas so that the stock
+ * is reloaded before the delta is checked. Never active with the {@code memory} profile, where there is no
+ * database write to defer.
+ */
+@Slf4j
+@Component
+@Profile("!memory")
+@ConditionalOnProperty(name = "beerstocks.write-behind.enabled", havingValue = "true")
+public class StockWriteBehindBuffer {
+
+    private static final String APPLY_DELTA = "UPDATE beers SET quantity = quantity + ?, version = version + ? WHERE id = ?";
+    private static final String APPLY_LOCATION_DELTA = "UPDATE beer_stock SET quantity = quantity + ?, version = version + 1 WHERE beer_id = ? AND location_id = ?";
+    private static final String READ_QUANTITIES = "SELECT id, quantity FROM beers WHERE id IN (%s)";
+    private static final String INSERT_MOVEMENT = "INSERT INTO stock_movements (beer_id, location_id, action, delta, quantity, created_at) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String READ_LOCATION_AVAILABLE = "SELECT quantity - reserved FROM beer_stock WHERE beer_id = ? AND location_id = ?";
+    private static final String READ_CHECKPOINT = "SELECT segment FROM stock_journal_checkpoint WHERE id = 1";
+    private static final String WRITE_CHECKPOINT = "UPDATE stock_journal_checkpoint SET segment = ? WHERE id = 1";
+
+    private final BeerMapper beerMapper = BeerMapper.INSTANCE;
+    private final ConcurrentMap<Long, PendingStock> stocks = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, Integer> claims = new ConcurrentHashMap<>();
+    private final ReadWriteLock rotationLock = new ReentrantReadWriteLock();
+    private final Deque<Segment> unflushedSegments = new ArrayDeque<>();
+    private final BeerRepository beerRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final BeerCache beerCache;
+    private final StockJournal journal;
+    private final ScheduledExecutorService flusher;
+
+    @Autowired
+    public StockWriteBehindBuffer(BeerRepository beerRepository,
+                                  JdbcTemplate jdbcTemplate,
+                                  TransactionTemplate transactionTemplate,
+                                  BeerCache beerCache,
+                                  @Value("${beerstocks.write-behind.journal-dir:stock-journal}") Path journalDirectory,
+                                  @Value("${beerstocks.write-behind.flush-interval:200ms}") Duration flushInterval) throws IOException {
+        this(beerRepository, jdbcTemplate, transactionTemplate, beerCache, new StockJournal(journalDirectory), flushInterval);
+    }
+
+    StockWriteBehindBuffer(BeerRepository beerRepository, JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                           BeerCache beerCache, StockJournal journal, Duration flushInterval) throws IOException {
+        this.beerRepository = beerRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        // Flushes also run on request threads, which must not have them join their own transaction
+        this.transactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.beerCache = beerCache;
+        this.journal = journal;
+        recover();
+        final CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("stock-write-behind-");
+        threadFactory.setDaemon(true);
+        flusher = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        flusher.scheduleWithFixedDelay(this::flush, flushInterval.toMillis(), flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Applies a delta in memory and returns the beer with its resulting stock, once the delta is durable.
+     */
+    public BeerDTO apply(Long id, int delta) {
+        // Held until the delta lands, so a rotation never takes a segment whose deltas are still in flight
+        rotationLock.readLock().lock();
+        try {
+            final Instant at = Instant.now();
+            PendingStock stock;
+            long journalPosition;
+            while (true) {
+                stock = stocks.computeIfAbsent(id, this::load);
+                synchronized (stock) {
+                    if (!stock.live)
+                        continue; // Evicted meanwhile, reload it
+                    if (claims.containsKey(id))
+                        throw new BeerConcurrentUpdateException("stock update"); // Another writer is changing it
+                    if (!stock.stale) {
+                        stock.checkLimits(delta);
+                        journalPosition = journal.append(id, delta, at);
+                        stock.addInFlight(delta);
+                        break;
+                    }
+                }
+                reload(stock);
+            }
+            try {
+                journal.sync(journalPosition);
+            } catch (IOException e) {
+                synchronized (stock) {
+                    stock.removeInFlight(delta);
+                }
+                revoke(id, delta, at, e);
+                throw e;
+            }
+            synchronized (stock) {
+                stock.removeInFlight(delta);
+                stock.quantity += delta;
+                stock.locationAvailable += delta;
+                stock.version++;
+                stock.pending.add(delta, at);
+                return stock.toDTO();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            rotationLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns a copy of the beer with the stock that is not flushed yet, or the beer itself when it has none.
+     * The informed beer is never modified, as it may be shared by the cache.
+     */
+    public BeerDTO overlay(BeerDTO beer) {
+        final PendingStock stock = stocks.get(beer.getId());
+        if (stock == null)
+            return beer;
+        synchronized (stock) {
+            return stock.live ? stock.toDTO() : beer;
+        }
+    }
+
+    /**
+     * Tells whether some acknowledged delta is not in the database yet.
+     */
+    public boolean hasPendingDeltas() {
+        synchronized (this) {
+            if (!unflushedSegments.isEmpty())
+                return true;
+        }
+        return stocks.values().stream().anyMatch(stock -> {
+            synchronized (stock) {
+                return stock.pending.getOperations() > 0;
+            }
+        });
+    }
+
+    /**
+     * Hands the stock of a beer over to another writer until its transaction completes. The pending deltas of
+     * the beer are flushed first, so the writer checks its limits against them, and the deltas of the beer
+     * are refused meanwhile. Must be called before the transaction writes to any beer, as the flush waits for
+     * the rows it updates.
+     */
+    public void claim(Long id) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive())
+            throw new IllegalStateException("Stock claims must be made inside a transaction");
+        claims.merge(id, 1, Integer::sum);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                release(id);
+            }
+        });
+        // Deltas taken before the claim are pending or in flight, and the flush rotation waits for the latter
+        if (hasPendingDeltas(id)) {
+            flush();
+            if (hasPendingDeltas(id))
+                throw new BeerConcurrentUpdateException("stock update"); // The flush failed, it is retried in background
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBeerChanged(BeerChangedEvent event) {
+        if (event.getType() == BeerChangeType.STOCK_UPDATED && !event.isBuffered()) {
+            markStale(event.getBeer().getId());
+        } else if (event.getType() == BeerChangeType.DELETED) {
+            final PendingStock stock = stocks.remove(event.getBeer().getId());
+            if (stock != null) {
+                synchronized (stock) {
+                    stock.live = false;
+                }
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLocationStockChanged(LocationStockChangedEvent event) {
+        markStale(event.getBeerId());
+    }
+
+    /**
+     * Writes every accumulated delta to the database. Runs on the flusher thread, before the next delta of a
+     * stale beer, and once more on shutdown.
+     */
+    synchronized void flush() {
+        try {
+            rotate();
+            while (!unflushedSegments.isEmpty()) {
+                final Segment segment = unflushedSegments.peek();
+                write(segment);
+                unflushedSegments.poll(); // Written, even if deleting its file fails, the checkpoint skips it on replay
+                journal.delete(segment.number);
+                segment.deltas.keySet().forEach(beerCache::evict);
+            }
+            evictIdleStocks();
+        } catch (IOException | RuntimeException e) {
+            // The segment stays in the journal and is retried on the next flush
+            log.warn("Could not flush stock deltas, will retry", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        flusher.shutdownNow();
+        flush();
+        journal.close();
+    }
+
+    private boolean hasPendingDeltas(Long id) {
+        final PendingStock stock = stocks.get(id);
+        if (stock != null) {
+            synchronized (stock) {
+                if (stock.pending.getOperations() > 0 || stock.inFlightOperations > 0)
+                    return true;
+            }
+        }
+        synchronized (this) {
+            return unflushedSegments.stream().anyMatch(segment -> segment.deltas.containsKey(id));
+        }
+    }
+
+    /**
+     * Lets the beer take deltas again, against its stock as left by the writer that claimed it.
+     */
+    private void release(Long id) {
+        markStale(id);
+        claims.computeIfPresent(id, (key, count) -> count == 1 ? null : count - 1);
+    }
+
+    private void markStale(Long id) {
+        final PendingStock stock = stocks.get(id);
+        if (stock != null) {
+            synchronized (stock) {
+                stock.stale = true;
+            }
+        }
+    }
+
+    /**
+     * Flushes the pending deltas, after which the stale stock is idle and evicted, so that it is loaded again.
+     * A stale stock takes no delta, so only the deltas in flight when it went stale may delay its eviction,
+     * and the flush rotation waits for them to land.
+     */
+    private void reload(PendingStock stock) {
+        rotationLock.readLock().unlock();
+        try {
+            flush();
+        } finally {
+            rotationLock.readLock().lock();
+        }
+        synchronized (stock) {
+            if (stock.live)
+                throw new BeerConcurrentUpdateException("stock update"); // The flush failed, it is retried in background
+        }
+    }
+
+    /**
+     * Cancels the record of a delta that was never acknowledged, in case it reached the disk anyway and the
+     * journal is replayed before its segment is flushed.
+     */
+    private void revoke(Long id, int delta, Instant at, IOException syncFailure) {
+        try {
+            journal.revoke(id, delta, at);
+        } catch (IOException e) {
+            syncFailure.addSuppressed(e);
+        }
+    }
+
+    private void rotate() throws IOException {
+        rotationLock.writeLock().lock();
+        try {
+            final Map<Long, PendingDelta> deltas = new HashMap<>();
+            stocks.forEach((id, stock) -> {
+                synchronized (stock) {
+                    if (stock.pending.getOperations() > 0) {
+                        deltas.put(id, stock.pending);
+                        stock.pending = new PendingDelta();
+                    }
+                }
+            });
+            if (!deltas.isEmpty())
+                unflushedSegments.add(new Segment(journal.rotate(), deltas));
+        } finally {
+            rotationLock.writeLock().unlock();
+        }
+    }
+
+    private void write(Segment segment) {
+        final List<Object[]> updates = new ArrayList<>(segment.deltas.size());
+        final List<Object[]> locationUpdates = new ArrayList<>(segment.deltas.size());
+        segment.deltas.forEach((id, pendingDelta) -> {
+            updates.add(new Object[]{pendingDelta.getDelta(), pendingDelta.getOperations(), id});
+            locationUpdates.add(new Object[]{pendingDelta.getDelta(), id, BeerStock.DEFAULT_LOCATION});
+        });
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(APPLY_DELTA, updates);
+            jdbcTemplate.batchUpdate(APPLY_LOCATION_DELTA, locationUpdates);
+            jdbcTemplate.batchUpdate(INSERT_MOVEMENT, movementsOf(segment));
+            jdbcTemplate.update(WRITE_CHECKPOINT, segment.number);
+        });
+    }
+
+    /**
+     * Ledger rows of the segment's movements. Their resulting quantities are worked back from the quantity of
+     * the beer once the segment is applied, so the last movement of a beer always matches its row.
+     */
+    private List<Object[]> movementsOf(Segment segment) {
+        final List<Long> ids = new ArrayList<>(segment.deltas.keySet());
+        if (ids.isEmpty())
+            return Collections.emptyList();
+        final Map<Long, Integer> quantities = new HashMap<>();
+        jdbcTemplate.query(String.format(READ_QUANTITIES, String.join(",", Collections.nCopies(ids.size(), "?"))),
+                resultSet -> {
+                    quantities.put(resultSet.getLong("id"), resultSet.getInt("quantity"));
+                }, ids.toArray());
+        final List<Object[]> movements = new ArrayList<>();
+        segment.deltas.forEach((id, pendingDelta) -> {
+            final Integer quantity = quantities.get(id);
+            if (quantity == null)
+                return; // Deleted meanwhile
+            int resultingQuantity = quantity - pendingDelta.getDelta();
+            for (PendingDelta.Movement movement : pendingDelta.getMovements()) {
+                resultingQuantity += movement.getDelta();
+                movements.add(new Object[]{id,
+                        BeerStock.DEFAULT_LOCATION,
+                        (movement.getDelta() > 0 ? StockAction.INCREMENT : StockAction.DECREMENT).name(),
+                        movement.getDelta(),
+                        resultingQuantity,
+                        Timestamp.from(movement.getAt())});
+            }
+        });
+        return movements;
+    }
+
+    /**
+     * Drops the in-memory stock of beers without pending deltas, so that they are reloaded with any change
+     * made by other writers. Only done once the database holds every flushed delta.
+     */
+    private void evictIdleStocks() {
+        stocks.forEach((id, stock) -> {
+            synchronized (stock) {
+                if (stock.pending.getOperations() == 0 && stock.inFlightOperations == 0) {
+                    stock.live = false;
+                    stocks.remove(id, stock);
+                }
+            }
+        });
+    }
+
+    private void recover() throws IOException {
+        final Long checkpoint = jdbcTemplate.queryForObject(READ_CHECKPOINT, Long.class);
+        long lastSegment = checkpoint == null ? 0 : checkpoint;
+        for (Long segment : journal.segments()) {
+            if (segment > lastSegment) {
+                write(new Segment(segment, journal.read(segment)));
+                lastSegment = segment;
+            }
+            journal.delete(segment);
+        }
+        journal.open(lastSegment + 1);
+    }
+
+    private PendingStock load(Long id) {
+        final BeerDTO beer = beerMapper.toDTO(beerRepository.findById(id)
+                .orElseThrow(() -> new BeerNotFoundException("id", id)));
+        final List<Integer> locationAvailable = jdbcTemplate.queryForList(READ_LOCATION_AVAILABLE, Integer.class,
+                id, BeerStock.DEFAULT_LOCATION);
+        return new PendingStock(beer, locationAvailable.isEmpty() ? 0 : locationAvailable.get(0));
+    }
+
+    private static class PendingStock {
+
+        private final BeerDTO beer;
+        private int quantity;
+        private int locationAvailable;
+        private long version;
+        private PendingDelta pending = new PendingDelta();
+        private int inFlightIncrease;
+        private int inFlightDecrease;
+        private int inFlightOperations;
+        private boolean live = true;
+        private boolean stale;
+
+        private PendingStock(BeerDTO beer, int locationAvailable) {
+            this.beer = beer;
+            this.quantity = beer.getQuantity();
+            this.locationAvailable = locationAvailable;
+            this.version = beer.getVersion() == null ? 0 : beer.getVersion();
+        }
+
+        /**
+         * Checks the delta against every stock the deltas in flight may leave behind, as any of them may fail.
+         */
+        private void checkLimits(int delta) {
+            if (quantity + inFlightDecrease + delta < 0 || quantity + inFlightIncrease + delta > beer.getMax())
+                throw new BeerStockExceededException(beer.getMax());
+            if (locationAvailable + inFlightDecrease + delta < 0)
+                throw new BeerLocationStockExceededException(BeerStock.DEFAULT_LOCATION);
+        }
+
+        private void addInFlight(int delta) {
+            if (delta > 0)
+                inFlightIncrease += delta;
+            else
+                inFlightDecrease += delta;
+            inFlightOperations++;
+        }
+
+        private void removeInFlight(int delta) {
+            if (delta > 0)
+                inFlightIncrease -= delta;
+            else
+                inFlightDecrease -= delta;
+            inFlightOperations--;
+        }
+
+        private BeerDTO toDTO() {
+            return new BeerDTO(beer.getId(), beer.getName(), beer.getBrand(), beer.getMax(), quantity, version);
+        }
+
+    }
+
+    private static class Segment {
+
+        private final long number;
+        private final Map<Long, PendingDelta> deltas;
+
+        private Segment(long number, Map<Long, PendingDelta> deltas) {
+            this.number = number;
+            this.deltas = deltas;
+        }
+
+    }
+
+}
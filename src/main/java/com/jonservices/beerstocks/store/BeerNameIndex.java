@@ -0,0 +1,135 @@
+package com.jonservices.beerstocks.store;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Open addressing hash index from beer names to the slots of {@link InMemoryBeerStore}, probed linearly over
+ * two parallel arrays, so lookups neither allocate nor follow node pointers.
+ * <p>
+ * Lookups read optimistically and only take the read lock when a write ran meanwhile. Removed names leave a
+ * tombstone behind, cleared when the table is rehashed.
+ */
+final class BeerNameIndex {
+
+    static final int ABSENT = -1;
+
+    private static final String TOMBSTONE = new String("<removed>");
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final double MAX_LOAD = 0.6;
+
+    private final StampedLock lock = new StampedLock();
+    private String[] keys = new String[INITIAL_CAPACITY];
+    private int[] slots = new int[INITIAL_CAPACITY];
+    private int size;
+    private int tombstones;
+
+    int get(String name) {
+        final long stamp = lock.tryOptimisticRead();
+        final String[] currentKeys = keys;
+        final int[] currentSlots = slots;
+        // A resize may have replaced one array but not yet the other, the validation below fails then
+        if (currentKeys.length == currentSlots.length) {
+            final int slot = probe(currentKeys, currentSlots, name);
+            if (lock.validate(stamp))
+                return slot;
+        }
+        final long readStamp = lock.readLock();
+        try {
+            return probe(keys, slots, name);
+        } finally {
+            lock.unlockRead(readStamp);
+        }
+    }
+
+    /**
+     * Maps the name to the slot unless it is already mapped, returning the slot it is mapped to.
+     */
+    int putIfAbsent(String name, int slot) {
+        final long stamp = lock.writeLock();
+        try {
+            if (size + tombstones + 1 > keys.length * MAX_LOAD)
+                rehash(size + 1 > keys.length * MAX_LOAD / 2 ? keys.length * 2 : keys.length);
+            final int mask = keys.length - 1;
+            int firstTombstone = -1;
+            for (int i = indexOf(name, mask); ; i = (i + 1) & mask) {
+                final String key = keys[i];
+                if (key == null) {
+                    final int target = firstTombstone == -1 ? i : firstTombstone;
+                    if (firstTombstone != -1)
+                        tombstones--;
+                    keys[target] = name;
+                    slots[target] = slot;
+                    size++;
+                    return slot;
+                }
+                if (key == TOMBSTONE) {
+                    if (firstTombstone == -1)
+                        firstTombstone = i;
+                } else if (key.equals(name)) {
+                    return slots[i];
+                }
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    void remove(String name, int slot) {
+        final long stamp = lock.writeLock();
+        try {
+            final int mask = keys.length - 1;
+            for (int i = indexOf(name, mask); keys[i] != null; i = (i + 1) & mask) {
+                if (keys[i] != TOMBSTONE && keys[i].equals(name)) {
+                    if (slots[i] == slot) {
+                        keys[i] = TOMBSTONE;
+                        size--;
+                        tombstones++;
+                    }
+                    return;
+                }
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private static int probe(String[] keys, int[] slots, String name) {
+        final int mask = keys.length - 1;
+        int i = indexOf(name, mask);
+        // Bounded, as a concurrent write may leave no empty key on the way while the read is optimistic
+        for (int probes = 0; probes < keys.length; probes++, i = (i + 1) & mask) {
+            final String key = keys[i];
+            if (key == null)
+                return ABSENT;
+            if (key != TOMBSTONE && key.equals(name))
+                return slots[i];
+        }
+        return ABSENT;
+    }
+
+    private void rehash(int capacity) {
+        final String[] oldKeys = keys;
+        final int[] oldSlots = slots;
+        final String[] newKeys = new String[capacity];
+        final int[] newSlots = new int[capacity];
+        final int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] == null || oldKeys[j] == TOMBSTONE)
+                continue;
+            int i = indexOf(oldKeys[j], mask);
+            while (newKeys[i] != null)
+                i = (i + 1) & mask;
+            newKeys[i] = oldKeys[j];
+            newSlots[i] = oldSlots[j];
+        }
+        keys = newKeys;
+        slots = newSlots;
+        tombstones = 0;
+    }
+
+    private static int indexOf(String name, int mask) {
+        final int hash = name.hashCode() * 0x9E3779B9; // Spreads names that only differ in their last chars
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+}
@@ -0,0 +1,83 @@
+package com.jonservices.beerstocks.store;
+
+import com.jonservices.beerstocks.data.dto.BeerDTO;
+import com.jonservices.beerstocks.data.dto.BeerFilterDTO;
+import com.jonservices.beerstocks.data.dto.BeerStockDTO;
+import com.jonservices.beerstocks.repository.BrandTotals;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Storage of the beers and of their stock per location. {@link JpaBeerStore} keeps them in the database and
+ * is the default, {@link InMemoryBeerStore} keeps them in the heap when the {@code memory} profile is active.
+ * <p>
+ * Stock updates are atomic in both: the aggregate quantity stays between 0 and the max of the beer and is the
+ * sum of its locations.
+ */
+public interface BeerStore {
+
+    List<BeerDTO> findAll();
+
+    /**
+     * Beers matching the filter, sorted as it asks for.
+     */
+    List<BeerDTO> findAll(BeerFilterDTO filter);
+
+    /**
+     * Up to {@code limit} beers with an id greater than {@code afterId}, ordered by id.
+     */
+    List<BeerDTO> findPage(long afterId, int limit);
+
+    /**
+     * Hands every beer to the consumer, ordered by id, without loading the whole table at once.
+     */
+    void forEach(Consumer<BeerDTO> consumer);
+
+    long count();
+
+    Optional<BeerDTO> findById(Long id);
+
+    Optional<BeerDTO> findByName(String name);
+
+    /**
+     * Up to {@code limit} beers whose name starts with the prefix, ignoring case, ordered by name.
+     */
+    List<BeerDTO> searchByPrefix(String prefix, int limit);
+
+    List<BrandTotals> sumByBrand();
+
+    List<BeerDTO> findByQuantityBelowRatioOfMax(double ratio);
+
+    /**
+     * Registers a beer with all of its quantity at the default location, returning it with its id.
+     */
+    BeerDTO create(BeerDTO beerDTO);
+
+    /**
+     * Applies a delta to the stock of a location and to the aggregate quantity of the beer, returning the
+     * updated beer.
+     *
+     * @throws com.jonservices.beerstocks.exceptions.BeerNotFoundException when the beer does not exist
+     * @throws com.jonservices.beerstocks.exceptions.BeerStockExceededException when the quantity would leave 0..max
+     * @throws com.jonservices.beerstocks.exceptions.BeerLocationStockExceededException when the location doesn't hold enough stock
+     */
+    BeerDTO updateStock(Long id, String location, int delta);
+
+    /**
+     * Stock of every location of the beer ordered by location, empty when the beer does not exist.
+     */
+    List<BeerStockDTO> findLocations(Long id);
+
+    /**
+     * Moves stock between two locations of a beer, returning the stock of its locations.
+     */
+    List<BeerStockDTO> transfer(Long id, String from, String to, int quantity);
+
+    /**
+     * Deletes a beer, returning it as it was, or empty when it does not exist.
+     */
+    Optional<BeerDTO> delete(Long id);
+
+}
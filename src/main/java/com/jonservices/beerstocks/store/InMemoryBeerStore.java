@@ -0,0 +1,446 @@
+package com.jonservices.beerstocks.store;
+
+import com.jonservices.beerstocks.data.dto.BeerDTO;
+import com.jonservices.beerstocks.data.dto.BeerFilterDTO;
+import com.jonservices.beerstocks.data.dto.BeerStockDTO;
+import com.jonservices.beerstocks.data.model.BeerStock;
+import com.jonservices.beerstocks.exceptions.BeerAlreadyRegisteredException;
+import com.jonservices.beerstocks.exceptions.BeerLocationStockExceededException;
+import com.jonservices.beerstocks.exceptions.BeerNotFoundException;
+import com.jonservices.beerstocks.exceptions.BeerStockExceededException;
+import com.jonservices.beerstocks.repository.BeerSpecifications;
+import com.jonservices.beerstocks.repository.BrandTotals;
+import lombok.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the beers in the heap, as columns of parallel arrays indexed by slot, for deployments where an
+ * embedded database is too heavy. Nothing survives a restart, so it starts empty.
+ * <p>
+ * The id of a beer is its slot plus one, so lookups by id are an array access and no id column is kept.
+ * Slots of deleted beers are never reused: a deleted beer leaves a tombstone, as ids of deleted rows are never
+ * given again by the database either. A slot whose beer was rejected for its name was never published, so it
+ * goes back to a free list and its id is given to the next beer. Names are found through a {@link BeerNameIndex} and brands are interned, as many
+ * beers share them. Columns are split in fixed size chunks, so growing the table never copies them. Searches
+ * by prefix walk a range of a skip list sorted by normalized name instead of scanning every slot. Low stock
+ * queries do scan the quantity and max columns: they only run on startup, and an index kept up to date on every
+ * stock update would cost more than it saves.
+ * <p>
+ * The quantity and version of a beer share one {@code long}, updated with compare-and-set, so stock updates
+ * take no lock and a read always sees both from the same update. A beer is published by setting that word
+ * last, after the rest of its columns. Increments first take room below the max from the aggregate quantity
+ * and then add to the location; decrements first take from the location and then from the aggregate. The
+ * aggregate never drops below the sum of the locations, so a decrement the location allowed never fails on it.
+ * <p>
+ * The version takes the upper 32 bits of that word, so it wraps after 2<sup>32</sup> - 1 updates of a beer and
+ * its ETag may then repeat one given out that many updates earlier.
+ */
+@Component
+@Profile("memory")
+public class InMemoryBeerStore implements BeerStore {
+
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final long FREE = 0L; // Slot taken but never published, or not taken yet
+    private static final long DELETED = -1L;
+    private static final long QUANTITY_MASK = 0xFFFFFFFFL;
+    private static final int FIRST_VERSION = 1; // Keeps a published beer with no stock apart from a free slot
+
+    private final AtomicInteger nextSlot = new AtomicInteger();
+    private final Queue<Integer> freeSlots = new ConcurrentLinkedQueue<>();
+    private final AtomicLong liveCount = new AtomicLong();
+    private final BeerNameIndex nameIndex = new BeerNameIndex();
+    private final Map<String, String> brandPool = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<SortedName> sortedNames = new ConcurrentSkipListSet<>();
+    private volatile Chunk[] chunks = new Chunk[0];
+
+    @Override
+    public List<BeerDTO> findAll() {
+        final List<BeerDTO> beers = new ArrayList<>();
+        forEach(beers::add);
+        return beers;
+    }
+
+    @Override
+    public List<BeerDTO> findAll(BeerFilterDTO filter) {
+        final Comparator<BeerDTO> comparator = comparatorOf(BeerSpecifications.sortOf(filter));
+        final List<BeerDTO> beers = new ArrayList<>();
+        forEach(beer -> {
+            if (matches(filter, beer))
+                beers.add(beer);
+        });
+        beers.sort(comparator);
+        return beers;
+    }
+
+    @Override
+    public List<BeerDTO> findPage(long afterId, int limit) {
+        final List<BeerDTO> beers = new ArrayList<>(Math.min(limit, CHUNK_SIZE));
+        final int end = nextSlot.get();
+        for (long slot = Math.max(afterId, 0); slot < end && beers.size() < limit; slot++)
+            toDTO((int) slot).ifPresent(beers::add);
+        return beers;
+    }
+
+    @Override
+    public void forEach(Consumer<BeerDTO> consumer) {
+        final int end = nextSlot.get();
+        for (int slot = 0; slot < end; slot++)
+            toDTO(slot).ifPresent(consumer);
+    }
+
+    @Override
+    public long count() {
+        return liveCount.get();
+    }
+
+    @Override
+    public Optional<BeerDTO> findById(Long id) {
+        return id == null || id < 1 || id > Integer.MAX_VALUE ? Optional.empty() : toDTO((int) (id - 1));
+    }
+
+    @Override
+    public Optional<BeerDTO> findByName(String name) {
+        final int slot = nameIndex.get(name);
+        return slot == BeerNameIndex.ABSENT ? Optional.empty() : toDTO(slot);
+    }
+
+    @Override
+    public List<BeerDTO> searchByPrefix(String prefix, int limit) {
+        final String from = prefix.toLowerCase(Locale.ROOT);
+        // Every name starting with the prefix sorts before the prefix followed by the highest char
+        final String to = from + Character.MAX_VALUE;
+        final List<BeerDTO> beers = new ArrayList<>();
+        for (SortedName name : sortedNames.subSet(new SortedName(from, -1), new SortedName(to, -1))) {
+            if (beers.size() >= limit)
+                break;
+            toDTO(name.slot).ifPresent(beers::add);
+        }
+        return beers;
+    }
+
+    @Override
+    public List<BrandTotals> sumByBrand() {
+        final Map<String, Totals> totalsByBrand = new TreeMap<>();
+        forEach(beer -> totalsByBrand.merge(beer.getBrand(),
+                new Totals(beer.getBrand(), 1, beer.getQuantity(), beer.getMax()), Totals::plus));
+        return new ArrayList<>(totalsByBrand.values());
+    }
+
+    @Override
+    public List<BeerDTO> findByQuantityBelowRatioOfMax(double ratio) {
+        final List<BeerDTO> beers = new ArrayList<>();
+        final int end = nextSlot.get();
+        for (int slot = 0; slot < end; slot++) {
+            final Chunk chunk = chunkOf(slot);
+            if (chunk == null)
+                break; // Slot taken by a beer whose chunk is still being added
+            final int offset = slot & CHUNK_MASK;
+            final long word = chunk.stock.get(offset);
+            if (isLive(word) && quantityOf(word) < chunk.max[offset] * ratio)
+                beers.add(toDTO(slot, chunk, word));
+        }
+        return beers;
+    }
+
+    @Override
+    public BeerDTO create(BeerDTO beerDTO) {
+        final Integer freeSlot = freeSlots.poll();
+        final int slot = freeSlot != null ? freeSlot : nextSlot.getAndIncrement();
+        final Chunk chunk = ensureChunk(slot);
+        final int offset = slot & CHUNK_MASK;
+        chunk.names[offset] = beerDTO.getName();
+        chunk.normalizedNames[offset] = beerDTO.getName().toLowerCase(Locale.ROOT);
+        chunk.brands[offset] = brandPool.computeIfAbsent(beerDTO.getBrand(), brand -> brand);
+        chunk.max[offset] = beerDTO.getMax();
+        final ConcurrentHashMap<String, AtomicInteger> locations = new ConcurrentHashMap<>();
+        locations.put(BeerStock.DEFAULT_LOCATION, new AtomicInteger(beerDTO.getQuantity()));
+        chunk.locations[offset] = locations;
+        // The name is claimed before the beer is published, so of two beers with the same name only one is
+        if (nameIndex.putIfAbsent(beerDTO.getName(), slot) != slot) {
+            chunk.locations[offset] = null;
+            freeSlots.add(slot);
+            throw new BeerAlreadyRegisteredException(beerDTO.getName());
+        }
+        final long word = pack(FIRST_VERSION, beerDTO.getQuantity());
+        // Indexed before being published, so no delete of the beer can run before its entry exists
+        sortedNames.add(new SortedName(chunk.normalizedNames[offset], slot));
+        chunk.stock.set(offset, word);
+        liveCount.incrementAndGet();
+        return toDTO(slot, chunk, word);
+    }
+
+    @Override
+    public BeerDTO updateStock(Long id, String location, int delta) {
+        final int slot = slotOf(id);
+        final Chunk chunk = chunkOf(slot);
+        final int offset = slot & CHUNK_MASK;
+        final int max = chunk.max[offset];
+        if (delta < 0) {
+            if (!takeFromLocation(chunk.locations[offset], location, -delta)) {
+                if (quantityOf(chunk.stock.get(offset)) + delta < 0)
+                    throw new BeerStockExceededException(max);
+                throw new BeerLocationStockExceededException(location);
+            }
+            return toDTO(slot, chunk, addToQuantity(id, chunk, offset, delta, max));
+        }
+        final long word = addToQuantity(id, chunk, offset, delta, max);
+        chunk.locations[offset].computeIfAbsent(location, key -> new AtomicInteger()).addAndGet(delta);
+        return toDTO(slot, chunk, word);
+    }
+
+    @Override
+    public List<BeerStockDTO> findLocations(Long id) {
+        final Optional<BeerDTO> beer = findById(id);
+        if (beer.isEmpty())
+            return new ArrayList<>();
+        final int slot = (int) (id - 1);
+        return new TreeMap<>(chunkOf(slot).locations[slot & CHUNK_MASK]).entrySet().stream()
+                .map(entry -> new BeerStockDTO(entry.getKey(), entry.getValue().get(), 0))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<BeerStockDTO> transfer(Long id, String from, String to, int quantity) {
+        final int slot = slotOf(id);
+        final Chunk chunk = chunkOf(slot);
+        final int offset = slot & CHUNK_MASK;
+        if (!takeFromLocation(chunk.locations[offset], from, quantity))
+            throw new BeerLocationStockExceededException(from);
+        chunk.locations[offset].computeIfAbsent(to, key -> new AtomicInteger()).addAndGet(quantity);
+        // The aggregate doesn't change, only the version, so readers can tell the locations changed
+        addToQuantity(id, chunk, offset, 0, chunk.max[offset]);
+        return findLocations(id);
+    }
+
+    @Override
+    public Optional<BeerDTO> delete(Long id) {
+        if (id == null || id < 1 || id > Integer.MAX_VALUE)
+            return Optional.empty();
+        final int slot = (int) (id - 1);
+        final Chunk chunk = chunkOf(slot);
+        if (chunk == null)
+            return Optional.empty();
+        final int offset = slot & CHUNK_MASK;
+        for (long word = chunk.stock.get(offset); isLive(word); word = chunk.stock.get(offset)) {
+            if (chunk.stock.compareAndSet(offset, word, DELETED)) {
+                nameIndex.remove(chunk.names[offset], slot);
+                sortedNames.remove(new SortedName(chunk.normalizedNames[offset], slot));
+                liveCount.decrementAndGet();
+                return Optional.of(toDTO(slot, chunk, word));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Adds the delta to the aggregate quantity while it stays between 0 and max, bumping the version, and
+     * returns the new word.
+     */
+    private long addToQuantity(Long id, Chunk chunk, int offset, int delta, int max) {
+        while (true) {
+            final long word = chunk.stock.get(offset);
+            if (!isLive(word))
+                throw new BeerNotFoundException("id", id);
+            final long quantity = quantityOf(word) + (long) delta;
+            if (quantity < 0 || quantity > max)
+                throw new BeerStockExceededException(max);
+            final long updatedWord = pack(nextVersion(versionOf(word)), (int) quantity);
+            if (chunk.stock.compareAndSet(offset, word, updatedWord))
+                return updatedWord;
+        }
+    }
+
+    private static boolean takeFromLocation(Map<String, AtomicInteger> locations, String location, int quantity) {
+        final AtomicInteger stock = locations.get(location);
+        if (stock == null)
+            return false;
+        while (true) {
+            final int current = stock.get();
+            if (current < quantity)
+                return false;
+            if (stock.compareAndSet(current, current - quantity))
+                return true;
+        }
+    }
+
+    private int slotOf(Long id) {
+        if (id == null || id < 1 || id > nextSlot.get())
+            throw new BeerNotFoundException("id", id);
+        final int slot = (int) (id - 1);
+        final Chunk chunk = chunkOf(slot);
+        if (chunk == null || !isLive(chunk.stock.get(slot & CHUNK_MASK)))
+            throw new BeerNotFoundException("id", id);
+        return slot;
+    }
+
+    private Optional<BeerDTO> toDTO(int slot) {
+        final Chunk chunk = chunkOf(slot);
+        if (chunk == null)
+            return Optional.empty();
+        final long word = chunk.stock.get(slot & CHUNK_MASK);
+        return isLive(word) ? Optional.of(toDTO(slot, chunk, word)) : Optional.empty();
+    }
+
+    private static BeerDTO toDTO(int slot, Chunk chunk, long word) {
+        final int offset = slot & CHUNK_MASK;
+        // Versions start at 0 like the database ones
+        return new BeerDTO(slot + 1L, chunk.names[offset], chunk.brands[offset], chunk.max[offset],
+                quantityOf(word), (long) versionOf(word) - FIRST_VERSION);
+    }
+
+    private Chunk chunkOf(int slot) {
+        final Chunk[] currentChunks = chunks;
+        final int index = slot >>> CHUNK_BITS;
+        return index < currentChunks.length ? currentChunks[index] : null;
+    }
+
+    private Chunk ensureChunk(int slot) {
+        final Chunk chunk = chunkOf(slot);
+        return chunk != null ? chunk : grow(slot >>> CHUNK_BITS);
+    }
+
+    private synchronized Chunk grow(int index) {
+        Chunk[] currentChunks = chunks;
+        if (index >= currentChunks.length) {
+            final Chunk[] grownChunks = new Chunk[Math.max(index + 1, currentChunks.length * 2)];
+            System.arraycopy(currentChunks, 0, grownChunks, 0, currentChunks.length);
+            for (int i = currentChunks.length; i < grownChunks.length; i++)
+                grownChunks[i] = new Chunk();
+            chunks = grownChunks;
+            currentChunks = grownChunks;
+        }
+        return currentChunks[index];
+    }
+
+    private static boolean matches(BeerFilterDTO filter, BeerDTO beer) {
+        return (filter.getBrand() == null || filter.getBrand().equals(beer.getBrand())) &&
+                (filter.getMinQuantity() == null || beer.getQuantity() >= filter.getMinQuantity()) &&
+                (filter.getMaxQuantity() == null || beer.getQuantity() <= filter.getMaxQuantity()) &&
+                (filter.getMinFillRatio() == null || beer.getQuantity() >= beer.getMax() * filter.getMinFillRatio()) &&
+                (filter.getMaxFillRatio() == null || beer.getQuantity() <= beer.getMax() * filter.getMaxFillRatio());
+    }
+
+    private static Comparator<BeerDTO> comparatorOf(Sort sort) {
+        Comparator<BeerDTO> comparator = null;
+        for (Sort.Order order : sort) {
+            Comparator<BeerDTO> propertyComparator = comparatorOf(order.getProperty());
+            if (order.isDescending())
+                propertyComparator = propertyComparator.reversed();
+            comparator = comparator == null ? propertyComparator : comparator.thenComparing(propertyComparator);
+        }
+        return comparator == null ? Comparator.comparing(BeerDTO::getId) : comparator;
+    }
+
+    private static Comparator<BeerDTO> comparatorOf(String property) {
+        switch (property) {
+            case "name":
+                return Comparator.comparing(BeerDTO::getName);
+            case "brand":
+                return Comparator.comparing(BeerDTO::getBrand);
+            case "max":
+                return Comparator.comparing(BeerDTO::getMax);
+            case "quantity":
+                return Comparator.comparing(BeerDTO::getQuantity);
+            default:
+                return Comparator.comparing(BeerDTO::getId);
+        }
+    }
+
+    private static boolean isLive(long word) {
+        return word != FREE && word != DELETED;
+    }
+
+    private static long pack(int version, int quantity) {
+        return ((long) version << 32) | (quantity & QUANTITY_MASK);
+    }
+
+    private static int versionOf(long word) {
+        return (int) (word >>> 32);
+    }
+
+    private static int quantityOf(long word) {
+        return (int) word;
+    }
+
+    private static int nextVersion(int version) {
+        return version == Integer.MAX_VALUE ? FIRST_VERSION : version + 1;
+    }
+
+    /**
+     * Columns of {@code CHUNK_SIZE} consecutive slots. Everything but the stock word is written once, before
+     * the beer is published.
+     */
+    private static class Chunk {
+
+        private final String[] names = new String[CHUNK_SIZE];
+        private final String[] normalizedNames = new String[CHUNK_SIZE];
+        private final String[] brands = new String[CHUNK_SIZE];
+        private final int[] max = new int[CHUNK_SIZE];
+        private final AtomicLongArray stock = new AtomicLongArray(CHUNK_SIZE);
+        @SuppressWarnings("unchecked")
+        private final ConcurrentHashMap<String, AtomicInteger>[] locations = new ConcurrentHashMap[CHUNK_SIZE];
+
+    }
+
+    /**
+     * Entry of the name index, ordered like the {@code normalized_name} column. Names differing only in case
+     * share a normalized name, so the slot tells them apart.
+     */
+    private static class SortedName implements Comparable<SortedName> {
+
+        private final String normalizedName;
+        private final int slot;
+
+        private SortedName(String normalizedName, int slot) {
+            this.normalizedName = normalizedName;
+            this.slot = slot;
+        }
+
+        @Override
+        public int compareTo(SortedName other) {
+            final int byName = normalizedName.compareTo(other.normalizedName);
+            return byName != 0 ? byName : Integer.compare(slot, other.slot);
+        }
+
+    }
+
+    @Value
+    private static class Totals implements BrandTotals {
+
+        String brand;
+
+        long skuCount;
+
+        long totalQuantity;
+
+        long totalCapacity;
+
+        private Totals plus(Totals other) {
+            return new Totals(brand, skuCount + other.skuCount, totalQuantity + other.totalQuantity,
+                    totalCapacity + other.totalCapacity);
+        }
+
+    }
+
+}
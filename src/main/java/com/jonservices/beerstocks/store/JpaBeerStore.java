@@ -0,0 +1,161 @@
+package com.jonservices.beerstocks.store;
+
+import com.jonservices.beerstocks.data.dto.BeerDTO;
+import com.jonservices.beerstocks.data.dto.BeerFilterDTO;
+import com.jonservices.beerstocks.data.dto.BeerStockDTO;
+import com.jonservices.beerstocks.data.model.Beer;
+import com.jonservices.beerstocks.data.model.BeerStock;
+import com.jonservices.beerstocks.exceptions.BeerLocationStockExceededException;
+import com.jonservices.beerstocks.exceptions.BeerNotFoundException;
+import com.jonservices.beerstocks.exceptions.BeerStockExceededException;
+import com.jonservices.beerstocks.mapper.BeerMapper;
+import com.jonservices.beerstocks.repository.BeerRepository;
+import com.jonservices.beerstocks.repository.BeerSpecifications;
+import com.jonservices.beerstocks.repository.BeerStockRepository;
+import com.jonservices.beerstocks.repository.BrandTotals;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the beers in the {@code beers} table and their stock per location in {@code beer_stock}. Stock
+ * updates rely on conditional UPDATE statements and the lock they take on the beer row, so they must run in
+ * the caller's transaction.
+ */
+@Component
+@Profile("!memory")
+public class JpaBeerStore implements BeerStore {
+
+    private final BeerMapper beerMapper = BeerMapper.INSTANCE;
+    private final BeerRepository beerRepository;
+    private final BeerStockRepository beerStockRepository;
+
+    @Autowired
+    public JpaBeerStore(BeerRepository beerRepository, BeerStockRepository beerStockRepository) {
+        this.beerRepository = beerRepository;
+        this.beerStockRepository = beerStockRepository;
+    }
+
+    @Override
+    public List<BeerDTO> findAll() {
+        return beerRepository.findAllAsDTO();
+    }
+
+    @Override
+    public List<BeerDTO> findAll(BeerFilterDTO filter) {
+        return beerRepository.findAllAsDTO(BeerSpecifications.of(filter), BeerSpecifications.sortOf(filter));
+    }
+
+    @Override
+    public List<BeerDTO> findPage(long afterId, int limit) {
+        return beerRepository.findAsDTOByIdGreaterThan(afterId, PageRequest.of(0, limit));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEach(Consumer<BeerDTO> consumer) {
+        // DTOs are not managed, so the persistence context doesn't grow with the table
+        try (Stream<BeerDTO> beers = beerRepository.streamAllAsDTO()) {
+            beers.forEach(consumer);
+        }
+    }
+
+    @Override
+    public long count() {
+        return beerRepository.count();
+    }
+
+    @Override
+    public Optional<BeerDTO> findById(Long id) {
+        return beerRepository.findById(id).map(beerMapper::toDTO);
+    }
+
+    @Override
+    public Optional<BeerDTO> findByName(String name) {
+        return beerRepository.findByName(name).map(beerMapper::toDTO);
+    }
+
+    @Override
+    public List<BeerDTO> searchByPrefix(String prefix, int limit) {
+        final String from = prefix.toLowerCase(Locale.ROOT);
+        // Every name starting with the prefix sorts before the prefix followed by the highest char
+        final String to = from + Character.MAX_VALUE;
+        return beerRepository.searchByNormalizedNameBetween(from, to, limit);
+    }
+
+    @Override
+    public List<BrandTotals> sumByBrand() {
+        return beerRepository.sumByBrand();
+    }
+
+    @Override
+    public List<BeerDTO> findByQuantityBelowRatioOfMax(double ratio) {
+        return beerRepository.findByQuantityBelowRatioOfMax(ratio).stream()
+                .map(beerMapper::toDTO)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public BeerDTO create(BeerDTO beerDTO) {
+        final Beer savedBeer = beerRepository.save(beerMapper.toModel(beerDTO));
+        beerStockRepository.save(BeerStock.of(savedBeer.getId(), BeerStock.DEFAULT_LOCATION, savedBeer.getQuantity()));
+        return beerMapper.toDTO(savedBeer);
+    }
+
+    @Override
+    public BeerDTO updateStock(Long id, String location, int delta) {
+        // Updating the beer row first locks it, which serializes every stock change of the beer
+        final Optional<BeerDTO> updatedBeer = beerRepository.updateQuantity(id, delta);
+        if (updatedBeer.isEmpty()) {
+            // Only a rejected update reads the beer, to tell the failure reason
+            final Beer beer = beerRepository.findById(id).orElseThrow(() -> new BeerNotFoundException("id", id));
+            throw new BeerStockExceededException(beer.getMax());
+        }
+        applyLocationDelta(id, location, delta);
+        return updatedBeer.get();
+    }
+
+    @Override
+    public List<BeerStockDTO> findLocations(Long id) {
+        return beerStockRepository.findByIdBeerIdOrderByIdLocationId(id).stream()
+                .map(stock -> new BeerStockDTO(stock.getId().getLocationId(), stock.getQuantity(), stock.getReserved()))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<BeerStockDTO> transfer(Long id, String from, String to, int quantity) {
+        // The version bump locks the beer row and makes stock batches that read it before retry
+        if (beerRepository.incrementVersion(id) == 0)
+            throw new BeerNotFoundException("id", id);
+        applyLocationDelta(id, from, -quantity);
+        applyLocationDelta(id, to, quantity);
+        return findLocations(id);
+    }
+
+    @Override
+    public Optional<BeerDTO> delete(Long id) {
+        return beerRepository.findById(id).map(beer -> {
+            beerRepository.delete(beer);
+            return beerMapper.toDTO(beer);
+        });
+    }
+
+    private void applyLocationDelta(Long id, String location, int delta) {
+        if (beerStockRepository.updateQuantity(id, location, delta) > 0)
+            return;
+        if (delta < 0)
+            throw new BeerLocationStockExceededException(location);
+        // First stock of the beer at this location; the locked beer row keeps concurrent inserts out
+        beerStockRepository.save(BeerStock.of(id, location, delta));
+    }
+
+}
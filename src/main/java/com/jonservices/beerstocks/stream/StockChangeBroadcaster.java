@@ -0,0 +1,265 @@
+package com.jonservices.beerstocks.stream;
+
+import com.jonservices.beerstocks.data.dto.BeerDTO;
+import com.jonservices.beerstocks.data.dto.StockChangeDTO;
+import com.jonservices.beerstocks.data.enums.BeerChangeType;
+import com.jonservices.beerstocks.events.BeerChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Pushes committed stock changes to stream subscribers.
+ * <p>
+ * Committing threads only merge their change into a map of pending changes per beer, so several updates of
+ * the same beer inside one coalescing window reach subscribers as a single change. Once per window the
+ * pending changes are handed as one batch to every subscriber's bounded buffer of batches and sent by a
+ * fan-out pool, one task per subscriber at a time. A task sends a single batch and queues the subscriber again
+ * behind the others, so a subscriber with a long backlog doesn't hold a thread. A subscriber whose buffer
+ * overflows is dropped, as skipping changes would leave it with wrong quantities; it is expected to reconnect
+ * and reload the beers.
+ * <p>
+ * Sends block on the client's socket. A subscriber whose send takes longer than the send timeout is dropped as
+ * well, and the pool gets one more thread until that send returns, so stalled clients never take every fan-out
+ * thread from the healthy ones.
+ * <p>
+ * Dropped subscribers are closed on a thread of their own. Closing an emitter waits for the same lock as its
+ * stalled send, so closing it on the flush or fan-out threads would block them behind the client being dropped.
+ */
+@Component
+public class StockChangeBroadcaster {
+
+    public static final String SUBSCRIBERS_GAUGE = "beer.stream.subscribers";
+    public static final String DROPPED_COUNTER = "beer.stream.dropped";
+
+    private final Map<Long, PendingChange> pendingChanges = new ConcurrentHashMap<>();
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final int bufferSize;
+    private final long sendTimeoutNanos;
+    private final LongSupplier nanoTime;
+    private final ScheduledExecutorService flusher;
+    private final ThreadPoolExecutor fanOut;
+    private final ExecutorService closer;
+    private final Counter overflowCounter;
+    private final Counter failureCounter;
+    private final Counter timeoutCounter;
+
+    @Autowired
+    public StockChangeBroadcaster(@Value("${beerstocks.stream.coalesce-window:100ms}") Duration coalesceWindow,
+                                  @Value("${beerstocks.stream.buffer-size:64}") int bufferSize,
+                                  @Value("${beerstocks.stream.fan-out-threads:4}") int fanOutThreads,
+                                  @Value("${beerstocks.stream.send-timeout:5s}") Duration sendTimeout,
+                                  MeterRegistry meterRegistry) {
+        this(coalesceWindow, bufferSize, fanOutThreads, sendTimeout, meterRegistry, System::nanoTime);
+    }
+
+    StockChangeBroadcaster(Duration coalesceWindow, int bufferSize, int fanOutThreads, Duration sendTimeout,
+                           MeterRegistry meterRegistry, LongSupplier nanoTime) {
+        this.bufferSize = bufferSize;
+        this.sendTimeoutNanos = sendTimeout.toNanos();
+        this.nanoTime = nanoTime;
+        flusher = Executors.newSingleThreadScheduledExecutor(daemonThreads("stock-stream-flush-"));
+        fanOut = new ThreadPoolExecutor(fanOutThreads, fanOutThreads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), daemonThreads("stock-stream-"));
+        closer = Executors.newCachedThreadPool(daemonThreads("stock-stream-close-"));
+        flusher.scheduleWithFixedDelay(this::flush, coalesceWindow.toMillis(), coalesceWindow.toMillis(), TimeUnit.MILLISECONDS);
+        meterRegistry.gaugeCollectionSize(SUBSCRIBERS_GAUGE, List.of(), subscribers);
+        overflowCounter = meterRegistry.counter(DROPPED_COUNTER, "reason", "overflow");
+        failureCounter = meterRegistry.counter(DROPPED_COUNTER, "reason", "failure");
+        timeoutCounter = meterRegistry.counter(DROPPED_COUNTER, "reason", "timeout");
+    }
+
+    public Runnable subscribe(StockChangeListener listener) {
+        final Subscriber subscriber = new Subscriber(listener);
+        subscribers.add(subscriber);
+        return () -> subscribers.remove(subscriber);
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBeerChanged(BeerChangedEvent event) {
+        pendingChanges.merge(event.getBeer().getId(), new PendingChange(event), PendingChange::merge);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdownNow();
+        fanOut.shutdownNow();
+        closer.shutdownNow();
+    }
+
+    void flush() {
+        final long now = nanoTime.getAsLong();
+        subscribers.forEach(subscriber -> subscriber.expireSend(now));
+        if (pendingChanges.isEmpty())
+            return;
+        final List<StockChangeDTO> changes = new ArrayList<>(pendingChanges.size());
+        for (Long id : pendingChanges.keySet()) {
+            final PendingChange pendingChange = pendingChanges.remove(id);
+            if (pendingChange != null)
+                changes.add(pendingChange.toDTO());
+        }
+        subscribers.forEach(subscriber -> subscriber.enqueue(changes));
+    }
+
+    // Covers a thread blocked by a timed out send until the send returns
+    private synchronized void resizeFanOut(int delta) {
+        if (delta > 0) {
+            fanOut.setMaximumPoolSize(fanOut.getMaximumPoolSize() + delta);
+            fanOut.setCorePoolSize(fanOut.getCorePoolSize() + delta);
+        } else {
+            fanOut.setCorePoolSize(fanOut.getCorePoolSize() + delta);
+            fanOut.setMaximumPoolSize(fanOut.getMaximumPoolSize() + delta);
+        }
+    }
+
+    private static CustomizableThreadFactory daemonThreads(String prefix) {
+        final CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(prefix);
+        threadFactory.setDaemon(true);
+        return threadFactory;
+    }
+
+    private static class PendingChange {
+
+        private final BeerDTO beer;
+        private final int delta;
+        private final BeerChangeType action;
+
+        private PendingChange(BeerChangedEvent event) {
+            this(event.getBeer(), event.getDelta(), event.getType());
+        }
+
+        private PendingChange(BeerDTO beer, int delta, BeerChangeType action) {
+            this.beer = beer;
+            this.delta = delta;
+            this.action = action;
+        }
+
+        private PendingChange merge(PendingChange next) {
+            // Commits of the same beer may be delivered out of order, the higher version holds the latest quantity
+            final boolean nextIsNewer = beer.getVersion() == null || next.beer.getVersion() == null ||
+                    next.beer.getVersion() >= beer.getVersion();
+            final BeerChangeType mergedAction = action == BeerChangeType.CREATED && next.action == BeerChangeType.STOCK_UPDATED ?
+                    BeerChangeType.CREATED :
+                    next.action;
+            return new PendingChange(nextIsNewer ? next.beer : beer, delta + next.delta, mergedAction);
+        }
+
+        private StockChangeDTO toDTO() {
+            return StockChangeDTO.builder()
+                    .id(beer.getId())
+                    .quantity(beer.getQuantity())
+                    .delta(delta)
+                    .action(action)
+                    .build();
+        }
+
+    }
+
+    private class Subscriber {
+
+        private static final int IDLE = 0;
+        private static final int SENDING = 1;
+        private static final int TIMED_OUT = 2;
+
+        private final StockChangeListener listener;
+        private final Queue<List<StockChangeDTO>> buffer = new ArrayBlockingQueue<>(bufferSize);
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicInteger sendState = new AtomicInteger(IDLE);
+        private volatile long sendStartedAt;
+
+        private Subscriber(StockChangeListener listener) {
+            this.listener = listener;
+        }
+
+        private void enqueue(List<StockChangeDTO> changes) {
+            if (buffer.offer(changes)) {
+                scheduleDrain();
+            } else if (drop()) {
+                overflowCounter.increment();
+            }
+        }
+
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true))
+                fanOut.execute(this::drain);
+        }
+
+        private void drain() {
+            final List<StockChangeDTO> changes = buffer.poll();
+            if (changes != null && !send(changes))
+                return;
+            if (!buffer.isEmpty()) {
+                fanOut.execute(this::drain); // Behind the other subscribers' tasks
+                return;
+            }
+            draining.set(false);
+            // A batch enqueued after the last poll but before the flag was cleared would be left behind
+            if (!buffer.isEmpty())
+                scheduleDrain();
+        }
+
+        private boolean send(List<StockChangeDTO> changes) {
+            sendStartedAt = nanoTime.getAsLong();
+            sendState.set(SENDING);
+            try {
+                for (StockChangeDTO change : changes)
+                    listener.send(change);
+                return true;
+            } catch (IOException | RuntimeException e) {
+                if (drop())
+                    failureCounter.increment();
+                return false;
+            } finally {
+                if (!sendState.compareAndSet(SENDING, IDLE))
+                    resizeFanOut(-1); // Timed out meanwhile, its extra thread is no longer needed
+            }
+        }
+
+        private void expireSend(long now) {
+            if (sendState.get() == SENDING && now - sendStartedAt > sendTimeoutNanos &&
+                    sendState.compareAndSet(SENDING, TIMED_OUT)) {
+                resizeFanOut(1);
+                if (drop())
+                    timeoutCounter.increment();
+            }
+        }
+
+        private boolean drop() {
+            if (!subscribers.remove(this))
+                return false;
+            buffer.clear();
+            closer.execute(listener::closed);
+            return true;
+        }
+
+    }
+
+}
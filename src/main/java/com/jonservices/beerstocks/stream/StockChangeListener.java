@@ -0,0 +1,20 @@
+package com.jonservices.beerstocks.stream;
+
+import com.jonservices.beerstocks.data.dto.StockChangeDTO;
+
+import java.io.IOException;
+
+/**
+ * Receives the stock changes of a single subscriber, always from one fan-out thread at a time.
+ */
+public interface StockChangeListener {
+
+    void send(StockChangeDTO change) throws IOException;
+
+    /**
+     * Called once when the broadcaster drops the subscriber, because it fell behind, failed to send or a send timed out.
+     */
+    default void closed() {
+    }
+
+}
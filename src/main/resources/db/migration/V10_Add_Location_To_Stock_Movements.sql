@@ -0,0 +1 @@
+ALTER TABLE `stock_movements` ADD COLUMN `location_id` VARCHAR(50) DEFAULT 'default' NOT NULL;
@@ -0,0 +1 @@
+ALTER TABLE `beers` ADD COLUMN `version` BIGINT DEFAULT 0 NOT NULL
@@ -0,0 +1,2 @@
+ALTER TABLE `beers` ADD COLUMN `name_normalized` VARCHAR(200) GENERATED ALWAYS AS (LOWER(`name`));
+CREATE INDEX `idx_beers_name_normalized` ON `beers` (`name_normalized`);
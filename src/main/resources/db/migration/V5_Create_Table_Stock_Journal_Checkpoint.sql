@@ -0,0 +1,6 @@
+CREATE TABLE `stock_journal_checkpoint` (
+    `id` INTEGER NOT NULL,
+    `segment` BIGINT NOT NULL,
+    PRIMARY KEY (`id`)
+);
+INSERT INTO `stock_journal_checkpoint` (`id`, `segment`) VALUES (1, 0);
@@ -0,0 +1,10 @@
+CREATE TABLE `stock_movements` (
+    `id` BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    `beer_id` BIGINT NOT NULL,
+    `action` VARCHAR(20) NOT NULL,
+    `delta` INTEGER NOT NULL,
+    `quantity` INTEGER NOT NULL,
+    `created_at` TIMESTAMP NOT NULL,
+    PRIMARY KEY (`id`)
+);
+CREATE INDEX `idx_stock_movements_beer_created_at` ON `stock_movements` (`beer_id`, `created_at`);
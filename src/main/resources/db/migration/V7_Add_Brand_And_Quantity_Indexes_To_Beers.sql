@@ -0,0 +1,2 @@
+CREATE INDEX `idx_beers_brand_quantity` ON `beers` (`brand`, `quantity`);
+CREATE INDEX `idx_beers_quantity` ON `beers` (`quantity`);
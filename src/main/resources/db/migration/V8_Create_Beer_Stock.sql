@@ -0,0 +1,8 @@
+CREATE TABLE `beer_stock` (
+    `beer_id` BIGINT NOT NULL,
+    `location_id` VARCHAR(50) NOT NULL,
+    `quantity` INTEGER NOT NULL,
+    PRIMARY KEY (`beer_id`, `location_id`),
+    FOREIGN KEY (`beer_id`) REFERENCES `beers` (`id`) ON DELETE CASCADE
+);
+INSERT INTO `beer_stock` (`beer_id`, `location_id`, `quantity`) SELECT `id`, 'default', `quantity` FROM `beers`;
@@ -0,0 +1,13 @@
+ALTER TABLE `beer_stock` ADD COLUMN `reserved` INTEGER DEFAULT 0 NOT NULL;
+ALTER TABLE `beer_stock` ADD COLUMN `version` BIGINT DEFAULT 0 NOT NULL;
+CREATE TABLE `stock_reservations` (
+    `id` BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    `beer_id` BIGINT NOT NULL,
+    `location_id` VARCHAR(50) NOT NULL,
+    `quantity` INTEGER NOT NULL,
+    `status` VARCHAR(20) NOT NULL,
+    `expires_at` TIMESTAMP NOT NULL,
+    PRIMARY KEY (`id`),
+    FOREIGN KEY (`beer_id`) REFERENCES `beers` (`id`) ON DELETE CASCADE
+);
+CREATE INDEX `idx_stock_reservations_status_expires_at` ON `stock_reservations` (`status`, `expires_at`);
@@ -0,0 +1,91 @@
+package com.jonservices.beerstocks.alerts;
+
+import com.jonservices.beerstocks.builder.BeerDTOBuilder;
+import com.jonservices.beerstocks.data.dto.BeerDTO;
+import com.jonservices.beerstocks.data.dto.StockAlertDTO;
+import com.jonservices.beerstocks.data.enums.StockLevel;
+import com.jonservices.beerstocks.events.BeerChangedEvent;
+import com.jonservices.beerstocks.store.BeerStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static com.jonservices.beerstocks.mocks.BeerTestMocks.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class StockThresholdMonitorTest {
+
+    @Mock
+    private BeerStore beerStore;
+
+    private final InMemoryStockAlertSink stockAlertSink = new InMemoryStockAlertSink();
+
+    private StockThresholdMonitor stockThresholdMonitor;
+
+    @BeforeEach
+    void setupEach() {
+        stockThresholdMonitor = new StockThresholdMonitor(beerStore, stockAlertSink, 0.2, 0.9);
+    }
+
+    @Test // Low stock crossing
+    @DisplayName("When an update crosses the low stock threshold then one alert should be sent and the beer indexed")
+    void whenAnUpdateCrossesTheLowStockThresholdThenOneAlertShouldBeSent() throws Exception {
+        // when
+        stockThresholdMonitor.onBeerChanged(BeerChangedEvent.stockUpdated(beer(3, 1L), -2)); // 5 -> 3 of 10
+        stockThresholdMonitor.onBeerChanged(BeerChangedEvent.stockUpdated(beer(1, 2L), -2)); // 3 -> 1 of 10
+        stockThresholdMonitor.onBeerChanged(BeerChangedEvent.stockUpdated(beer(0, 3L), -1)); // 1 -> 0 of 10
+
+        // then
+        final StockAlertDTO alert = stockAlertSink.poll(0, TimeUnit.SECONDS);
+        assertThat(alert.getPreviousLevel()).isEqualTo(StockLevel.NORMAL);
+        assertThat(alert.getLevel()).isEqualTo(StockLevel.LOW);
+        assertThat(alert.getQuantity()).isEqualTo(1);
+        assertThat(stockAlertSink.size()).isZero();
+        assertThat(stockThresholdMonitor.findLowStockBeers()).extracting(BeerDTO::getQuantity).containsExactly(0);
+    }
+
+    @Test // Overstock and recovery crossings
+    @DisplayName("When an update leaves the low stock level straight to overstock then the beer should leave the index")
+    void whenAnUpdateLeavesTheLowStockLevelStraightToOverstockThenTheBeerShouldLeaveTheIndex() throws Exception {
+        // given
+        stockThresholdMonitor.onBeerChanged(BeerChangedEvent.created(beer(1, 0L)));
+
+        // when
+        stockThresholdMonitor.onBeerChanged(BeerChangedEvent.stockUpdated(beer(9, 1L), 8));
+
+        // then
+        final StockAlertDTO alert = stockAlertSink.poll(0, TimeUnit.SECONDS);
+        assertThat(alert.getPreviousLevel()).isEqualTo(StockLevel.LOW);
+        assertThat(alert.getLevel()).isEqualTo(StockLevel.HIGH);
+        assertThat(stockThresholdMonitor.findLowStockBeers()).isEmpty();
+    }
+
+    @Test // Index loaded once
+    @DisplayName("When the application starts then the low stock index should be loaded and kept on deletes")
+    void whenTheApplicationStartsThenTheLowStockIndexShouldBeLoaded() {
+        // when
+        when(beerStore.findByQuantityBelowRatioOfMax(0.2)).thenReturn(Collections.singletonList(EXPECTED_BEER_DTO));
+        stockThresholdMonitor.loadLowStockBeers();
+
+        // then
+        assertThat(stockThresholdMonitor.findLowStockBeers()).containsExactly(EXPECTED_BEER_DTO);
+        stockThresholdMonitor.onBeerChanged(BeerChangedEvent.deleted(EXPECTED_BEER_DTO));
+        assertThat(stockThresholdMonitor.findLowStockBeers()).isEmpty();
+        assertThat(stockAlertSink.size()).isZero();
+    }
+
+    private BeerDTO beer(int quantity, long version) {
+        final BeerDTO beer = BeerDTOBuilder.builder().max(10).quantity(quantity).build().toBeerDTO();
+        beer.setVersion(version);
+        return beer;
+    }
+
+}
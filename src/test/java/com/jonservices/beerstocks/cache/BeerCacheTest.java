@@ -0,0 +1,170 @@
+package com.jonservices.beerstocks.cache;
+
+import com.jonservices.beerstocks.builder.BeerDTOBuilder;
+import com.jonservices.beerstocks.data.dto.BeerDTO;
+import com.jonservices.beerstocks.events.BeerChangedEvent;
+import com.jonservices.beerstocks.exceptions.BeerNotFoundException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static com.jonservices.beerstocks.mocks.BeerTestMocks.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+
+public class BeerCacheTest {
+
+    private static final int CONCURRENT_CALLERS = 32;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private BeerCache beerCache;
+
+    @BeforeEach
+    void setupEach() {
+        meterRegistry = new SimpleMeterRegistry();
+        beerCache = new BeerCache(100, Duration.ofMinutes(1), meterRegistry);
+    }
+
+    @Test // Hit by id and name
+    @DisplayName("When a beer is loaded then it should be served by id and by name without loading again")
+    void whenABeerIsLoadedThenItShouldBeServedByIdAndByNameWithoutLoadingAgain() {
+        // given
+        final AtomicInteger loads = new AtomicInteger();
+
+        // when
+        beerCache.getById(VALID_BEER_ID, () -> load(loads, EXPECTED_BEER_DTO));
+        final BeerDTO byId = beerCache.getById(VALID_BEER_ID, () -> load(loads, EXPECTED_BEER_DTO));
+        final BeerDTO byName = beerCache.getByName(VALID_BEER_NAME, () -> load(loads, EXPECTED_BEER_DTO));
+
+        // then
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(byId).isEqualTo(EXPECTED_BEER_DTO);
+        assertThat(byName).isEqualTo(EXPECTED_BEER_DTO);
+        assertThat(meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("cache.gets").tag("result", "miss").functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test // Evicted on stock update
+    @DisplayName("When the stock of a cached beer is updated then the next read should load it again")
+    void whenTheStockOfACachedBeerIsUpdatedThenTheNextReadShouldLoadItAgain() {
+        // given
+        final BeerDTO updatedBeerDTO = BeerDTOBuilder.builder().quantity(5).build().toBeerDTO();
+        beerCache.getById(VALID_BEER_ID, () -> EXPECTED_BEER_DTO);
+
+        // when
+        beerCache.onBeerChanged(BeerChangedEvent.stockUpdated(updatedBeerDTO, 3));
+        final BeerDTO byName = beerCache.getByName(VALID_BEER_NAME, () -> updatedBeerDTO);
+
+        // then
+        assertThat(byName.getQuantity()).isEqualTo(5);
+    }
+
+    @Test // Load racing with an update
+    @DisplayName("When a beer is evicted while it is being loaded then the loaded value should not be cached")
+    void whenABeerIsEvictedWhileItIsBeingLoadedThenTheLoadedValueShouldNotBeCached() {
+        // given
+        final BeerDTO updatedBeerDTO = BeerDTOBuilder.builder().quantity(5).build().toBeerDTO();
+
+        // when
+        final BeerDTO staleBeerDTO = beerCache.getById(VALID_BEER_ID, () -> {
+            beerCache.evict(VALID_BEER_ID); // A stock update commits while the old row is being read
+            return EXPECTED_BEER_DTO;
+        });
+        final BeerDTO freshBeerDTO = beerCache.getById(VALID_BEER_ID, () -> updatedBeerDTO);
+
+        // then
+        assertThat(staleBeerDTO.getQuantity()).isEqualTo(2);
+        assertThat(freshBeerDTO.getQuantity()).isEqualTo(5);
+    }
+
+    @Test // Not found is not cached
+    @DisplayName("When a beer is not found then the failure should not be cached")
+    void whenABeerIsNotFoundThenTheFailureShouldNotBeCached() {
+        // when
+        assertThatThrownBy(() -> beerCache.getById(INVALID_BEER_ID, () -> {
+            throw new BeerNotFoundException("id", INVALID_BEER_ID);
+        })).isInstanceOf(BeerNotFoundException.class);
+
+        // then
+        assertThat(beerCache.size()).isZero();
+    }
+
+    @Test // Concurrent lookups coalesced
+    @DisplayName("When many callers look up the same missing beer concurrently then only one of them should query it")
+    void whenManyCallersLookUpTheSameMissingBeerConcurrentlyThenOnlyOneOfThemShouldQueryIt() throws Exception {
+        // given
+        final AtomicInteger loads = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(CONCURRENT_CALLERS);
+        final Supplier<BeerDTO> blockingLoader = () -> {
+            awaitCoalesced(CONCURRENT_CALLERS - 1); // Held until every other caller is waiting on this load
+            return load(loads, EXPECTED_BEER_DTO);
+        };
+
+        // when
+        final List<Future<BeerDTO>> lookups = new ArrayList<>();
+        for (int i = 0; i < CONCURRENT_CALLERS; i++)
+            lookups.add(executor.submit(() -> beerCache.getById(VALID_BEER_ID, blockingLoader)));
+        for (Future<BeerDTO> lookup : lookups)
+            assertThat(lookup.get(5, TimeUnit.SECONDS)).isEqualTo(EXPECTED_BEER_DTO);
+        executor.shutdown();
+
+        // then
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(meterRegistry.get(BeerCache.LOOKUPS_COUNTER).tag("result", "queried").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get(BeerCache.LOOKUPS_COUNTER).tag("result", "coalesced").counter().count())
+                .isEqualTo(CONCURRENT_CALLERS - 1);
+    }
+
+    @Test // Not found shared
+    @DisplayName("When a coalesced lookup does not find the beer then every waiting caller should get the exception")
+    void whenACoalescedLookupDoesNotFindTheBeerThenEveryWaitingCallerShouldGetTheException() throws Exception {
+        // given
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final CountDownLatch loading = new CountDownLatch(1);
+        final Supplier<BeerDTO> blockingLoader = () -> {
+            loading.countDown();
+            awaitCoalesced(1);
+            throw new BeerNotFoundException("name", INVALID_BEER_NAME);
+        };
+
+        // when
+        final Future<BeerDTO> leadingLookup = executor.submit(() -> beerCache.getByName(INVALID_BEER_NAME, blockingLoader));
+        loading.await(5, TimeUnit.SECONDS);
+        final Throwable waiterFailure = catchThrowable(() -> beerCache.getByName(INVALID_BEER_NAME, () -> {
+            throw new IllegalStateException("Should have joined the running lookup");
+        }));
+        final Throwable leaderFailure = catchThrowable(() -> leadingLookup.get(5, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        // then
+        assertThat(leaderFailure).hasCauseInstanceOf(BeerNotFoundException.class);
+        assertThat(waiterFailure).isInstanceOf(BeerNotFoundException.class);
+    }
+
+    private BeerDTO load(AtomicInteger loads, BeerDTO beerDTO) {
+        loads.incrementAndGet();
+        return beerDTO;
+    }
+
+    private void awaitCoalesced(int callers) {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get(BeerCache.LOOKUPS_COUNTER).tag("result", "coalesced").counter().count() < callers
+                && System.nanoTime() < deadline)
+            Thread.onSpinWait();
+    }
+
+}
@@ -0,0 +1,74 @@
+package com.jonservices.beerstocks.cache;
+
+import com.jonservices.beerstocks.data.dto.BeerDTO;
+import com.jonservices.beerstocks.store.BeerStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.function.Consumer;
+
+import static com.jonservices.beerstocks.mocks.BeerTestMocks.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class BeerExistenceFilterTest {
+
+    private BeerStore beerStore;
+
+    private BeerExistenceFilter beerExistenceFilter;
+
+    @BeforeEach
+    void setupEach() {
+        beerStore = mock(BeerStore.class);
+        beerExistenceFilter = new BeerExistenceFilter(beerStore, new SimpleMeterRegistry(), 100, 0.01);
+    }
+
+    @Test // Not built yet
+    @DisplayName("When the filter was not built yet then every beer should be considered as possibly registered")
+    void whenTheFilterWasNotBuiltYetThenEveryBeerShouldBeConsideredAsPossiblyRegistered() {
+        // then
+        assertThat(beerExistenceFilter.mightContain(INVALID_BEER_ID)).isTrue();
+        assertThat(beerExistenceFilter.mightContain(INVALID_BEER_NAME)).isTrue();
+    }
+
+    @Test // Built from the table
+    @DisplayName("When the filter is built then registered beers should be kept and unknown ones ruled out")
+    void whenTheFilterIsBuiltThenRegisteredBeersShouldBeKeptAndUnknownOnesRuledOut() {
+        // when
+        when(beerStore.count()).thenReturn(1L);
+        doAnswer(invocation -> {
+            invocation.<Consumer<BeerDTO>>getArgument(0).accept(EXPECTED_BEER_DTO);
+            return null;
+        }).when(beerStore).forEach(any());
+        beerExistenceFilter.rebuild();
+
+        // then
+        assertThat(beerExistenceFilter.mightContain(VALID_BEER_ID)).isTrue();
+        assertThat(beerExistenceFilter.mightContain(VALID_BEER_NAME)).isTrue();
+        assertThat(beerExistenceFilter.mightContain(INVALID_BEER_ID)).isFalse();
+        assertThat(beerExistenceFilter.mightContain(INVALID_BEER_NAME)).isFalse();
+    }
+
+    @Test // Deleted beers shed on rebuild
+    @DisplayName("When the filter is rebuilt then added beers no longer in the table should be ruled out")
+    void whenTheFilterIsRebuiltThenAddedBeersNoLongerInTheTableShouldBeRuledOut() {
+        // given
+        beerExistenceFilter.rebuild(); // No beers in the store
+
+        // when
+        beerExistenceFilter.add(ANOTHER_BEER_DTO.getId(), ANOTHER_BEER_DTO.getName());
+        final boolean containedBeforeRebuild = beerExistenceFilter.mightContain(ANOTHER_BEER_DTO.getId());
+        beerExistenceFilter.rebuild(); // The beer was deleted meanwhile
+
+        // then
+        assertThat(containedBeforeRebuild).isTrue();
+        assertThat(beerExistenceFilter.mightContain(ANOTHER_BEER_DTO.getId())).isFalse();
+        assertThat(beerExistenceFilter.mightContain(ANOTHER_BEER_DTO.getName())).isFalse();
+    }
+
+}
@@ -1,33 +1,88 @@
 package com.jonservices.beerstocks.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jonservices.beerstocks.alerts.StockThresholdMonitor;
+import com.jonservices.beerstocks.cache.CatalogRevision;
 import com.jonservices.beerstocks.builder.BeerDTOBuilder;
 import com.jonservices.beerstocks.data.dto.BeerDTO;
+import com.jonservices.beerstocks.data.dto.BeerFilterDTO;
+import com.jonservices.beerstocks.data.dto.BeerPageDTO;
+import com.jonservices.beerstocks.data.dto.BeerStockDTO;
+import com.jonservices.beerstocks.data.dto.BrandStatsDTO;
+import com.jonservices.beerstocks.data.dto.ImportSummaryDTO;
 import com.jonservices.beerstocks.data.dto.MessageResponseDTO;
+import com.jonservices.beerstocks.data.dto.StockBatchDTO;
+import com.jonservices.beerstocks.data.dto.StockBatchResultDTO;
+import com.jonservices.beerstocks.data.dto.StockMovementDTO;
+import com.jonservices.beerstocks.data.dto.StockMovementPageDTO;
+import com.jonservices.beerstocks.data.dto.StockMovementRecordDTO;
+import com.jonservices.beerstocks.data.dto.StockChangeDTO;
+import com.jonservices.beerstocks.data.dto.StockMovementResultDTO;
+import com.jonservices.beerstocks.data.dto.StockReservationDTO;
+import com.jonservices.beerstocks.data.dto.StockReservationRequestDTO;
+import com.jonservices.beerstocks.data.dto.StockTransferDTO;
+import com.jonservices.beerstocks.data.enums.BatchMode;
+import com.jonservices.beerstocks.data.enums.BeerChangeType;
+import com.jonservices.beerstocks.data.enums.ErrorCode;
+import com.jonservices.beerstocks.data.enums.ImportFormat;
+import com.jonservices.beerstocks.data.enums.MovementStatus;
+import com.jonservices.beerstocks.data.enums.ReservationStatus;
 import com.jonservices.beerstocks.data.enums.StockAction;
+import com.jonservices.beerstocks.data.model.BeerStock;
+import com.jonservices.beerstocks.events.BeerChangedEvent;
+import com.jonservices.beerstocks.events.LocationStockChangedEvent;
 import com.jonservices.beerstocks.exceptions.BeerAlreadyRegisteredException;
+import com.jonservices.beerstocks.exceptions.BeerLocationStockExceededException;
 import com.jonservices.beerstocks.exceptions.BeerNotFoundException;
 import com.jonservices.beerstocks.exceptions.BeerStockExceededException;
+import com.jonservices.beerstocks.exceptions.ProblemDetailsExceptionHandler;
+import com.jonservices.beerstocks.exceptions.StockReservationNotActiveException;
+import com.jonservices.beerstocks.service.BeerImportService;
 import com.jonservices.beerstocks.service.BeerService;
+import com.jonservices.beerstocks.service.StockBatchService;
+import com.jonservices.beerstocks.service.StockLedgerService;
+import com.jonservices.beerstocks.service.StockReservationService;
+import com.jonservices.beerstocks.stats.InventoryStatistics;
+import com.jonservices.beerstocks.stream.StockChangeBroadcaster;
+import com.jonservices.beerstocks.stream.StockChangeListener;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.servlet.view.json.MappingJackson2JsonView;
 
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
 import static com.jonservices.beerstocks.mocks.BeerTestMocks.*;
 import static com.jonservices.beerstocks.utils.JSONConvertionUtils.asJsonString;
 import static org.hamcrest.core.Is.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(MockitoExtension.class)
@@ -38,6 +93,33 @@ public class BeerControllerTest {
     @Mock
     private BeerService beerService;
 
+    @Mock
+    private StockBatchService stockBatchService;
+
+    @Mock
+    private BeerImportService beerImportService;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @Spy
+    private CatalogRevision catalogRevision = new CatalogRevision();
+
+    @Mock
+    private StockChangeBroadcaster stockChangeBroadcaster;
+
+    @Mock
+    private StockLedgerService stockLedgerService;
+
+    @Mock
+    private StockReservationService stockReservationService;
+
+    @Mock
+    private StockThresholdMonitor stockThresholdMonitor;
+
+    @Mock
+    private InventoryStatistics inventoryStatistics;
+
     @InjectMocks
     private BeerController beerController;
 
@@ -45,6 +127,7 @@ public class BeerControllerTest {
     void setupEach() {
         mockMvc = MockMvcBuilders.standaloneSetup(beerController)
                 .setCustomArgumentResolvers(new PageableHandlerMethodArgumentResolver())
+                .setControllerAdvice(new ProblemDetailsExceptionHandler())
                 .setViewResolvers((s, locale) -> new MappingJackson2JsonView())
                 .build();
     }
@@ -66,6 +149,173 @@ public class BeerControllerTest {
                 .andExpect(jsonPath("$[1].quantity", is(ANOTHER_BEER_DTO.getQuantity())));
     }
 
+    @Test // GET Find filtered
+    @DisplayName("When GET is called with filters then the filtered beers and ok status are returned")
+    void whenGETIsCalledWithFiltersThenTheFilteredBeersAndOkStatusAreReturned() throws Exception {
+        // given
+        final BeerFilterDTO filter = new BeerFilterDTO(EXPECTED_BEER_DTO.getBrand(), 10, null, 0.5, null, "quantity,desc");
+
+        // when
+        when(beerService.findAll(filter)).thenReturn(List.of(EXPECTED_BEER_DTO));
+
+        // then
+        mockMvc.perform(get(BEER_API_URL_PATH)
+                        .param("brand", EXPECTED_BEER_DTO.getBrand())
+                        .param("minQuantity", "10")
+                        .param("minFillRatio", "0.5")
+                        .param("sort", "quantity,desc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name", is(EXPECTED_BEER_DTO.getName())));
+        verify(beerService, never()).findAll();
+    }
+
+    @Test // GET Find filtered BAD REQUEST
+    @DisplayName("When GET is called with a fill ratio above one then bad request status is returned")
+    void whenGETIsCalledWithAFillRatioAboveOneThenBadRequestStatusIsReturned() throws Exception {
+        // then
+        mockMvc.perform(get(BEER_API_URL_PATH)
+                        .param("maxFillRatio", "1.5"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code", is(ErrorCode.VALIDATION_FAILED.name())))
+                .andExpect(jsonPath("$.detail", is("maxFillRatio must be less than or equal to 1")));
+        verifyNoInteractions(beerService);
+    }
+
+    @Test // GET Find page
+    @DisplayName("When GET is called with a cursor then a page of beers and the next cursor are returned")
+    void whenGETIsCalledWithACursorThenAPageOfBeersAndTheNextCursorAreReturned() throws Exception {
+        // given
+        final BeerPageDTO expectedPage = BeerPageDTO.builder()
+                .content(Collections.singletonList(ANOTHER_BEER_DTO))
+                .nextCursor(ANOTHER_BEER_DTO.getId())
+                .build();
+
+        // when
+        when(beerService.findPage(VALID_BEER_ID, 1)).thenReturn(expectedPage);
+
+        // then
+        mockMvc.perform(get(BEER_API_URL_PATH + "/page")
+                        .param("cursor", String.valueOf(VALID_BEER_ID))
+                        .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].name", is(ANOTHER_BEER_DTO.getName())))
+                .andExpect(jsonPath("$.nextCursor", is(ANOTHER_BEER_DTO.getId().intValue())));
+    }
+
+    @Test // GET Export
+    @SuppressWarnings("unchecked")
+    @DisplayName("When GET export is called then all beers are streamed as newline delimited JSON")
+    void whenGETExportIsCalledThenAllBeersAreStreamedAsNewlineDelimitedJSON() throws Exception {
+        // when
+        doAnswer(invocation -> {
+            ALL_BEERS_DTO.forEach(invocation.<Consumer<BeerDTO>>getArgument(0));
+            return null;
+        }).when(beerService).forEach(any(Consumer.class));
+
+        // then
+        final MvcResult mvcResult = mockMvc.perform(get(BEER_API_URL_PATH + "/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(content().string(asJsonString(EXPECTED_BEER_DTO) + "\n" + asJsonString(ANOTHER_BEER_DTO) + "\n"));
+    }
+
+    @Test // GET Stream
+    @DisplayName("When GET stream is called then stock changes are sent as server-sent events")
+    void whenGETStreamIsCalledThenStockChangesAreSentAsServerSentEvents() throws Exception {
+        // given
+        final StockChangeDTO change = StockChangeDTO.builder()
+                .id(VALID_BEER_ID)
+                .quantity(5)
+                .delta(3)
+                .action(BeerChangeType.STOCK_UPDATED)
+                .build();
+
+        // when
+        when(stockChangeBroadcaster.subscribe(any(StockChangeListener.class))).thenAnswer(invocation -> {
+            final StockChangeListener listener = invocation.getArgument(0);
+            listener.send(change);
+            listener.closed();
+            return (Runnable) () -> { };
+        });
+
+        // then
+        final MvcResult mvcResult = mockMvc.perform(get(BEER_API_URL_PATH + "/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(content().string("event:" + BeerController.STOCK_CHANGE_EVENT + "\ndata:" + asJsonString(change) + "\n\n"));
+    }
+
+    @Test // GET Find all not modified
+    @DisplayName("When GET is called with the current catalog ETag then not modified status is returned without reading beers")
+    void whenGETIsCalledWithTheCurrentCatalogETagThenNotModifiedStatusIsReturned() throws Exception {
+        // then
+        mockMvc.perform(get(BEER_API_URL_PATH)
+                        .header(HttpHeaders.IF_NONE_MATCH, catalogRevision.eTag()))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        verify(beerService, never()).findAll();
+    }
+
+    @Test // GET Find all after a change
+    @DisplayName("When the catalog changes then GET with the previous ETag returns the beers and the new ETag")
+    void whenTheCatalogChangesThenGETWithThePreviousETagReturnsTheBeers() throws Exception {
+        // given
+        final String previousETag = catalogRevision.eTag();
+        catalogRevision.onBeerChanged(BeerChangedEvent.created(EXPECTED_BEER_DTO));
+
+        // when
+        when(beerService.findAll()).thenReturn(ALL_BEERS_DTO);
+
+        // then
+        mockMvc.perform(get(BEER_API_URL_PATH)
+                        .header(HttpHeaders.IF_NONE_MATCH, previousETag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, catalogRevision.eTag()))
+                .andExpect(jsonPath("$[0].name", is(EXPECTED_BEER_DTO.getName())));
+    }
+
+    @Test // GET Find all after a location change
+    @DisplayName("When the stock of a location changes then GET with the previous catalog ETag returns the beers")
+    void whenTheStockOfALocationChangesThenGETWithThePreviousCatalogETagReturnsTheBeers() throws Exception {
+        // given
+        final String previousETag = catalogRevision.eTag();
+        catalogRevision.onLocationStockChanged(new LocationStockChangedEvent(VALID_BEER_ID));
+
+        // when
+        when(beerService.findAll()).thenReturn(ALL_BEERS_DTO);
+
+        // then
+        mockMvc.perform(get(BEER_API_URL_PATH)
+                        .header(HttpHeaders.IF_NONE_MATCH, previousETag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, catalogRevision.eTag()));
+    }
+
+    @Test // GET Find by id not modified
+    @DisplayName("When GET is called with the ETag of the current beer version then not modified status is returned")
+    void whenGETIsCalledWithTheETagOfTheCurrentBeerVersionThenNotModifiedStatusIsReturned() throws Exception {
+        // given
+        final BeerDTO beerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
+        beerDTO.setVersion(3L);
+
+        // when
+        when(beerService.findById(VALID_BEER_ID)).thenReturn(beerDTO);
+
+        // then
+        final String eTag = mockMvc.perform(get(BEER_API_URL_PATH + "/" + VALID_BEER_ID))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version").doesNotExist())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get(BEER_API_URL_PATH + "/" + VALID_BEER_ID)
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
     @Test // GET Find by id
     @DisplayName("When GET is called with valid id then ok status is returned")
     void whenGETIsCalledWithValidIdThenOkStatusIsReturned() throws Exception {
@@ -80,6 +330,76 @@ public class BeerControllerTest {
                 .andExpect(jsonPath("$.name", is(EXPECTED_BEER_DTO.getName())));
     }
 
+    @Test // GET Stats
+    @DisplayName("When GET stats is called with a brand then the totals of that brand are returned")
+    void whenGETStatsIsCalledWithABrandThenTheTotalsOfThatBrandAreReturned() throws Exception {
+        // given
+        final BrandStatsDTO stats = BrandStatsDTO.builder()
+                .brand(EXPECTED_BEER_DTO.getBrand())
+                .skuCount(2)
+                .totalQuantity(7)
+                .totalCapacity(15)
+                .fillRatio(7 / 15.0)
+                .build();
+
+        // when
+        when(inventoryStatistics.findStats(EXPECTED_BEER_DTO.getBrand())).thenReturn(Collections.singletonList(stats));
+
+        // then
+        mockMvc.perform(get(BEER_API_URL_PATH + "/stats").param("brand", EXPECTED_BEER_DTO.getBrand()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].skuCount", is(2)))
+                .andExpect(jsonPath("$[0].totalCapacity", is(15)));
+    }
+
+    @Test // GET Low stock
+    @DisplayName("When GET low-stock is called then the indexed low stock beers are returned")
+    void whenGETLowStockIsCalledThenTheIndexedLowStockBeersAreReturned() throws Exception {
+        // when
+        when(stockThresholdMonitor.findLowStockBeers()).thenReturn(Collections.singletonList(ANOTHER_BEER_DTO));
+
+        // then
+        mockMvc.perform(get(BEER_API_URL_PATH + "/low-stock"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name", is(ANOTHER_BEER_DTO.getName())));
+    }
+
+    @Test // GET Movements
+    @DisplayName("When GET movements is called with a time range then the page of movements is returned")
+    void whenGETMovementsIsCalledWithATimeRangeThenThePageOfMovementsIsReturned() throws Exception {
+        // given
+        final Instant from = Instant.parse("2026-01-01T00:00:00Z");
+        final StockMovementPageDTO page = StockMovementPageDTO.builder()
+                .content(Collections.singletonList(new StockMovementRecordDTO(10L, VALID_BEER_ID, BeerStock.DEFAULT_LOCATION, StockAction.INCREMENT, 3, 5, null)))
+                .nextCursor(10L)
+                .build();
+
+        // when
+        when(stockLedgerService.findPage(VALID_BEER_ID, from, null, null, 1)).thenReturn(page);
+
+        // then
+        mockMvc.perform(get(BEER_API_URL_PATH + "/" + VALID_BEER_ID + "/movements")
+                        .param("from", from.toString())
+                        .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].delta", is(3)))
+                .andExpect(jsonPath("$.nextCursor", is(10)));
+    }
+
+    @Test // GET Search by prefix
+    @DisplayName("When GET search is called with a prefix then the matching beers are returned")
+    void whenGETSearchIsCalledWithAPrefixThenTheMatchingBeersAreReturned() throws Exception {
+        // when
+        when(beerService.searchByPrefix("sk", 5)).thenReturn(Collections.singletonList(EXPECTED_BEER_DTO));
+
+        // then
+        mockMvc.perform(get(BEER_API_URL_PATH + "/search")
+                        .param("prefix", "sk")
+                        .param("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name", is(EXPECTED_BEER_DTO.getName())));
+    }
+
     @Test // GET Find by Name
     @DisplayName("When GET is called with valid name then ok status is returned")
     void whenGETIsCalledWithValidNameThenOkStatusIsReturned() throws Exception {
@@ -130,6 +450,26 @@ public class BeerControllerTest {
                 .andExpect(jsonPath("$.quantity", is(incrementedBeerDTO.getQuantity())));
     }
 
+    @Test // PATCH Increment location
+    @DisplayName("When PATCH is called for a location then it should increment its stock and return the aggregate")
+    void whenPATCHIsCalledForALocationThenItShouldIncrementItsStock() throws Exception {
+        // given
+        final BeerDTO incrementedBeerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
+        final int quantityToIncrement = VALID_QUANTITY_DTO.getQuantity();
+        incrementedBeerDTO.setQuantity(incrementedBeerDTO.getQuantity() + quantityToIncrement);
+
+        // when
+        when(beerService.updateStock(VALID_BEER_ID, VALID_LOCATION, quantityToIncrement, StockAction.INCREMENT))
+                .thenReturn(incrementedBeerDTO);
+
+        // then
+        mockMvc.perform(patch(BEER_API_URL_PATH + "/" + VALID_BEER_ID + "/locations/" + VALID_LOCATION + "/increment")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(VALID_QUANTITY_DTO)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.quantity", is(incrementedBeerDTO.getQuantity())));
+    }
+
     @Test // PATCH Decrement
     @DisplayName("When PATCH is called then it should decrement beer on stock")
     void whenPATCHIsCalledThenItShouldDecrementBeerOnStock() throws Exception {
@@ -151,6 +491,137 @@ public class BeerControllerTest {
                 .andExpect(jsonPath("$.quantity", is(decrementedBeerDTO.getQuantity())));
     }
 
+    @Test // POST Stock batch
+    @DisplayName("When POST is called with a stock batch then the result of every movement is returned")
+    void whenPOSTIsCalledWithAStockBatchThenTheResultOfEveryMovementIsReturned() throws Exception {
+        // given
+        final StockMovementDTO movement = new StockMovementDTO(VALID_BEER_ID, StockAction.INCREMENT, 3);
+        final StockBatchDTO stockBatchDTO = new StockBatchDTO(BatchMode.ATOMIC, Collections.singletonList(movement));
+        final StockBatchResultDTO expectedResult = StockBatchResultDTO.builder()
+                .mode(BatchMode.ATOMIC)
+                .applied(1)
+                .results(Collections.singletonList(StockMovementResultDTO.builder()
+                        .id(VALID_BEER_ID)
+                        .action(StockAction.INCREMENT)
+                        .quantity(3)
+                        .status(MovementStatus.APPLIED)
+                        .resultingQuantity(5)
+                        .build()))
+                .build();
+
+        // when
+        when(stockBatchService.updateStock(stockBatchDTO)).thenReturn(expectedResult);
+
+        // then
+        mockMvc.perform(post(BEER_API_URL_PATH + "/stock/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(stockBatchDTO)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.applied", is(1)))
+                .andExpect(jsonPath("$.results[0].status", is(MovementStatus.APPLIED.name())))
+                .andExpect(jsonPath("$.results[0].resultingQuantity", is(5)));
+    }
+
+    @Test // POST Transfer
+    @DisplayName("When POST is called with a transfer then the stock of every location is returned")
+    void whenPOSTIsCalledWithATransferThenTheStockOfEveryLocationIsReturned() throws Exception {
+        // given
+        final StockTransferDTO stockTransferDTO = new StockTransferDTO(BeerStock.DEFAULT_LOCATION, VALID_LOCATION, 2);
+
+        // when
+        when(beerService.transfer(VALID_BEER_ID, stockTransferDTO)).thenReturn(List.of(
+                new BeerStockDTO(BeerStock.DEFAULT_LOCATION, 0, 0),
+                new BeerStockDTO(VALID_LOCATION, 2, 0)));
+
+        // then
+        mockMvc.perform(post(BEER_API_URL_PATH + "/" + VALID_BEER_ID + "/transfers")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(stockTransferDTO)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[1].location", is(VALID_LOCATION)))
+                .andExpect(jsonPath("$[1].quantity", is(2)));
+    }
+
+    @Test // POST Transfer BeerLocationStockExceededException
+    @DisplayName("When POST is called with a transfer exceeding the source stock then bad request status is returned")
+    void whenPOSTIsCalledWithATransferExceedingTheSourceStockThenBadRequestStatusIsReturned() throws Exception {
+        // given
+        final StockTransferDTO stockTransferDTO = new StockTransferDTO(VALID_LOCATION, BeerStock.DEFAULT_LOCATION, 2);
+
+        // when
+        when(beerService.transfer(VALID_BEER_ID, stockTransferDTO)).thenThrow(new BeerLocationStockExceededException(VALID_LOCATION));
+
+        // then
+        mockMvc.perform(post(BEER_API_URL_PATH + "/" + VALID_BEER_ID + "/transfers")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(stockTransferDTO)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test // POST Reserve
+    @DisplayName("When POST is called with a reservation then the active reservation is returned")
+    void whenPOSTIsCalledWithAReservationThenTheActiveReservationIsReturned() throws Exception {
+        // given
+        final StockReservationRequestDTO request = new StockReservationRequestDTO(2, VALID_LOCATION);
+        final StockReservationDTO reservation = new StockReservationDTO(1L, VALID_BEER_ID, VALID_LOCATION, 2,
+                ReservationStatus.ACTIVE, Instant.parse("2022-07-01T10:15:00Z"));
+
+        // when
+        when(stockReservationService.reserve(VALID_BEER_ID, request)).thenReturn(reservation);
+
+        // then
+        mockMvc.perform(post(BEER_API_URL_PATH + "/" + VALID_BEER_ID + "/reservations")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(request)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.id", is(1)))
+                .andExpect(jsonPath("$.status", is(ReservationStatus.ACTIVE.toString())));
+    }
+
+    @Test // POST Confirm reservation not active
+    @DisplayName("When POST is called to confirm a reservation that is not active then conflict status is returned")
+    void whenPOSTIsCalledToConfirmAReservationThatIsNotActiveThenConflictStatusIsReturned() throws Exception {
+        // when
+        when(stockReservationService.confirm(VALID_BEER_ID, 1L))
+                .thenThrow(new StockReservationNotActiveException(1L, ReservationStatus.EXPIRED));
+
+        // then
+        mockMvc.perform(post(BEER_API_URL_PATH + "/" + VALID_BEER_ID + "/reservations/1/confirm"))
+                .andExpect(status().isConflict());
+    }
+
+    @Test // POST Import
+    @DisplayName("When POST import is called with a CSV body then it should be imported as CSV")
+    void whenPOSTImportIsCalledWithACSVBodyThenItShouldBeImportedAsCSV() throws Exception {
+        // given
+        final ImportSummaryDTO expectedSummary = ImportSummaryDTO.builder()
+                .received(1)
+                .imported(1)
+                .errors(Collections.emptyList())
+                .build();
+
+        // when
+        when(beerImportService.importBeers(any(InputStream.class), eq(ImportFormat.CSV))).thenReturn(expectedSummary);
+
+        // then
+        mockMvc.perform(post(BEER_API_URL_PATH + "/import")
+                        .contentType("text/csv")
+                        .content("name,brand,max,quantity\nSkol Beats,Ambev,5,2\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported", is(1)))
+                .andExpect(jsonPath("$.rejected", is(0)));
+    }
+
+    @Test // POST Import unsupported
+    @DisplayName("When POST import is called with a JSON body then unsupported media type status is returned")
+    void whenPOSTImportIsCalledWithAJSONBodyThenUnsupportedMediaTypeStatusIsReturned() throws Exception {
+        // then
+        mockMvc.perform(post(BEER_API_URL_PATH + "/import")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(EXPECTED_BEER_DTO)))
+                .andExpect(status().isUnsupportedMediaType());
+    }
+
     @Test // DELETE Delete by id
     @DisplayName("When DELETE is called then it should delete beer")
     void whenPOSTIsCalledThenItShouldDeleteBeer() throws Exception {
@@ -172,19 +643,23 @@ public class BeerControllerTest {
     @DisplayName("When GET is called with an invalid id then it should thrown an error")
     void whenGETIsCalledWithAnInvalidIdThenItShouldThrownAnError() throws Exception {
         // when
-        doThrow(BeerNotFoundException.class).when(beerService).findById(INVALID_BEER_ID);
+        doThrow(new BeerNotFoundException("id", INVALID_BEER_ID)).when(beerService).findById(INVALID_BEER_ID);
 
         // then
         mockMvc.perform(get(BEER_API_URL_PATH + "/" + INVALID_BEER_ID)
                         .contentType(MediaType.APPLICATION_JSON))
-                .andExpect(status().isNotFound());
+                .andExpect(status().isNotFound())
+                .andExpect(content().contentType(ProblemDetailsExceptionHandler.APPLICATION_PROBLEM_JSON))
+                .andExpect(jsonPath("$.code", is(ErrorCode.BEER_NOT_FOUND.name())))
+                .andExpect(jsonPath("$.status", is(404)))
+                .andExpect(jsonPath("$.detail", is("Beer not found with id " + INVALID_BEER_ID)));
     }
 
     @Test // GET Find by name BeerNotFoundException
     @DisplayName("When GET is called with an invalid name then it should thrown an error")
     void whenGETIsCalledWithAnInvalidNameThenItShouldThrownAnError() throws Exception {
         // when
-        doThrow(BeerNotFoundException.class).when(beerService).findByName(INVALID_BEER_NAME);
+        doThrow(new BeerNotFoundException("name", INVALID_BEER_NAME)).when(beerService).findByName(INVALID_BEER_NAME);
 
         // then
         mockMvc.perform(get(BEER_API_URL_PATH + "/search/" + INVALID_BEER_NAME)
@@ -196,7 +671,7 @@ public class BeerControllerTest {
     @DisplayName("When POST is called with a registered beer name then it should thrown an error")
     void whenPOSTIsCalledWithARegisteredBeerNameThenShouldThrownAnError() throws Exception {
         // when
-        when(beerService.create(EXPECTED_BEER_DTO)).thenThrow(BeerAlreadyRegisteredException.class);
+        when(beerService.create(EXPECTED_BEER_DTO)).thenThrow(new BeerAlreadyRegisteredException(EXPECTED_BEER_DTO.getName()));
 
         // then
         mockMvc.perform(post(BEER_API_URL_PATH)
@@ -215,7 +690,7 @@ public class BeerControllerTest {
         incrementedBeerDTO.setQuantity(incrementedBeerDTO.getQuantity() + quantityToIncrement);
 
         // when
-        when(beerService.updateStock(VALID_BEER_ID, quantityToIncrement, StockAction.INCREMENT)).thenThrow(BeerStockExceededException.class);
+        when(beerService.updateStock(VALID_BEER_ID, quantityToIncrement, StockAction.INCREMENT)).thenThrow(new BeerStockExceededException(EXPECTED_BEER_DTO.getMax()));
 
         // then
         mockMvc.perform(patch(BEER_API_URL_PATH + "/" + VALID_BEER_ID + "/increment")
@@ -0,0 +1,207 @@
+package com.jonservices.beerstocks.idempotency;
+
+import com.jonservices.beerstocks.exceptions.IdempotencyKeyReusedException;
+import com.jonservices.beerstocks.metrics.ExceptionMetricsResolver;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.annotation.ResponseStatusExceptionResolver;
+
+import javax.servlet.FilterChain;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.jonservices.beerstocks.mocks.BeerTestMocks.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IdempotencyFilterTest {
+
+    private static final String IDEMPOTENCY_KEY = "3f1c9a52-scanner-7";
+    private static final String REQUEST_BODY = "{\"quantity\":5}";
+    private static final String RESPONSE_BODY = "{\"id\":1,\"quantity\":7}";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private IdempotencyFilter idempotencyFilter;
+
+    @BeforeEach
+    void setupEach() {
+        final ExceptionMetricsResolver exceptionMetricsResolver = new ExceptionMetricsResolver();
+        ReflectionTestUtils.setField(exceptionMetricsResolver, "meterRegistry", meterRegistry);
+        idempotencyFilter = new IdempotencyFilter(100, Duration.ofMinutes(1), meterRegistry,
+                List.of(exceptionMetricsResolver, new ResponseStatusExceptionResolver()));
+    }
+
+    @Test // Replay
+    @DisplayName("When a request is repeated with the same idempotency key then the first response should be replayed")
+    void whenARequestIsRepeatedWithTheSameIdempotencyKeyThenTheFirstResponseShouldBeReplayed() throws Exception {
+        // given
+        final AtomicInteger executions = new AtomicInteger();
+        final FilterChain filterChain = (request, response) -> respond((HttpServletResponse) response,
+                HttpServletResponse.SC_OK, executions);
+
+        // when
+        final MockHttpServletResponse firstResponse = new MockHttpServletResponse();
+        idempotencyFilter.doFilter(incrementRequest(), firstResponse, filterChain);
+        final MockHttpServletResponse replayedResponse = new MockHttpServletResponse();
+        idempotencyFilter.doFilter(incrementRequest(), replayedResponse, filterChain);
+
+        // then
+        assertThat(executions.get()).isEqualTo(1);
+        assertThat(firstResponse.getContentAsString()).isEqualTo(RESPONSE_BODY);
+        assertThat(replayedResponse.getStatus()).isEqualTo(HttpServletResponse.SC_OK);
+        assertThat(replayedResponse.getContentType()).isEqualTo(MediaType.APPLICATION_JSON_VALUE);
+        assertThat(replayedResponse.getContentAsString()).isEqualTo(RESPONSE_BODY);
+        assertThat(replayedResponse.getHeader(IdempotencyFilter.IDEMPOTENT_REPLAYED_HEADER)).isEqualTo("true");
+    }
+
+    @Test // Server error not stored
+    @DisplayName("When the first request fails with a server error then a retry with the same key should run again")
+    void whenTheFirstRequestFailsWithAServerErrorThenARetryWithTheSameKeyShouldRunAgain() throws Exception {
+        // given
+        final AtomicInteger executions = new AtomicInteger();
+        final FilterChain filterChain = (request, response) -> respond((HttpServletResponse) response,
+                executions.get() == 0 ? HttpServletResponse.SC_SERVICE_UNAVAILABLE : HttpServletResponse.SC_OK, executions);
+
+        // when
+        idempotencyFilter.doFilter(incrementRequest(), new MockHttpServletResponse(), filterChain);
+        final MockHttpServletResponse retryResponse = new MockHttpServletResponse();
+        idempotencyFilter.doFilter(incrementRequest(), retryResponse, filterChain);
+
+        // then
+        assertThat(executions.get()).isEqualTo(2);
+        assertThat(retryResponse.getStatus()).isEqualTo(HttpServletResponse.SC_OK);
+        assertThat(retryResponse.getHeader(IdempotencyFilter.IDEMPOTENT_REPLAYED_HEADER)).isNull();
+    }
+
+    @Test // Concurrent duplicate
+    @DisplayName("When a duplicate arrives while the first request is running then it should wait for its response")
+    void whenADuplicateArrivesWhileTheFirstRequestIsRunningThenItShouldWaitForItsResponse() throws Exception {
+        // given
+        final AtomicInteger executions = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final FilterChain filterChain = (request, response) -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            respond((HttpServletResponse) response, HttpServletResponse.SC_OK, executions);
+        };
+
+        // when
+        final CompletableFuture<Void> first = CompletableFuture.runAsync(() -> doFilter(filterChain));
+        started.await(5, TimeUnit.SECONDS);
+        final MockHttpServletResponse duplicateResponse = new MockHttpServletResponse();
+        final CompletableFuture<Void> duplicate = CompletableFuture.runAsync(() -> doFilter(filterChain, duplicateResponse));
+        Thread.sleep(100);
+        final boolean duplicateDoneBeforeFirst = duplicate.isDone();
+        release.countDown();
+        CompletableFuture.allOf(first, duplicate).get(5, TimeUnit.SECONDS);
+
+        // then
+        assertThat(duplicateDoneBeforeFirst).isFalse();
+        assertThat(executions.get()).isEqualTo(1);
+        assertThat(duplicateResponse.getContentAsString()).isEqualTo(RESPONSE_BODY);
+    }
+
+    @Test // Error dispatch not stored
+    @DisplayName("When the first request is answered with sendError then a retry with the same key should run again")
+    void whenTheFirstRequestIsAnsweredWithSendErrorThenARetryWithTheSameKeyShouldRunAgain() throws Exception {
+        // given
+        final AtomicInteger executions = new AtomicInteger();
+        final FilterChain filterChain = (request, response) -> {
+            if (executions.get() == 0) {
+                executions.incrementAndGet();
+                // The body is written later by the error dispatch, outside of the filter
+                ((HttpServletResponse) response).sendError(HttpServletResponse.SC_BAD_REQUEST, "Malformed body");
+            } else {
+                respond((HttpServletResponse) response, HttpServletResponse.SC_OK, executions);
+            }
+        };
+
+        // when
+        final MockHttpServletResponse firstResponse = new MockHttpServletResponse();
+        idempotencyFilter.doFilter(incrementRequest(), firstResponse, filterChain);
+        final MockHttpServletResponse retryResponse = new MockHttpServletResponse();
+        idempotencyFilter.doFilter(incrementRequest(), retryResponse, filterChain);
+
+        // then
+        assertThat(firstResponse.getStatus()).isEqualTo(HttpServletResponse.SC_BAD_REQUEST);
+        assertThat(executions.get()).isEqualTo(2);
+        assertThat(retryResponse.getContentAsString()).isEqualTo(RESPONSE_BODY);
+        assertThat(retryResponse.getHeader(IdempotencyFilter.IDEMPOTENT_REPLAYED_HEADER)).isNull();
+    }
+
+    @Test // Key reused with another body
+    @DisplayName("When the idempotency key is repeated with another body then the request should be rejected as unprocessable")
+    void whenTheIdempotencyKeyIsRepeatedWithAnotherBodyThenTheRequestShouldBeRejectedAsUnprocessable() throws Exception {
+        // given
+        final AtomicInteger executions = new AtomicInteger();
+        final FilterChain filterChain = (request, response) -> {
+            request.getReader().readLine(); // The controller reads the body
+            respond((HttpServletResponse) response, HttpServletResponse.SC_OK, executions);
+        };
+        idempotencyFilter.doFilter(incrementRequest(), new MockHttpServletResponse(), filterChain);
+
+        // when
+        final MockHttpServletResponse reusedResponse = new MockHttpServletResponse();
+        idempotencyFilter.doFilter(incrementRequest("{\"quantity\":6}"), reusedResponse, filterChain);
+
+        // then
+        assertThat(executions.get()).isEqualTo(1);
+        assertThat(reusedResponse.getStatus()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY.value());
+        assertThat(reusedResponse.getHeader(IdempotencyFilter.IDEMPOTENT_REPLAYED_HEADER)).isNull();
+        assertThat(meterRegistry.get(ExceptionMetricsResolver.EXCEPTIONS_COUNTER)
+                .tag("exception", IdempotencyKeyReusedException.class.getSimpleName())
+                .counter().count()).isEqualTo(1);
+    }
+
+    private MockHttpServletRequest incrementRequest() {
+        return incrementRequest(REQUEST_BODY);
+    }
+
+    private MockHttpServletRequest incrementRequest(String body) {
+        final MockHttpServletRequest request = new MockHttpServletRequest("PATCH",
+                "/beers/" + VALID_BEER_ID + "/increment");
+        request.addHeader(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, IDEMPOTENCY_KEY);
+        request.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+
+    private void doFilter(FilterChain filterChain) {
+        doFilter(filterChain, new MockHttpServletResponse());
+    }
+
+    private void doFilter(FilterChain filterChain, MockHttpServletResponse response) {
+        try {
+            idempotencyFilter.doFilter(incrementRequest(), response, filterChain);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void respond(HttpServletResponse response, int status, AtomicInteger executions) throws IOException {
+        executions.incrementAndGet();
+        response.setStatus(status);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write(RESPONSE_BODY);
+    }
+
+}
@@ -0,0 +1,51 @@
+package com.jonservices.beerstocks.metrics;
+
+import com.jonservices.beerstocks.data.dto.QuantityDTO;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static com.jonservices.beerstocks.mocks.BeerTestMocks.*;
+import static com.jonservices.beerstocks.utils.JSONConvertionUtils.asJsonString;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureMetrics
+public class PrometheusEndpointTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test // GET Prometheus scrape
+    @DisplayName("When beers API is called then its latencies, exceptions and pool gauges are scraped by Prometheus")
+    void whenBeersAPIIsCalledThenItsLatenciesExceptionsAndPoolGaugesAreScrapedByPrometheus() throws Exception {
+        // given
+        mockMvc.perform(get(BEER_API_URL_PATH + "/" + VALID_BEER_ID)).andExpect(status().isOk());
+        mockMvc.perform(get(BEER_API_URL_PATH + "/" + INVALID_BEER_ID)).andExpect(status().isNotFound());
+        mockMvc.perform(patch(BEER_API_URL_PATH + "/" + VALID_BEER_ID + "/decrement")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(new QuantityDTO(100))))
+                .andExpect(status().isBadRequest());
+
+        // then
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("http_server_requests_seconds{exception=\"None\",method=\"GET\",outcome=\"SUCCESS\",status=\"200\",uri=\"/beers/{id}\",quantile=\"0.99\",}")))
+                .andExpect(content().string(containsString("beer_stock_update_seconds_count{action=\"DECREMENT\"")))
+                .andExpect(content().string(containsString("beer_exceptions_total{exception=\"BeerNotFoundException\",}")))
+                .andExpect(content().string(containsString("beer_exceptions_total{exception=\"BeerStockExceededException\",}")))
+                .andExpect(content().string(containsString("spring_data_repository_invocations_seconds_count{exception=\"None\",method=\"findById\"")))
+                .andExpect(content().string(containsString("hikaricp_connections_active")));
+    }
+
+}
@@ -20,6 +20,7 @@ public class BeerTestMocks {
     public static final Beer EXPECTED_BEER = BEER_MAPPER.toModel(EXPECTED_BEER_DTO);
     public static final long VALID_BEER_ID = EXPECTED_BEER_DTO.getId();
     public static final long INVALID_BEER_ID = 0L;
+    public static final String VALID_LOCATION = "warehouse-south";
     public static final String VALID_BEER_NAME = EXPECTED_BEER_DTO.getName();
     public static final String INVALID_BEER_NAME = "Sol";
     public static final QuantityDTO VALID_QUANTITY_DTO = new QuantityDTO(3);
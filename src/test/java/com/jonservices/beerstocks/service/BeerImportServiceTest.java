@@ -0,0 +1,147 @@
+package com.jonservices.beerstocks.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jonservices.beerstocks.cache.BeerExistenceFilter;
+import com.jonservices.beerstocks.data.dto.ImportSummaryDTO;
+import com.jonservices.beerstocks.data.enums.ImportFormat;
+import com.jonservices.beerstocks.data.model.Beer;
+import com.jonservices.beerstocks.events.BeerChangedEvent;
+import com.jonservices.beerstocks.repository.BeerRepository;
+import com.jonservices.beerstocks.store.BeerStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.validation.Validation;
+import javax.validation.Validator;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class BeerImportServiceTest {
+
+    @Mock
+    private BeerRepository beerRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
+    @Spy
+    private Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @Spy
+    private BeerExistenceFilter beerExistenceFilter = new BeerExistenceFilter(mock(BeerStore.class),
+            new SimpleMeterRegistry(), 100, 0.01);
+
+    @InjectMocks
+    private BeerImportService beerImportService;
+
+    @Test // Import CSV
+    @DisplayName("When a CSV is imported then valid lines should be inserted and invalid ones reported")
+    @SuppressWarnings("unchecked")
+    void whenACSVIsImportedThenValidLinesShouldBeInsertedAndInvalidOnesReported() throws Exception {
+        // given
+        final InputStream csv = asStream("name,brand,max,quantity\n" +
+                "Skol Beats,Ambev,5,2\n" +
+                "\"Brahma, Extra\",Ambev,10,4\n" +
+                "Heineken,Heineken,5,9\n" +
+                "Skol Beats,Ambev,5,1\n" +
+                "Budweiser,Ambev,ten,1\n" +
+                "Stella Artois,Ambev,20,10\n");
+
+        // when
+        when(beerRepository.findNamesIn(anyCollection())).thenReturn(Collections.singleton("Stella Artois"));
+        when(beerRepository.findByNameIn(anyCollection())).thenReturn(Arrays.asList(
+                new Beer(1L, "Skol Beats", "Ambev", 5, 2, 0L),
+                new Beer(2L, "Brahma, Extra", "Ambev", 10, 4, 0L)));
+        final ImportSummaryDTO summary = beerImportService.importBeers(csv, ImportFormat.CSV);
+
+        // then
+        assertThat(summary.getReceived()).isEqualTo(6);
+        assertThat(summary.getImported()).isEqualTo(2);
+        assertThat(summary.getRejected()).isEqualTo(4);
+        assertThat(summary.getErrors()).extracting("line").containsExactlyInAnyOrder(4L, 5L, 6L, 7L);
+        verify(jdbcTemplate).batchUpdate(startsWith("INSERT INTO beers"), (List<Object>) anyList(), anyInt(), any(ParameterizedPreparedStatementSetter.class));
+        verify(jdbcTemplate).batchUpdate(startsWith("INSERT INTO beer_stock"), (List<Object>) anyList(), anyInt(), any(ParameterizedPreparedStatementSetter.class));
+        verify(eventPublisher, times(2)).publishEvent(any(BeerChangedEvent.class));
+    }
+
+    @Test // Import CSV with a byte order mark
+    @DisplayName("When a CSV starts with a byte order mark and blank lines then its header should still be skipped")
+    void whenACSVStartsWithAByteOrderMarkAndBlankLinesThenItsHeaderShouldStillBeSkipped() throws Exception {
+        // given
+        final InputStream csv = asStream("\uFEFF\n" +
+                "\n" +
+                "Name,Brand,Max,Quantity\n" +
+                "Skol Beats,Ambev,5,ten\n" +
+                "name,brand,max,quantity\n");
+
+        // when
+        final ImportSummaryDTO summary = beerImportService.importBeers(csv, ImportFormat.CSV);
+
+        // then
+        assertThat(summary.getReceived()).isEqualTo(2);
+        assertThat(summary.getRejected()).isEqualTo(2);
+        assertThat(summary.getErrors()).extracting("line").containsExactly(4L, 5L);
+        verify(beerRepository, never()).findNamesIn(anyCollection());
+    }
+
+    @Test // Import NDJSON
+    @DisplayName("When NDJSON with invalid lines is imported then they should be rejected before touching the database")
+    void whenNDJSONWithInvalidLinesIsImportedThenTheyShouldBeRejectedBeforeTouchingTheDatabase() throws Exception {
+        // given
+        final InputStream ndjson = asStream("{\"name\":\"Skol Beats\",\"brand\":\"Ambev\",\"max\":5}\n" +
+                "\n" +
+                "{\"name\":\"Brahma\",\"brand\":\n");
+
+        // when
+        final ImportSummaryDTO summary = beerImportService.importBeers(ndjson, ImportFormat.NDJSON);
+
+        // then
+        assertThat(summary.getReceived()).isEqualTo(2);
+        assertThat(summary.getRejected()).isEqualTo(2);
+        assertThat(summary.getErrors()).extracting("line").containsExactly(1L, 3L);
+        assertThat(summary.getErrors().get(0).getMessage()).isEqualTo("quantity must not be null");
+        verify(beerRepository, never()).findNamesIn(anyCollection());
+    }
+
+    private InputStream asStream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
@@ -0,0 +1,196 @@
+package com.jonservices.beerstocks.service;
+
+import com.jonservices.beerstocks.data.dto.BeerDTO;
+import com.jonservices.beerstocks.data.dto.StockBatchDTO;
+import com.jonservices.beerstocks.data.dto.StockMovementDTO;
+import com.jonservices.beerstocks.data.enums.BatchMode;
+import com.jonservices.beerstocks.data.enums.StockAction;
+import com.jonservices.beerstocks.exceptions.BeerConcurrentUpdateException;
+import com.jonservices.beerstocks.exceptions.BeerStockExceededException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+public class BeerServiceConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int UPDATES_PER_THREAD = 25;
+    private static final int MAX = 500;
+
+    @Autowired
+    private BeerService beerService;
+
+    @Autowired
+    private StockBatchService stockBatchService;
+
+    private BeerDTO beer;
+
+    @BeforeEach
+    void setupEach() {
+        beer = beerService.create(new BeerDTO(null, "Concurrency Lager", "Stress", MAX, 0));
+    }
+
+    @AfterEach
+    void tearDownEach() {
+        beerService.delete(beer.getId());
+    }
+
+    @Test // Concurrent increments
+    @DisplayName("When many threads increment the same beer then no update should be lost")
+    void whenManyThreadsIncrementTheSameBeerThenNoUpdateShouldBeLost() throws Exception {
+        // when
+        final AtomicInteger exceeded = runConcurrently(StockAction.INCREMENT, THREADS, UPDATES_PER_THREAD);
+
+        // then
+        assertThat(exceeded.get()).isZero();
+        assertThat(beerService.findById(beer.getId()).getQuantity()).isEqualTo(THREADS * UPDATES_PER_THREAD);
+    }
+
+    @Test // Concurrent increments over the limit
+    @DisplayName("When concurrent increments exceed max then exactly the overflowing ones should fail")
+    void whenConcurrentIncrementsExceedMaxThenExactlyTheOverflowingOnesShouldFail() throws Exception {
+        // given
+        final int updatesPerThread = 40; // 16 * 40 = 640 attempts for a max of 500
+
+        // when
+        final AtomicInteger exceeded = runConcurrently(StockAction.INCREMENT, THREADS, updatesPerThread);
+
+        // then
+        assertThat(exceeded.get()).isEqualTo(THREADS * updatesPerThread - MAX);
+        assertThat(beerService.findById(beer.getId()).getQuantity()).isEqualTo(MAX);
+    }
+
+    @Test // Concurrent increments and decrements
+    @DisplayName("When threads increment and decrement the same beer concurrently then quantity should stay consistent")
+    void whenThreadsIncrementAndDecrementConcurrentlyThenQuantityShouldStayConsistent() throws Exception {
+        // given
+        beerService.updateStock(beer.getId(), MAX / 2, StockAction.INCREMENT);
+
+        // when
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            final StockAction action = thread % 2 == 0 ? StockAction.INCREMENT : StockAction.DECREMENT;
+            futures.add(executor.submit(stockUpdates(start, action, UPDATES_PER_THREAD, new AtomicInteger())));
+        }
+        start.countDown();
+        for (Future<?> future : futures)
+            future.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        // then
+        assertThat(beerService.findById(beer.getId()).getQuantity()).isEqualTo(MAX / 2);
+    }
+
+    @Test // Concurrent reads and updates
+    @DisplayName("When beers are read while their stock is updated then no stale quantity should stay cached")
+    void whenBeersAreReadWhileTheirStockIsUpdatedThenNoStaleQuantityShouldStayCached() throws Exception {
+        // given
+        final ExecutorService readers = Executors.newFixedThreadPool(4);
+        final AtomicBoolean updating = new AtomicBoolean(true);
+        final List<Future<?>> reads = new ArrayList<>();
+        for (int reader = 0; reader < 4; reader++)
+            reads.add(readers.submit(() -> {
+                while (updating.get())
+                    beerService.findById(beer.getId());
+            }));
+
+        // when
+        runConcurrently(StockAction.INCREMENT, THREADS / 2, UPDATES_PER_THREAD);
+        updating.set(false);
+        for (Future<?> read : reads)
+            read.get(30, TimeUnit.SECONDS);
+        readers.shutdown();
+
+        // then
+        assertThat(beerService.findById(beer.getId()).getQuantity()).isEqualTo(THREADS / 2 * UPDATES_PER_THREAD);
+        assertThat(beerService.findByName(beer.getName()).getQuantity()).isEqualTo(THREADS / 2 * UPDATES_PER_THREAD);
+    }
+
+    @Test // Concurrent batches and single updates
+    @DisplayName("When batches and single updates hit the same beer concurrently then no update should be lost")
+    void whenBatchesAndSingleUpdatesHitTheSameBeerConcurrentlyThenNoUpdateShouldBeLost() throws Exception {
+        // given
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicInteger conflicts = new AtomicInteger();
+        final List<Future<?>> futures = new ArrayList<>();
+        final StockBatchDTO batch = new StockBatchDTO(BatchMode.ATOMIC, Arrays.asList(
+                new StockMovementDTO(beer.getId(), StockAction.INCREMENT, 1),
+                new StockMovementDTO(beer.getId(), StockAction.INCREMENT, 1)));
+
+        // when
+        for (int thread = 0; thread < THREADS; thread++) {
+            final boolean batching = thread % 2 == 0;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int update = 0; update < 10; update++) {
+                    if (batching) {
+                        try {
+                            stockBatchService.updateStock(batch);
+                        } catch (BeerConcurrentUpdateException e) {
+                            conflicts.incrementAndGet(); // Retry budget exhausted, nothing was applied
+                        }
+                    } else
+                        beerService.updateStock(beer.getId(), 2, StockAction.INCREMENT);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures)
+            future.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        // then
+        assertThat(beerService.findById(beer.getId()).getQuantity()).isEqualTo((THREADS * 10 - conflicts.get()) * 2);
+    }
+
+    private AtomicInteger runConcurrently(StockAction action, int threads, int updatesPerThread) throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicInteger exceeded = new AtomicInteger();
+        final List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < threads; thread++)
+            futures.add(executor.submit(stockUpdates(start, action, updatesPerThread, exceeded)));
+        start.countDown();
+        for (Future<?> future : futures)
+            future.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+        return exceeded;
+    }
+
+    private Callable<Void> stockUpdates(CountDownLatch start, StockAction action, int updates, AtomicInteger exceeded) {
+        return () -> {
+            start.await();
+            for (int update = 0; update < updates; update++) {
+                try {
+                    beerService.updateStock(beer.getId(), 1, action);
+                } catch (BeerStockExceededException e) {
+                    exceeded.incrementAndGet();
+                }
+            }
+            return null;
+        };
+    }
+
+}
@@ -0,0 +1,229 @@
+package com.jonservices.beerstocks.service;
+
+import com.jonservices.beerstocks.data.dto.BeerDTO;
+import com.jonservices.beerstocks.data.dto.BeerFilterDTO;
+import com.jonservices.beerstocks.data.dto.BeerPageDTO;
+import com.jonservices.beerstocks.data.dto.BeerStockDTO;
+import com.jonservices.beerstocks.data.dto.StockTransferDTO;
+import com.jonservices.beerstocks.data.enums.StockAction;
+import com.jonservices.beerstocks.data.model.BeerStock;
+import com.jonservices.beerstocks.events.BeerChangedEvent;
+import com.jonservices.beerstocks.exceptions.BeerAlreadyRegisteredException;
+import com.jonservices.beerstocks.exceptions.BeerLocationStockExceededException;
+import com.jonservices.beerstocks.exceptions.BeerNotFoundException;
+import com.jonservices.beerstocks.exceptions.BeerStockExceededException;
+import com.jonservices.beerstocks.store.BeerStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.jonservices.beerstocks.mocks.BeerTestMocks.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+
+/**
+ * Scenarios every {@link BeerStore} must pass, run through the application's {@link BeerService} by
+ * {@link JpaBeerServiceTest} on the embedded database and by {@link InMemoryBeerServiceTest} with the
+ * {@code memory} profile. The beers of each test get a brand of their own and are deleted afterwards, so the
+ * scenarios hold whatever else the store holds.
+ */
+@SpringBootTest
+@RecordApplicationEvents
+public abstract class BeerServiceContractTest {
+
+    protected static final String CONTRACT_BRAND = "Contract Brewery";
+
+    @Autowired
+    protected BeerService beerService;
+
+    @Autowired
+    protected BeerStore beerStore;
+
+    @Autowired
+    private ApplicationEvents applicationEvents;
+
+    private final List<Long> createdIds = new ArrayList<>();
+
+    @AfterEach
+    void tearDownEach() {
+        // Through the service, so that caches and in-memory totals forget them before the next tests
+        for (Long id : createdIds) {
+            if (beerStore.findById(id).isEmpty())
+                continue;
+            try {
+                beerService.delete(id);
+            } catch (BeerNotFoundException e) {
+                beerStore.delete(id); // Created straight in the store, so unknown to the existence filter
+            }
+        }
+    }
+
+    @Test // Save beer
+    @DisplayName("When beer informed then it should be created and found by its id and name")
+    void whenBeerInformedThenItShouldBeCreatedAndFoundByItsIdAndName() {
+        // when
+        final BeerDTO createdBeerDTO = create("Contract Lager", 5, 2);
+
+        // then
+        assertThat(createdBeerDTO.getId()).isNotNull();
+        assertThat(createdBeerDTO).isEqualTo(new BeerDTO(createdBeerDTO.getId(), "Contract Lager", CONTRACT_BRAND, 5, 2, 0L));
+        assertThat(beerService.findById(createdBeerDTO.getId())).isEqualTo(createdBeerDTO);
+        assertThat(beerService.findByName("Contract Lager")).isEqualTo(createdBeerDTO);
+        assertThat(beerService.findLocations(createdBeerDTO.getId()))
+                .containsExactly(new BeerStockDTO(BeerStock.DEFAULT_LOCATION, 2, 0));
+        assertThat(applicationEvents.stream(BeerChangedEvent.class))
+                .containsExactly(BeerChangedEvent.created(createdBeerDTO));
+    }
+
+    @Test // Save beer BeerAlreadyRegisteredException
+    @DisplayName("When an already registered beer is informed then it should thrown an exception")
+    void whenAnAlreadyRegisteredBeerIsInformedThenItShouldThrownAnException() {
+        // given
+        create("Contract Lager", 5, 2);
+
+        // then
+        assertThatThrownBy(() -> create("Contract Lager", 5, 2))
+                .isInstanceOf(BeerAlreadyRegisteredException.class);
+        assertThat(findContractBeers()).hasSize(1);
+    }
+
+    @Test // Increment and decrement
+    @DisplayName("Should increase and decrease total quantity in stock of a beer and bump its version")
+    void shouldIncreaseAndDecreaseTotalQuantityInStockOfABeerAndBumpItsVersion() {
+        // given
+        final BeerDTO beerDTO = create("Contract Lager", 5, 2);
+        final int quantity = VALID_QUANTITY_DTO.getQuantity();
+
+        // when
+        final BeerDTO incrementedBeerDTO = beerService.updateStock(beerDTO.getId(), quantity, StockAction.INCREMENT);
+        final BeerDTO decrementedBeerDTO = beerService.updateStock(beerDTO.getId(), quantity, StockAction.DECREMENT);
+
+        // then
+        assertThat(incrementedBeerDTO.getQuantity()).isEqualTo(5);
+        assertThat(incrementedBeerDTO.getVersion()).isEqualTo(1);
+        assertThat(decrementedBeerDTO.getQuantity()).isEqualTo(2);
+        assertThat(decrementedBeerDTO.getVersion()).isEqualTo(2);
+        assertThat(applicationEvents.stream(BeerChangedEvent.class)).containsExactly(
+                BeerChangedEvent.created(beerDTO),
+                BeerChangedEvent.stockUpdated(incrementedBeerDTO, quantity),
+                BeerChangedEvent.stockUpdated(decrementedBeerDTO, -quantity));
+    }
+
+    @Test // Stock limits
+    @DisplayName("When the stock would leave 0..max or the beer doesn't exist then it should thrown an exception")
+    void whenTheStockWouldLeaveItsLimitsOrTheBeerDoesNotExistThenItShouldThrownAnException() {
+        // given
+        final Long id = create("Contract Lager", 5, 2).getId();
+
+        // then
+        assertThatThrownBy(() -> beerService.updateStock(id, INVALID_QUANTITY_DTO.getQuantity(), StockAction.INCREMENT))
+                .isInstanceOf(BeerStockExceededException.class);
+        assertThatThrownBy(() -> beerService.updateStock(id, VALID_QUANTITY_DTO.getQuantity(), StockAction.DECREMENT))
+                .isInstanceOf(BeerStockExceededException.class);
+        assertThatThrownBy(() -> beerService.updateStock(INVALID_BEER_ID, 1, StockAction.INCREMENT))
+                .isInstanceOf(BeerNotFoundException.class);
+        assertThat(beerService.findById(id).getQuantity()).isEqualTo(2);
+    }
+
+    @Test // Locations and transfers
+    @DisplayName("When stock is added to a location and transferred then locations should add up to the quantity")
+    void whenStockIsAddedToALocationAndTransferredThenLocationsShouldAddUpToTheQuantity() {
+        // given
+        final Long id = create("Contract Lager", 5, 2).getId();
+
+        // when
+        beerService.updateStock(id, VALID_LOCATION, 3, StockAction.INCREMENT);
+        final List<BeerStockDTO> stocks = beerService.transfer(id,
+                new StockTransferDTO(VALID_LOCATION, BeerStock.DEFAULT_LOCATION, 1));
+
+        // then
+        assertThat(stocks).containsExactly(
+                new BeerStockDTO(BeerStock.DEFAULT_LOCATION, 3, 0),
+                new BeerStockDTO(VALID_LOCATION, 2, 0));
+        assertThat(beerService.findById(id).getQuantity()).isEqualTo(5);
+        assertThatThrownBy(() -> beerService.updateStock(id, VALID_LOCATION, 3, StockAction.DECREMENT))
+                .isInstanceOf(BeerLocationStockExceededException.class);
+        assertThatThrownBy(() -> beerService.transfer(id, new StockTransferDTO("store-north", VALID_LOCATION, 1)))
+                .isInstanceOf(BeerLocationStockExceededException.class);
+        assertThat(beerService.findById(id).getQuantity()).isEqualTo(5);
+    }
+
+    @Test // Delete Beer
+    @DisplayName("When a beer is deleted then it should no longer be found and its name should be free again")
+    void whenABeerIsDeletedThenItShouldNoLongerBeFoundAndItsNameShouldBeFreeAgain() {
+        // given
+        final long count = beerStore.count();
+        final Long id = create("Contract Lager", 5, 2).getId();
+
+        // when
+        beerService.delete(id);
+
+        // then
+        assertThatThrownBy(() -> beerService.findById(id)).isInstanceOf(BeerNotFoundException.class);
+        assertThatThrownBy(() -> beerService.findByName("Contract Lager")).isInstanceOf(BeerNotFoundException.class);
+        assertThatThrownBy(() -> beerService.delete(id)).isInstanceOf(BeerNotFoundException.class);
+        assertThat(create("Contract Lager", 5, 2).getId()).isGreaterThan(id);
+        assertThat(beerStore.count()).isEqualTo(count + 1);
+    }
+
+    @Test // Queries
+    @DisplayName("When beers are filtered, paged and searched then both stores should return the same beers")
+    void whenBeersAreFilteredPagedAndSearchedThenBothStoresShouldReturnTheSameBeers() {
+        // given
+        final BeerDTO lager = create("Contract Lager", 5, 2);
+        final BeerDTO stout = create("Contract Stout", 10, 5);
+        final BeerDTO lagerPuro = create("CONTRACT Lager Puro", 10, 1);
+        final BeerFilterDTO filter = new BeerFilterDTO();
+        filter.setBrand(CONTRACT_BRAND);
+        filter.setMinQuantity(1);
+        filter.setSort("quantity,desc");
+
+        // when
+        final List<BeerDTO> filteredBeers = beerService.findAll(filter);
+        final BeerPageDTO secondPage = beerService.findPage(lager.getId(), 1);
+
+        // then
+        assertThat(filteredBeers).containsExactly(stout, lager, lagerPuro);
+        assertThat(secondPage.getContent()).containsExactly(stout);
+        assertThat(secondPage.getNextCursor()).isEqualTo(stout.getId());
+        assertThat(beerService.searchByPrefix("contract l", BeerService.MAX_SEARCH_LIMIT)).containsExactly(lager, lagerPuro);
+        assertThat(beerStore.findByQuantityBelowRatioOfMax(0.2))
+                .filteredOn(beer -> beer.getBrand().equals(CONTRACT_BRAND))
+                .containsExactly(lagerPuro);
+        assertThat(beerStore.sumByBrand())
+                .filteredOn(totals -> totals.getBrand().equals(CONTRACT_BRAND))
+                .singleElement()
+                .satisfies(totals -> {
+                    assertThat(totals.getSkuCount()).isEqualTo(3);
+                    assertThat(totals.getTotalQuantity()).isEqualTo(8);
+                    assertThat(totals.getTotalCapacity()).isEqualTo(25);
+                });
+    }
+
+    protected BeerDTO create(String name, int max, int quantity) {
+        return created(beerService.create(new BeerDTO(null, name, CONTRACT_BRAND, max, quantity)));
+    }
+
+    /**
+     * Deletes the beer after the test.
+     */
+    protected BeerDTO created(BeerDTO beerDTO) {
+        createdIds.add(beerDTO.getId());
+        return beerDTO;
+    }
+
+    private List<BeerDTO> findContractBeers() {
+        return beerService.findAll().stream()
+                .filter(beer -> beer.getBrand().equals(CONTRACT_BRAND))
+                .collect(Collectors.toList());
+    }
+
+}
@@ -1,28 +1,58 @@
 package com.jonservices.beerstocks.service;
 
 import com.jonservices.beerstocks.builder.BeerDTOBuilder;
+import com.jonservices.beerstocks.cache.BeerCache;
+import com.jonservices.beerstocks.cache.BeerExistenceFilter;
 import com.jonservices.beerstocks.data.dto.BeerDTO;
+import com.jonservices.beerstocks.data.dto.BeerFilterDTO;
+import com.jonservices.beerstocks.data.dto.BeerPageDTO;
+import com.jonservices.beerstocks.data.dto.BeerStockDTO;
 import com.jonservices.beerstocks.data.dto.MessageResponseDTO;
+import com.jonservices.beerstocks.data.dto.StockTransferDTO;
 import com.jonservices.beerstocks.data.enums.StockAction;
 import com.jonservices.beerstocks.data.model.Beer;
+import com.jonservices.beerstocks.data.model.BeerStock;
+import com.jonservices.beerstocks.events.BeerChangedEvent;
+import com.jonservices.beerstocks.events.LocationStockChangedEvent;
 import com.jonservices.beerstocks.exceptions.BeerAlreadyRegisteredException;
+import com.jonservices.beerstocks.exceptions.BeerLocationStockExceededException;
 import com.jonservices.beerstocks.exceptions.BeerNotFoundException;
+import com.jonservices.beerstocks.exceptions.BeerSortNotSupportedException;
 import com.jonservices.beerstocks.exceptions.BeerStockExceededException;
 import com.jonservices.beerstocks.repository.BeerRepository;
+import com.jonservices.beerstocks.repository.BeerStockRepository;
+import com.jonservices.beerstocks.store.BeerStore;
+import com.jonservices.beerstocks.store.JpaBeerStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 
 import static com.jonservices.beerstocks.mocks.BeerTestMocks.*;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -32,14 +62,37 @@ public class BeerServiceTest {
     @Mock
     private BeerRepository beerRepository;
 
+    @Mock
+    private BeerStockRepository beerStockRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Spy
+    private OptimisticLockRetrier optimisticLockRetrier = new OptimisticLockRetrier(mock(PlatformTransactionManager.class),
+            new SimpleMeterRegistry(), 3, Duration.ZERO, Duration.ZERO);
+
+    @Spy
+    private BeerCache beerCache = new BeerCache(100, Duration.ofMinutes(1), new SimpleMeterRegistry());
+
+    @Spy
+    private BeerExistenceFilter beerExistenceFilter = new BeerExistenceFilter(mock(BeerStore.class),
+            new SimpleMeterRegistry(), 100, 0.01);
+
     @InjectMocks
     private BeerService beerService;
 
+    @BeforeEach
+    void setupEach() {
+        // The repositories are mocked, so the store is built once they are
+        ReflectionTestUtils.setField(beerService, "beerStore", new JpaBeerStore(beerRepository, beerStockRepository));
+    }
+
     @Test // Find all
     @DisplayName("Should return all registered beers")
     void shouldReturnAllRegisteredBeers() {
         // when
-        when(beerRepository.findAll()).thenReturn(ALL_BEERS);
+        when(beerRepository.findAllAsDTO()).thenReturn(ALL_BEERS_DTO);
         final List<BeerDTO> returnedBeersDTOList = beerService.findAll();
 
         // then
@@ -47,6 +100,68 @@ public class BeerServiceTest {
         assertThat(returnedBeersDTOList).isEqualTo(ALL_BEERS_DTO);
     }
 
+    @Test // Find filtered
+    @DisplayName("When beers are filtered then the specification should be queried with the requested sort")
+    void whenBeersAreFilteredThenTheSpecificationShouldBeQueriedWithTheRequestedSort() {
+        // given
+        final BeerFilterDTO filter = new BeerFilterDTO(EXPECTED_BEER_DTO.getBrand(), null, null, null, null, "quantity,desc");
+
+        // when
+        when(beerRepository.findAllAsDTO(ArgumentMatchers.<Specification<Beer>>any(), eq(Sort.by(Sort.Direction.DESC, "quantity"))))
+                .thenReturn(ALL_BEERS_DTO.subList(0, 1));
+        final List<BeerDTO> returnedBeersDTOList = beerService.findAll(filter);
+
+        // then
+        assertThat(returnedBeersDTOList).containsExactly(EXPECTED_BEER_DTO);
+    }
+
+    @Test // Find filtered BeerSortNotSupportedException
+    @DisplayName("When beers are sorted by an unsupported property then an exception should be thrown")
+    void whenBeersAreSortedByAnUnsupportedPropertyThenAnExceptionShouldBeThrown() {
+        // given
+        final BeerFilterDTO filter = new BeerFilterDTO(null, null, null, null, null, "version,desc");
+
+        // then
+        assertThatThrownBy(() -> beerService.findAll(filter)).isInstanceOf(BeerSortNotSupportedException.class);
+        verify(beerRepository, never()).findAllAsDTO(ArgumentMatchers.<Specification<Beer>>any(), any(Sort.class));
+    }
+
+    @Test // Find page
+    @DisplayName("When a page is requested then the beers after the cursor and the next cursor should be returned")
+    void whenAPageIsRequestedThenTheBeersAfterTheCursorAndTheNextCursorShouldBeReturned() {
+        // when
+        when(beerRepository.findAsDTOByIdGreaterThan(0L, PageRequest.of(0, 2))).thenReturn(ALL_BEERS_DTO);
+        final BeerPageDTO returnedPage = beerService.findPage(null, 1);
+
+        // then
+        assertThat(returnedPage.getContent()).containsExactly(EXPECTED_BEER_DTO);
+        assertThat(returnedPage.getNextCursor()).isEqualTo(EXPECTED_BEER_DTO.getId());
+    }
+
+    @Test // Find last page
+    @DisplayName("When the last page is requested then no next cursor should be returned")
+    void whenTheLastPageIsRequestedThenNoNextCursorShouldBeReturned() {
+        // when
+        when(beerRepository.findAsDTOByIdGreaterThan(VALID_BEER_ID, PageRequest.of(0, 3))).thenReturn(ALL_BEERS_DTO.subList(1, 2));
+        final BeerPageDTO returnedPage = beerService.findPage(VALID_BEER_ID, 2);
+
+        // then
+        assertThat(returnedPage.getContent()).containsExactly(ANOTHER_BEER_DTO);
+        assertThat(returnedPage.getNextCursor()).isNull();
+    }
+
+    @Test // Search by prefix
+    @DisplayName("When beers are searched by prefix then the lower cased prefix range should be queried")
+    void whenBeersAreSearchedByPrefixThenTheLowerCasedPrefixRangeShouldBeQueried() {
+        // when
+        when(beerRepository.searchByNormalizedNameBetween("sk", "sk" + Character.MAX_VALUE, BeerService.MAX_SEARCH_LIMIT))
+                .thenReturn(ALL_BEERS_DTO.subList(0, 1));
+        final List<BeerDTO> returnedBeersDTOList = beerService.searchByPrefix("Sk", 1000);
+
+        // then
+        assertThat(returnedBeersDTOList).containsExactly(EXPECTED_BEER_DTO);
+    }
+
     @Test // Find by id
     @DisplayName("When registered beer searched by its id then it should be returned")
     void whenRegisteredBeerSearchedByItsIdThenItShouldBeReturned() {
@@ -72,6 +187,31 @@ public class BeerServiceTest {
         assertThat(returnedBeerDTO).isEqualTo(EXPECTED_BEER_DTO);
     }
 
+    @Test // Find by id cached
+    @DisplayName("When a beer is searched twice by its id then the database should be queried once")
+    void whenABeerIsSearchedTwiceByItsIdThenTheDatabaseShouldBeQueriedOnce() {
+        // when
+        when(beerRepository.findById(VALID_BEER_ID)).thenReturn(EXPECTED_OPTIONAL_BEER);
+        beerService.findById(VALID_BEER_ID);
+        final BeerDTO returnedBeerDTO = beerService.findByName(VALID_BEER_NAME);
+
+        // then
+        verify(beerRepository, times(1)).findById(VALID_BEER_ID);
+        verify(beerRepository, never()).findByName(VALID_BEER_NAME);
+        assertThat(returnedBeerDTO).isEqualTo(EXPECTED_BEER_DTO);
+    }
+
+    @Test // Find by id ruled out by the existence filter
+    @DisplayName("When the existence filter rules out an id then it should thrown an exception without querying")
+    void whenTheExistenceFilterRulesOutAnIdThenItShouldThrownAnExceptionWithoutQuerying() {
+        // when
+        doReturn(false).when(beerExistenceFilter).mightContain(INVALID_BEER_ID);
+
+        // then
+        assertThatThrownBy(() -> beerService.findById(INVALID_BEER_ID)).isInstanceOf(BeerNotFoundException.class);
+        verify(beerRepository, never()).findById(INVALID_BEER_ID);
+    }
+
     @Test // Save beer
     @DisplayName("When beer informed then it should be created")
     void whenBeerInformedThenItShouldBeCreated() {
@@ -81,6 +221,7 @@ public class BeerServiceTest {
 
         // then
         assertThat(returnedBeerDTO).isEqualTo(EXPECTED_BEER_DTO);
+        verify(beerStockRepository).save(BeerStock.of(EXPECTED_BEER.getId(), BeerStock.DEFAULT_LOCATION, EXPECTED_BEER.getQuantity()));
     }
 
     @Test // Increment
@@ -89,17 +230,19 @@ public class BeerServiceTest {
         // given
         final Beer expectedBeerToIncrementStock = BEER_MAPPER.toModel(BeerDTOBuilder.builder().build().toBeerDTO());
         final int quantityToIncrement = VALID_QUANTITY_DTO.getQuantity();
+        expectedBeerToIncrementStock.setQuantity(expectedBeerToIncrementStock.getQuantity() + quantityToIncrement);
 
         // when
-        when(beerRepository.findById(VALID_BEER_ID)).thenReturn(Optional.of(expectedBeerToIncrementStock));
-        beerService.updateStock(VALID_BEER_ID, quantityToIncrement, StockAction.INCREMENT);
-
-        // ArgumentCaptor
-        ArgumentCaptor<Beer> argumentCaptor = ArgumentCaptor.forClass(Beer.class);
-        verify(beerRepository).save(argumentCaptor.capture());
-        final Beer returnedBeerDTO = argumentCaptor.getValue();
+        when(beerRepository.updateQuantity(VALID_BEER_ID, quantityToIncrement)).thenReturn(Optional.of(BEER_MAPPER.toDTO(expectedBeerToIncrementStock)));
+        when(beerStockRepository.updateQuantity(VALID_BEER_ID, BeerStock.DEFAULT_LOCATION, quantityToIncrement)).thenReturn(1);
+        final BeerDTO returnedBeerDTO = beerService.updateStock(VALID_BEER_ID, quantityToIncrement, StockAction.INCREMENT);
 
         // then
+        verify(beerRepository).updateQuantity(VALID_BEER_ID, quantityToIncrement);
+        verify(beerRepository, never()).findById(VALID_BEER_ID); // The update returns the updated row
+        verify(beerStockRepository).updateQuantity(VALID_BEER_ID, BeerStock.DEFAULT_LOCATION, quantityToIncrement);
+        verify(eventPublisher).publishEvent(BeerChangedEvent.stockUpdated(returnedBeerDTO, quantityToIncrement));
+        verify(beerRepository, never()).save(any(Beer.class));
         assertThat(returnedBeerDTO.getQuantity()).isEqualTo(5);
     }
 
@@ -110,20 +253,61 @@ public class BeerServiceTest {
         final Beer expectedBeerToDecrementStock = BEER_MAPPER.toModel(BeerDTOBuilder.builder().build().aDifferentOne());
         final int quantityToDecrement = VALID_QUANTITY_DTO.getQuantity();
         final long beerId = expectedBeerToDecrementStock.getId();
+        expectedBeerToDecrementStock.setQuantity(expectedBeerToDecrementStock.getQuantity() - quantityToDecrement);
 
         // when
-        when(beerRepository.findById(beerId)).thenReturn(Optional.of(expectedBeerToDecrementStock));
-        beerService.updateStock(beerId, quantityToDecrement, StockAction.DECREMENT);
-
-        // ArgumentCaptor
-        ArgumentCaptor<Beer> argumentCaptor = ArgumentCaptor.forClass(Beer.class);
-        verify(beerRepository).save(argumentCaptor.capture());
-        final Beer returnedBeerDTO = argumentCaptor.getValue();
+        when(beerRepository.updateQuantity(beerId, -quantityToDecrement)).thenReturn(Optional.of(BEER_MAPPER.toDTO(expectedBeerToDecrementStock)));
+        when(beerStockRepository.updateQuantity(beerId, BeerStock.DEFAULT_LOCATION, -quantityToDecrement)).thenReturn(1);
+        final BeerDTO returnedBeerDTO = beerService.updateStock(beerId, quantityToDecrement, StockAction.DECREMENT);
 
         // then
+        verify(beerRepository).updateQuantity(beerId, -quantityToDecrement);
+        verify(beerStockRepository).updateQuantity(beerId, BeerStock.DEFAULT_LOCATION, -quantityToDecrement);
+        verify(beerRepository, never()).save(any(Beer.class));
         assertThat(returnedBeerDTO.getQuantity()).isEqualTo(2);
     }
 
+    @Test // Increment new location
+    @DisplayName("When stock is first added to a location then the location should be created")
+    void whenStockIsFirstAddedToALocationThenTheLocationShouldBeCreated() {
+        // given
+        final Beer expectedBeerToIncrementStock = BEER_MAPPER.toModel(BeerDTOBuilder.builder().build().toBeerDTO());
+        final int quantityToIncrement = VALID_QUANTITY_DTO.getQuantity();
+        expectedBeerToIncrementStock.setQuantity(expectedBeerToIncrementStock.getQuantity() + quantityToIncrement);
+
+        // when
+        when(beerRepository.updateQuantity(VALID_BEER_ID, quantityToIncrement)).thenReturn(Optional.of(BEER_MAPPER.toDTO(expectedBeerToIncrementStock)));
+        when(beerStockRepository.updateQuantity(VALID_BEER_ID, VALID_LOCATION, quantityToIncrement)).thenReturn(0);
+        final BeerDTO returnedBeerDTO = beerService.updateStock(VALID_BEER_ID, VALID_LOCATION, quantityToIncrement, StockAction.INCREMENT);
+
+        // then
+        verify(beerStockRepository).save(BeerStock.of(VALID_BEER_ID, VALID_LOCATION, quantityToIncrement));
+        assertThat(returnedBeerDTO.getQuantity()).isEqualTo(5);
+    }
+
+    @Test // Transfer
+    @DisplayName("When stock is transferred then it should leave the source location and reach the destination")
+    void whenStockIsTransferredThenItShouldLeaveTheSourceLocationAndReachTheDestination() {
+        // given
+        final StockTransferDTO stockTransferDTO = new StockTransferDTO(BeerStock.DEFAULT_LOCATION, VALID_LOCATION, 2);
+
+        // when
+        when(beerRepository.incrementVersion(VALID_BEER_ID)).thenReturn(1);
+        when(beerStockRepository.updateQuantity(VALID_BEER_ID, BeerStock.DEFAULT_LOCATION, -2)).thenReturn(1);
+        when(beerStockRepository.updateQuantity(VALID_BEER_ID, VALID_LOCATION, 2)).thenReturn(1);
+        when(beerStockRepository.findByIdBeerIdOrderByIdLocationId(VALID_BEER_ID)).thenReturn(List.of(
+                BeerStock.of(VALID_BEER_ID, BeerStock.DEFAULT_LOCATION, 0),
+                BeerStock.of(VALID_BEER_ID, VALID_LOCATION, 2)));
+        final List<BeerStockDTO> returnedStocks = beerService.transfer(VALID_BEER_ID, stockTransferDTO);
+
+        // then
+        assertThat(returnedStocks).containsExactly(
+                new BeerStockDTO(BeerStock.DEFAULT_LOCATION, 0, 0),
+                new BeerStockDTO(VALID_LOCATION, 2, 0));
+        verify(eventPublisher).publishEvent(new LocationStockChangedEvent(VALID_BEER_ID));
+        verify(eventPublisher, never()).publishEvent(any(BeerChangedEvent.class));
+    }
+
     @Test // Delete Beer
     @DisplayName("Should delete beer by its id")
     void shouldDeleteBeerByItsId() {
@@ -136,6 +320,7 @@ public class BeerServiceTest {
         final MessageResponseDTO returnedMessageResponseDTO = beerService.delete(VALID_BEER_ID);
 
         // then
+        verify(beerRepository).delete(EXPECTED_OPTIONAL_BEER.get());
         assertThat(expectedMessageResponseDTO).isEqualTo(returnedMessageResponseDTO);
     }
 
@@ -183,6 +368,7 @@ public class BeerServiceTest {
         final int quantityToIncrement = INVALID_QUANTITY_DTO.getQuantity();
 
         // when
+        when(beerRepository.updateQuantity(VALID_BEER_ID, quantityToIncrement)).thenReturn(Optional.empty());
         when(beerRepository.findById(VALID_BEER_ID)).thenReturn(Optional.of(expectedBeerToIncrementStock));
 
         // then
@@ -190,4 +376,37 @@ public class BeerServiceTest {
                 .isInstanceOf(BeerStockExceededException.class)
                 .hasMessageContaining("Quantity is less than 0 or stock exceeds max quantity of: %s", expectedBeerToIncrementStock.getMax());
     }
+
+    @Test // Increment BeerNotFoundException
+    @DisplayName("When stock of an unregistered beer is updated then it should thrown an exception")
+    void whenStockOfAnUnregisteredBeerIsUpdatedThenItShouldThrownAnException() {
+        // given
+        final int quantityToIncrement = VALID_QUANTITY_DTO.getQuantity();
+
+        // when
+        when(beerRepository.updateQuantity(INVALID_BEER_ID, quantityToIncrement)).thenReturn(Optional.empty());
+        when(beerRepository.findById(INVALID_BEER_ID)).thenReturn(Optional.empty());
+
+        // then
+        assertThatThrownBy(() -> beerService.updateStock(INVALID_BEER_ID, quantityToIncrement, StockAction.INCREMENT))
+                .isInstanceOf(BeerNotFoundException.class)
+                .hasMessageContaining("Beer not found with id %s", INVALID_BEER_ID);
+    }
+
+    @Test // Transfer BeerLocationStockExceededException
+    @DisplayName("When a transfer exceeds the stock of the source location then it should thrown an exception")
+    void whenATransferExceedsTheStockOfTheSourceLocationThenItShouldThrownAnException() {
+        // given
+        final StockTransferDTO stockTransferDTO = new StockTransferDTO(VALID_LOCATION, BeerStock.DEFAULT_LOCATION, 2);
+
+        // when
+        when(beerRepository.incrementVersion(VALID_BEER_ID)).thenReturn(1);
+        when(beerStockRepository.updateQuantity(VALID_BEER_ID, VALID_LOCATION, -2)).thenReturn(0);
+
+        // then
+        assertThatThrownBy(() -> beerService.transfer(VALID_BEER_ID, stockTransferDTO))
+                .isInstanceOf(BeerLocationStockExceededException.class)
+                .hasMessageContaining("Quantity is greater than the stock at location: %s", VALID_LOCATION);
+        verify(beerStockRepository, never()).updateQuantity(VALID_BEER_ID, BeerStock.DEFAULT_LOCATION, 2);
+    }
 }
@@ -0,0 +1,131 @@
+package com.jonservices.beerstocks.service;
+
+import com.jonservices.beerstocks.data.dto.BeerDTO;
+import com.jonservices.beerstocks.data.dto.BeerStockDTO;
+import com.jonservices.beerstocks.data.enums.StockAction;
+import com.jonservices.beerstocks.data.model.BeerStock;
+import com.jonservices.beerstocks.exceptions.BeerAlreadyRegisteredException;
+import com.jonservices.beerstocks.exceptions.BeerStockExceededException;
+import com.jonservices.beerstocks.store.InMemoryBeerStore;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.jonservices.beerstocks.mocks.BeerTestMocks.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+
+/**
+ * Runs the {@link BeerServiceContractTest} scenarios against the {@link InMemoryBeerStore}, along with the
+ * ones that only apply to it.
+ */
+@ActiveProfiles("memory")
+public class InMemoryBeerServiceTest extends BeerServiceContractTest {
+
+    @Test // Concurrent registrations of a name
+    @DisplayName("When a registered name reaches the store again then it should thrown an exception and give its slot back")
+    void whenARegisteredNameReachesTheStoreAgainThenItShouldThrownAnExceptionAndGiveItsSlotBack() {
+        // given
+        final Long id = create("Contract Lager", 5, 2).getId();
+
+        // then
+        assertThatThrownBy(() -> beerStore.create(new BeerDTO(null, "Contract Lager", CONTRACT_BRAND, 5, 2)))
+                .isInstanceOf(BeerAlreadyRegisteredException.class);
+        assertThat(create("Contract Stout", 5, 2).getId()).isEqualTo(id + 1); // The rejected beer's slot is taken again
+    }
+
+    @Test // Name index growth
+    @DisplayName("When many beers are registered then every one should still be found by its name")
+    void whenManyBeersAreRegisteredThenEveryOneShouldStillBeFoundByItsName() {
+        // given
+        final long count = beerStore.count();
+        final List<Long> ids = new ArrayList<>();
+
+        // when
+        for (int i = 0; i < 5000; i++)
+            ids.add(created(beerStore.create(new BeerDTO(null, "Lager " + i, "Brand " + i % 7, 10, 5))).getId());
+        for (int i = 0; i < 5000; i += 2)
+            beerStore.delete(ids.get(i));
+
+        // then
+        for (int i = 0; i < 5000; i++)
+            assertThat(beerStore.findByName("Lager " + i).map(BeerDTO::getId)).isEqualTo(
+                    i % 2 == 0 ? Optional.empty() : Optional.of(ids.get(i)));
+        assertThat(beerStore.count()).isEqualTo(count + 2500);
+    }
+
+    @Test // Name index and low stock scan
+    @DisplayName("When beers differing in case are registered, deleted and updated then prefix and low stock queries should follow")
+    void whenBeersDifferingInCaseAreRegisteredDeletedAndUpdatedThenPrefixAndLowStockQueriesShouldFollow() {
+        // given
+        final BeerDTO lowerCase = create("pilsen", 10, 5);
+        final BeerDTO upperCase = create("PILSEN", 10, 1);
+        final BeerDTO pilsenExtra = create("Pilsen Extra", 10, 9);
+        final BeerDTO empty = create("Pilsen Zero", 0, 0);
+
+        // when
+        beerService.delete(upperCase.getId());
+        final BeerDTO decrementedBeer = beerService.updateStock(pilsenExtra.getId(), 8, StockAction.DECREMENT);
+        beerService.updateStock(lowerCase.getId(), 2, StockAction.DECREMENT);
+        final BeerDTO incrementedBeer = beerService.updateStock(lowerCase.getId(), 2, StockAction.INCREMENT);
+
+        // then
+        assertThat(beerService.searchByPrefix("PILS", BeerService.MAX_SEARCH_LIMIT))
+                .containsExactly(incrementedBeer, decrementedBeer, empty);
+        assertThat(beerService.searchByPrefix("pilsen e", 1)).containsExactly(decrementedBeer);
+        assertThat(beerStore.findByQuantityBelowRatioOfMax(0.2)).containsExactly(decrementedBeer);
+        assertThat(beerStore.findByQuantityBelowRatioOfMax(0.5)).containsExactly(decrementedBeer);
+        assertThat(beerStore.findByQuantityBelowRatioOfMax(0.51)).containsExactly(incrementedBeer, decrementedBeer);
+    }
+
+    @Test // Concurrent increments and decrements
+    @DisplayName("When many threads update the same beer then no update should be lost and only overflows should fail")
+    void whenManyThreadsUpdateTheSameBeerThenNoUpdateShouldBeLostAndOnlyOverflowsShouldFail() throws Exception {
+        // given
+        final int threads = 16;
+        final int updatesPerThread = 1000;
+        final Long id = create("Concurrency Lager", 5000, 0).getId();
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicInteger exceeded = new AtomicInteger();
+        final List<Future<?>> futures = new ArrayList<>();
+
+        // when
+        for (int thread = 0; thread < threads; thread++) {
+            final String location = thread % 2 == 0 ? BeerStock.DEFAULT_LOCATION : VALID_LOCATION;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int update = 0; update < updatesPerThread; update++) {
+                    try {
+                        beerService.updateStock(id, location, 1, StockAction.INCREMENT);
+                    } catch (BeerStockExceededException e) {
+                        exceeded.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures)
+            future.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        // then
+        assertThat(exceeded.get()).isEqualTo(threads * updatesPerThread - 5000);
+        assertThat(beerService.findById(id).getQuantity()).isEqualTo(5000);
+        assertThat(beerService.findLocations(id).stream().mapToInt(BeerStockDTO::getQuantity).sum()).isEqualTo(5000);
+        assertThat(beerStore.findByQuantityBelowRatioOfMax(1.01)).extracting(BeerDTO::getId).containsExactly(id);
+        assertThat(beerStore.findByQuantityBelowRatioOfMax(1.0)).isEmpty();
+    }
+
+}
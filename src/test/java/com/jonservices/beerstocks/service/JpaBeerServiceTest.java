@@ -0,0 +1,9 @@
+package com.jonservices.beerstocks.service;
+
+/**
+ * Runs the {@link BeerServiceContractTest} scenarios against the {@link com.jonservices.beerstocks.store.JpaBeerStore}
+ * on the embedded database.
+ */
+public class JpaBeerServiceTest extends BeerServiceContractTest {
+
+}
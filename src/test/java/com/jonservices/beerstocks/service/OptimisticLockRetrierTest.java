@@ -0,0 +1,65 @@
+package com.jonservices.beerstocks.service;
+
+import com.jonservices.beerstocks.exceptions.BeerConcurrentUpdateException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+public class OptimisticLockRetrierTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private OptimisticLockRetrier optimisticLockRetrier;
+
+    @BeforeEach
+    void setupEach() {
+        meterRegistry = new SimpleMeterRegistry();
+        optimisticLockRetrier = new OptimisticLockRetrier(mock(PlatformTransactionManager.class), meterRegistry,
+                3, Duration.ofMillis(1), Duration.ofMillis(2));
+    }
+
+    @Test // Retried conflict
+    @DisplayName("When an action conflicts fewer times than the attempts then it should be retried until it succeeds")
+    void whenAnActionConflictsFewerTimesThanTheAttemptsThenItShouldBeRetriedUntilItSucceeds() {
+        // given
+        final AtomicInteger attempts = new AtomicInteger();
+
+        // when
+        final String result = optimisticLockRetrier.execute("test", () -> {
+            if (attempts.incrementAndGet() < 3)
+                throw new ObjectOptimisticLockingFailureException("Beer", 1L);
+            return "done";
+        });
+
+        // then
+        assertThat(result).isEqualTo("done");
+        assertThat(meterRegistry.get("beer.optimistic.conflicts").counter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("beer.optimistic.retries").counter().count()).isEqualTo(2);
+    }
+
+    @Test // Exhausted retries
+    @DisplayName("When an action keeps conflicting then a concurrent update exception should be thrown")
+    void whenAnActionKeepsConflictingThenAConcurrentUpdateExceptionShouldBeThrown() {
+        // given
+        final AtomicInteger attempts = new AtomicInteger();
+
+        // then
+        assertThatThrownBy(() -> optimisticLockRetrier.execute("test", () -> {
+            attempts.incrementAndGet();
+            throw new ObjectOptimisticLockingFailureException("Beer", 1L);
+        })).isInstanceOf(BeerConcurrentUpdateException.class);
+        assertThat(attempts.get()).isEqualTo(3);
+        assertThat(meterRegistry.get("beer.optimistic.exhausted").counter().count()).isEqualTo(1);
+    }
+
+}
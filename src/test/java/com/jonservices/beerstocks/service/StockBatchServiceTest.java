@@ -0,0 +1,178 @@
+package com.jonservices.beerstocks.service;
+
+import com.jonservices.beerstocks.builder.BeerDTOBuilder;
+import com.jonservices.beerstocks.data.dto.StockBatchDTO;
+import com.jonservices.beerstocks.data.dto.StockBatchResultDTO;
+import com.jonservices.beerstocks.data.dto.StockMovementDTO;
+import com.jonservices.beerstocks.data.enums.BatchMode;
+import com.jonservices.beerstocks.data.enums.MovementStatus;
+import com.jonservices.beerstocks.data.enums.StockAction;
+import com.jonservices.beerstocks.data.model.Beer;
+import com.jonservices.beerstocks.data.model.BeerStock;
+import com.jonservices.beerstocks.events.BeerChangedEvent;
+import com.jonservices.beerstocks.repository.BeerRepository;
+import com.jonservices.beerstocks.repository.BeerStockRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.jonservices.beerstocks.mocks.BeerTestMocks.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class StockBatchServiceTest {
+
+    @Mock
+    private BeerRepository beerRepository;
+
+    @Mock
+    private BeerStockRepository beerStockRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Spy
+    private OptimisticLockRetrier optimisticLockRetrier = new OptimisticLockRetrier(mock(PlatformTransactionManager.class),
+            new SimpleMeterRegistry(), 3, Duration.ZERO, Duration.ZERO);
+
+    @InjectMocks
+    private StockBatchService stockBatchService;
+
+    @Test // Merge movements
+    @DisplayName("When a batch has several movements for the same beer then they should be merged before writing")
+    void whenABatchHasSeveralMovementsForTheSameBeerThenTheyShouldBeMerged() {
+        // given
+        final Beer beer = BEER_MAPPER.toModel(BeerDTOBuilder.builder().build().toBeerDTO()); // max 5, quantity 2
+        final StockBatchDTO stockBatchDTO = new StockBatchDTO(BatchMode.ATOMIC, Arrays.asList(
+                new StockMovementDTO(VALID_BEER_ID, StockAction.INCREMENT, 3),
+                new StockMovementDTO(VALID_BEER_ID, StockAction.INCREMENT, 3),
+                new StockMovementDTO(VALID_BEER_ID, StockAction.DECREMENT, 4)));
+
+        // when
+        final BeerStock stock = BeerStock.of(VALID_BEER_ID, BeerStock.DEFAULT_LOCATION, 2);
+        when(beerRepository.findAllById(anyIterable())).thenReturn(Collections.singletonList(beer));
+        when(beerStockRepository.findAllById(anyIterable())).thenReturn(Collections.singletonList(stock));
+        final StockBatchResultDTO result = stockBatchService.updateStock(stockBatchDTO);
+
+        // then
+        assertThat(beer.getQuantity()).isEqualTo(4);
+        assertThat(stock.getQuantity()).isEqualTo(4);
+        assertThat(result.getApplied()).isEqualTo(3);
+        assertThat(result.getResults()).allMatch(movement -> movement.getResultingQuantity() == 4);
+    }
+
+    @Test // Atomic batch rejected
+    @DisplayName("When a movement of an atomic batch is rejected then no movement should be applied")
+    void whenAMovementOfAnAtomicBatchIsRejectedThenNoMovementShouldBeApplied() {
+        // given
+        final List<Beer> beers = Arrays.asList(
+                BEER_MAPPER.toModel(BeerDTOBuilder.builder().build().toBeerDTO()),
+                BEER_MAPPER.toModel(BeerDTOBuilder.builder().build().aDifferentOne()));
+        final StockBatchDTO stockBatchDTO = new StockBatchDTO(BatchMode.ATOMIC, Arrays.asList(
+                new StockMovementDTO(1L, StockAction.INCREMENT, 1),
+                new StockMovementDTO(2L, StockAction.DECREMENT, 30),
+                new StockMovementDTO(INVALID_BEER_ID, StockAction.INCREMENT, 1)));
+
+        // when
+        when(beerRepository.findAllById(anyIterable())).thenReturn(beers);
+        final StockBatchResultDTO result = stockBatchService.updateStock(stockBatchDTO);
+
+        // then
+        assertThat(beers.get(0).getQuantity()).isEqualTo(2);
+        assertThat(beers.get(1).getQuantity()).isEqualTo(5);
+        assertThat(result.getApplied()).isZero();
+        assertThat(result.getResults()).extracting("status")
+                .containsExactly(MovementStatus.NOT_APPLIED, MovementStatus.REJECTED, MovementStatus.REJECTED);
+        assertThat(result.getResults().get(2).getMessage()).isEqualTo("Beer not found with id " + INVALID_BEER_ID);
+    }
+
+    @Test // Best effort batch
+    @DisplayName("When a movement of a best effort batch is rejected then the other movements should be applied")
+    void whenAMovementOfABestEffortBatchIsRejectedThenTheOtherMovementsShouldBeApplied() {
+        // given
+        final List<Beer> beers = Arrays.asList(
+                BEER_MAPPER.toModel(BeerDTOBuilder.builder().build().toBeerDTO()),
+                BEER_MAPPER.toModel(BeerDTOBuilder.builder().build().aDifferentOne()));
+        final StockBatchDTO stockBatchDTO = new StockBatchDTO(BatchMode.BEST_EFFORT, Arrays.asList(
+                new StockMovementDTO(1L, StockAction.INCREMENT, 1),
+                new StockMovementDTO(2L, StockAction.DECREMENT, 30)));
+
+        // when
+        when(beerRepository.findAllById(anyIterable())).thenReturn(beers);
+        final StockBatchResultDTO result = stockBatchService.updateStock(stockBatchDTO);
+
+        // then
+        assertThat(beers.get(0).getQuantity()).isEqualTo(3);
+        assertThat(beers.get(1).getQuantity()).isEqualTo(5);
+        assertThat(result.getApplied()).isEqualTo(1);
+        assertThat(result.getRejected()).isEqualTo(1);
+        assertThat(result.getResults().get(1).getMessage())
+                .isEqualTo("Quantity is less than 0 or stock exceeds max quantity of: 10");
+    }
+
+    @Test // Best effort movements of the same beer
+    @DisplayName("When a movement of a best effort batch is rejected then the other movements of the same beer should be applied")
+    void whenAMovementOfABestEffortBatchIsRejectedThenTheOtherMovementsOfTheSameBeerShouldBeApplied() {
+        // given
+        final Beer beer = BEER_MAPPER.toModel(BeerDTOBuilder.builder().build().toBeerDTO()); // max 5, quantity 2
+        final BeerStock stock = BeerStock.of(VALID_BEER_ID, BeerStock.DEFAULT_LOCATION, 2);
+        final StockBatchDTO stockBatchDTO = new StockBatchDTO(BatchMode.BEST_EFFORT, Arrays.asList(
+                new StockMovementDTO(VALID_BEER_ID, StockAction.INCREMENT, 2),
+                new StockMovementDTO(VALID_BEER_ID, StockAction.DECREMENT, 100),
+                new StockMovementDTO(VALID_BEER_ID, StockAction.INCREMENT, 2),
+                new StockMovementDTO(VALID_BEER_ID, StockAction.DECREMENT, 1)));
+
+        // when
+        when(beerRepository.findAllById(anyIterable())).thenReturn(Collections.singletonList(beer));
+        when(beerStockRepository.findAllById(anyIterable())).thenReturn(Collections.singletonList(stock));
+        final StockBatchResultDTO result = stockBatchService.updateStock(stockBatchDTO);
+
+        // then
+        assertThat(beer.getQuantity()).isEqualTo(3);
+        assertThat(stock.getQuantity()).isEqualTo(3);
+        assertThat(result.getApplied()).isEqualTo(2);
+        assertThat(result.getResults()).extracting("status").containsExactly(MovementStatus.APPLIED,
+                MovementStatus.REJECTED, MovementStatus.REJECTED, MovementStatus.APPLIED);
+        verify(eventPublisher).publishEvent(any(BeerChangedEvent.class));
+    }
+
+    @Test // Default location exceeded
+    @DisplayName("When a decrement exceeds the stock of the default location then it should be rejected")
+    void whenADecrementExceedsTheStockOfTheDefaultLocationThenItShouldBeRejected() {
+        // given
+        final Beer beer = BEER_MAPPER.toModel(BeerDTOBuilder.builder().build().toBeerDTO()); // max 5, quantity 2
+        final BeerStock stock = BeerStock.of(VALID_BEER_ID, BeerStock.DEFAULT_LOCATION, 1); // 1 more elsewhere
+        final StockBatchDTO stockBatchDTO = new StockBatchDTO(BatchMode.ATOMIC, Collections.singletonList(
+                new StockMovementDTO(VALID_BEER_ID, StockAction.DECREMENT, 2)));
+
+        // when
+        when(beerRepository.findAllById(anyIterable())).thenReturn(Collections.singletonList(beer));
+        when(beerStockRepository.findAllById(anyIterable())).thenReturn(Collections.singletonList(stock));
+        final StockBatchResultDTO result = stockBatchService.updateStock(stockBatchDTO);
+
+        // then
+        assertThat(beer.getQuantity()).isEqualTo(2);
+        assertThat(stock.getQuantity()).isEqualTo(1);
+        assertThat(result.getResults().get(0).getStatus()).isEqualTo(MovementStatus.REJECTED);
+        assertThat(result.getResults().get(0).getMessage())
+                .isEqualTo("Quantity is greater than the stock at location: " + BeerStock.DEFAULT_LOCATION);
+    }
+
+}
@@ -0,0 +1,132 @@
+package com.jonservices.beerstocks.service;
+
+import com.jonservices.beerstocks.data.dto.StockMovementPageDTO;
+import com.jonservices.beerstocks.data.enums.StockAction;
+import com.jonservices.beerstocks.data.model.BeerStock;
+import com.jonservices.beerstocks.data.model.StockMovement;
+import com.jonservices.beerstocks.events.BeerChangedEvent;
+import com.jonservices.beerstocks.events.StockTransferredEvent;
+import com.jonservices.beerstocks.exceptions.BeerNotFoundException;
+import com.jonservices.beerstocks.repository.StockMovementRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static com.jonservices.beerstocks.mocks.BeerTestMocks.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class StockLedgerServiceTest {
+
+    private static final Instant FROM = Instant.parse("2026-01-01T00:00:00Z");
+    private static final Instant TO = Instant.parse("2026-02-01T00:00:00Z");
+    private static final Instant END_OF_TIME = Instant.parse("9999-12-31T23:59:59Z");
+
+    @Mock
+    private StockMovementRepository stockMovementRepository;
+
+    @Mock
+    private BeerService beerService;
+
+    @InjectMocks
+    private StockLedgerService stockLedgerService;
+
+    @Test // Append movement
+    @DisplayName("When the stock of a beer is updated then a movement with the resulting quantity should be appended")
+    void whenTheStockOfABeerIsUpdatedThenAMovementShouldBeAppended() {
+        // given
+        final ArgumentCaptor<StockMovement> movementCaptor = ArgumentCaptor.forClass(StockMovement.class);
+
+        // when
+        stockLedgerService.onBeerChanged(BeerChangedEvent.stockUpdated(EXPECTED_BEER_DTO, VALID_LOCATION, -1));
+
+        // then
+        verify(stockMovementRepository).save(movementCaptor.capture());
+        assertThat(movementCaptor.getValue().getId()).isNull();
+        assertThat(movementCaptor.getValue().getBeerId()).isEqualTo(VALID_BEER_ID);
+        assertThat(movementCaptor.getValue().getLocationId()).isEqualTo(VALID_LOCATION);
+        assertThat(movementCaptor.getValue().getAction()).isEqualTo(StockAction.DECREMENT);
+        assertThat(movementCaptor.getValue().getQuantity()).isEqualTo(EXPECTED_BEER_DTO.getQuantity());
+    }
+
+    @Test // Append transfer
+    @DisplayName("When stock is transferred then a decrement of the source and an increment of the destination should be appended")
+    void whenStockIsTransferredThenADecrementOfTheSourceAndAnIncrementOfTheDestinationShouldBeAppended() {
+        // given
+        final ArgumentCaptor<StockMovement> movementCaptor = ArgumentCaptor.forClass(StockMovement.class);
+
+        // when
+        stockLedgerService.onStockTransferred(new StockTransferredEvent(VALID_BEER_ID, BeerStock.DEFAULT_LOCATION,
+                VALID_LOCATION, 2, 5));
+
+        // then
+        verify(stockMovementRepository, times(2)).save(movementCaptor.capture());
+        assertThat(movementCaptor.getAllValues())
+                .extracting(StockMovement::getLocationId, StockMovement::getAction, StockMovement::getDelta, StockMovement::getQuantity)
+                .containsExactly(
+                        tuple(BeerStock.DEFAULT_LOCATION, StockAction.DECREMENT, -2, 5),
+                        tuple(VALID_LOCATION, StockAction.INCREMENT, 2, 5));
+        assertThat(movementCaptor.getAllValues().get(0).getCreatedAt())
+                .isEqualTo(movementCaptor.getAllValues().get(1).getCreatedAt());
+    }
+
+    @Test // Ignore other changes
+    @DisplayName("When a beer is created, deleted or has a buffered update then no movement should be appended")
+    void whenABeerIsCreatedDeletedOrHasABufferedUpdateThenNoMovementShouldBeAppended() {
+        // when
+        stockLedgerService.onBeerChanged(BeerChangedEvent.created(EXPECTED_BEER_DTO));
+        stockLedgerService.onBeerChanged(BeerChangedEvent.deleted(EXPECTED_BEER_DTO));
+        stockLedgerService.onBeerChanged(BeerChangedEvent.bufferedStockUpdated(EXPECTED_BEER_DTO, 1));
+
+        // then
+        verify(stockMovementRepository, never()).save(any(StockMovement.class));
+    }
+
+    @Test // Find movements page
+    @DisplayName("When a page of movements is requested then the movements in the range and the next cursor should be returned")
+    void whenAPageOfMovementsIsRequestedThenTheMovementsInTheRangeShouldBeReturned() {
+        // given
+        final StockMovement first = new StockMovement(10L, VALID_BEER_ID, BeerStock.DEFAULT_LOCATION, StockAction.INCREMENT, 3, 5, FROM);
+        final StockMovement second = new StockMovement(11L, VALID_BEER_ID, BeerStock.DEFAULT_LOCATION, StockAction.DECREMENT, -1, 4, FROM);
+
+        // when
+        when(stockMovementRepository.findPage(VALID_BEER_ID, FROM, TO, 9L, PageRequest.of(0, 2)))
+                .thenReturn(Arrays.asList(first, second));
+        final StockMovementPageDTO page = stockLedgerService.findPage(VALID_BEER_ID, FROM, TO, 9L, 1);
+
+        // then
+        assertThat(page.getContent()).hasSize(1);
+        assertThat(page.getContent().get(0).getDelta()).isEqualTo(3);
+        assertThat(page.getNextCursor()).isEqualTo(10L);
+    }
+
+    @Test // Find movements BeerNotFoundException
+    @DisplayName("When the movements of an unknown beer are requested then it should thrown an exception")
+    void whenTheMovementsOfAnUnknownBeerAreRequestedThenItShouldThrownAnException() {
+        // when
+        when(stockMovementRepository.findPage(INVALID_BEER_ID, Instant.EPOCH, END_OF_TIME, 0L, PageRequest.of(0, 51)))
+                .thenReturn(Collections.emptyList());
+        when(beerService.findById(INVALID_BEER_ID)).thenThrow(new BeerNotFoundException("id", INVALID_BEER_ID));
+
+        // then
+        assertThatThrownBy(() -> stockLedgerService.findPage(INVALID_BEER_ID, null, null, null, 50))
+                .isInstanceOf(BeerNotFoundException.class);
+    }
+
+}
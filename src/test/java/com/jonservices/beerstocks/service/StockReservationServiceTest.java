@@ -0,0 +1,124 @@
+package com.jonservices.beerstocks.service;
+
+import com.jonservices.beerstocks.data.dto.StockReservationDTO;
+import com.jonservices.beerstocks.data.dto.StockReservationRequestDTO;
+import com.jonservices.beerstocks.data.enums.ReservationStatus;
+import com.jonservices.beerstocks.data.enums.StockAction;
+import com.jonservices.beerstocks.data.model.BeerStock;
+import com.jonservices.beerstocks.data.model.StockReservation;
+import com.jonservices.beerstocks.events.LocationStockChangedEvent;
+import com.jonservices.beerstocks.exceptions.BeerLocationStockExceededException;
+import com.jonservices.beerstocks.repository.BeerRepository;
+import com.jonservices.beerstocks.repository.BeerStockRepository;
+import com.jonservices.beerstocks.repository.StockReservationRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Optional;
+
+import static com.jonservices.beerstocks.mocks.BeerTestMocks.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class StockReservationServiceTest {
+
+    @Mock
+    private StockReservationRepository stockReservationRepository;
+
+    @Mock
+    private BeerStockRepository beerStockRepository;
+
+    @Mock
+    private BeerRepository beerRepository;
+
+    @Mock
+    private BeerService beerService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
+    @InjectMocks
+    private StockReservationService stockReservationService;
+
+    @AfterEach
+    void stopSweeper() {
+        stockReservationService.stopSweeper();
+    }
+
+    @Test // Reserve BeerLocationStockExceededException
+    @DisplayName("When more stock than available is reserved then it should thrown an exception without saving a reservation")
+    void whenMoreStockThanAvailableIsReservedThenItShouldThrownAnException() {
+        // when
+        when(beerStockRepository.reserve(VALID_BEER_ID, BeerStock.DEFAULT_LOCATION, 3)).thenReturn(0);
+        when(beerRepository.existsById(VALID_BEER_ID)).thenReturn(true);
+
+        // then
+        assertThatThrownBy(() -> stockReservationService.reserve(VALID_BEER_ID, new StockReservationRequestDTO(3, null)))
+                .isInstanceOf(BeerLocationStockExceededException.class);
+        verify(stockReservationRepository, never()).save(any(StockReservation.class));
+    }
+
+    @Test // Confirm
+    @DisplayName("When a reservation is confirmed then its stock should be released and decremented")
+    void whenAReservationIsConfirmedThenItsStockShouldBeReleasedAndDecremented() {
+        // given
+        final StockReservation reservation = new StockReservation(1L, VALID_BEER_ID, VALID_LOCATION, 2,
+                ReservationStatus.ACTIVE, Instant.now().plusSeconds(60));
+
+        // when
+        when(stockReservationRepository.findByIdAndBeerId(1L, VALID_BEER_ID)).thenReturn(Optional.of(reservation));
+        when(stockReservationRepository.updateStatus(1L, ReservationStatus.ACTIVE, ReservationStatus.CONFIRMED)).thenReturn(1);
+        final StockReservationDTO confirmed = stockReservationService.confirm(VALID_BEER_ID, 1L);
+
+        // then
+        assertThat(confirmed.getStatus()).isEqualTo(ReservationStatus.CONFIRMED);
+        verify(beerStockRepository).release(VALID_BEER_ID, VALID_LOCATION, 2);
+        verify(beerService).updateStock(VALID_BEER_ID, VALID_LOCATION, 2, StockAction.DECREMENT);
+        verify(eventPublisher).publishEvent(new LocationStockChangedEvent(VALID_BEER_ID));
+    }
+
+    @Test // Expire
+    @DisplayName("When a reservation is not confirmed in time then the sweeper should release its stock")
+    void whenAReservationIsNotConfirmedInTimeThenTheSweeperShouldReleaseItsStock() {
+        // given
+        ReflectionTestUtils.setField(stockReservationService, "ttl", Duration.ofMillis(50));
+        final StockReservation reservation = new StockReservation(1L, VALID_BEER_ID, BeerStock.DEFAULT_LOCATION, 2,
+                ReservationStatus.ACTIVE, Instant.now().plusMillis(50));
+
+        // when
+        when(stockReservationRepository.findByStatus(ReservationStatus.ACTIVE)).thenReturn(Collections.emptyList());
+        when(beerStockRepository.reserve(VALID_BEER_ID, BeerStock.DEFAULT_LOCATION, 2)).thenReturn(1);
+        when(stockReservationRepository.save(any(StockReservation.class))).thenReturn(reservation);
+        when(stockReservationRepository.findById(1L)).thenReturn(Optional.of(reservation));
+        when(stockReservationRepository.updateStatus(1L, ReservationStatus.ACTIVE, ReservationStatus.EXPIRED)).thenReturn(1);
+        stockReservationService.startSweeper();
+        stockReservationService.reserve(VALID_BEER_ID, new StockReservationRequestDTO(2, null));
+
+        // then
+        verify(beerStockRepository, timeout(5000)).release(VALID_BEER_ID, BeerStock.DEFAULT_LOCATION, 2);
+    }
+
+}
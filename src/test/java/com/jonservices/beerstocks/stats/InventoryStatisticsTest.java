@@ -0,0 +1,104 @@
+package com.jonservices.beerstocks.stats;
+
+import com.jonservices.beerstocks.data.dto.BrandStatsDTO;
+import com.jonservices.beerstocks.events.BeerChangedEvent;
+import com.jonservices.beerstocks.repository.BrandTotals;
+import com.jonservices.beerstocks.store.BeerStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static com.jonservices.beerstocks.mocks.BeerTestMocks.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class InventoryStatisticsTest {
+
+    private static final String AMBEV = EXPECTED_BEER_DTO.getBrand();
+
+    @Mock
+    private BeerStore beerStore;
+
+    private InventoryStatistics inventoryStatistics;
+
+    @BeforeEach
+    void setupEach() {
+        inventoryStatistics = new InventoryStatistics(beerStore, new SimpleMeterRegistry());
+    }
+
+    @Test // Maintained totals
+    @DisplayName("When beers are created, updated and deleted then the totals of their brand should follow")
+    void whenBeersAreCreatedUpdatedAndDeletedThenTheTotalsOfTheirBrandShouldFollow() {
+        // given
+        when(beerStore.sumByBrand()).thenReturn(Collections.singletonList(totals(AMBEV, 1, 2, 5)));
+        inventoryStatistics.load();
+
+        // when
+        inventoryStatistics.onBeerChanged(BeerChangedEvent.created(ANOTHER_BEER_DTO)); // quantity 5, max 10
+        inventoryStatistics.onBeerChanged(BeerChangedEvent.stockUpdated(ANOTHER_BEER_DTO, -3));
+
+        // then
+        assertThat(inventoryStatistics.findStats(AMBEV)).containsExactly(BrandStatsDTO.builder()
+                .brand(AMBEV)
+                .skuCount(2)
+                .totalQuantity(4)
+                .totalCapacity(15)
+                .fillRatio(4 / 15.0)
+                .build());
+        inventoryStatistics.onBeerChanged(BeerChangedEvent.deleted(EXPECTED_BEER_DTO));
+        inventoryStatistics.onBeerChanged(BeerChangedEvent.deleted(ANOTHER_BEER_DTO));
+        assertThat(inventoryStatistics.findStats(null)).isEmpty();
+    }
+
+    @Test // Reconciliation
+    @DisplayName("When the totals drift from the database in two runs in a row then they should be repaired")
+    void whenTheTotalsDriftFromTheDatabaseInTwoRunsInARowThenTheyShouldBeRepaired() {
+        // given
+        when(beerStore.sumByBrand()).thenReturn(Collections.singletonList(totals(AMBEV, 1, 2, 5)));
+        inventoryStatistics.load();
+
+        // when
+        when(beerStore.sumByBrand()).thenReturn(Arrays.asList(totals(AMBEV, 1, 3, 5), totals("Heineken", 1, 1, 4)));
+        inventoryStatistics.reconcile();
+
+        // then
+        assertThat(inventoryStatistics.findStats(null)).extracting(BrandStatsDTO::getTotalQuantity).containsExactly(2L);
+        inventoryStatistics.reconcile();
+        assertThat(inventoryStatistics.findStats(null)).extracting(BrandStatsDTO::getBrand, BrandStatsDTO::getTotalQuantity)
+                .containsExactly(tuple(AMBEV, 3L), tuple("Heineken", 1L));
+    }
+
+    private BrandTotals totals(String brand, long skuCount, long totalQuantity, long totalCapacity) {
+        return new BrandTotals() {
+            @Override
+            public String getBrand() {
+                return brand;
+            }
+
+            @Override
+            public long getSkuCount() {
+                return skuCount;
+            }
+
+            @Override
+            public long getTotalQuantity() {
+                return totalQuantity;
+            }
+
+            @Override
+            public long getTotalCapacity() {
+                return totalCapacity;
+            }
+        };
+    }
+
+}
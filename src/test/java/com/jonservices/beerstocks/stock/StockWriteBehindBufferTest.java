@@ -0,0 +1,223 @@
+package com.jonservices.beerstocks.stock;
+
+import com.jonservices.beerstocks.cache.BeerCache;
+import com.jonservices.beerstocks.data.dto.BeerDTO;
+import com.jonservices.beerstocks.data.enums.StockAction;
+import com.jonservices.beerstocks.data.model.BeerStock;
+import com.jonservices.beerstocks.events.BeerChangedEvent;
+import com.jonservices.beerstocks.exceptions.BeerConcurrentUpdateException;
+import com.jonservices.beerstocks.exceptions.BeerStockExceededException;
+import com.jonservices.beerstocks.repository.BeerRepository;
+import com.jonservices.beerstocks.service.BeerService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+public class StockWriteBehindBufferTest {
+
+    private static final int THREADS = 16;
+    private static final int UPDATES_PER_THREAD = 25;
+    private static final int MAX = 500;
+
+    @Autowired
+    private BeerService beerService;
+
+    @Autowired
+    private BeerRepository beerRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private BeerCache beerCache;
+
+    @TempDir
+    Path journalDirectory;
+
+    private BeerDTO beer;
+
+    @BeforeEach
+    void setupEach() {
+        beer = beerService.create(new BeerDTO(null, "Write Behind Stout", "Stress", MAX, 0));
+    }
+
+    @AfterEach
+    void tearDownEach() {
+        beerService.delete(beer.getId());
+    }
+
+    @Test // Accumulate and flush
+    @DisplayName("When concurrent deltas are flushed then the database should get their sum and the version bumped per delta")
+    void whenConcurrentDeltasAreFlushedThenTheDatabaseShouldGetTheirSum() throws Exception {
+        // given
+        final StockWriteBehindBuffer buffer = newBuffer();
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        final List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            tasks.add(() -> {
+                for (int j = 0; j < UPDATES_PER_THREAD; j++)
+                    buffer.apply(beer.getId(), 1);
+                return null;
+            });
+        }
+
+        // when
+        for (Future<Void> future : executor.invokeAll(tasks))
+            future.get();
+        executor.shutdown();
+        final int quantityBeforeFlush = beerRepository.findById(beer.getId()).orElseThrow().getQuantity();
+        final BeerDTO overlaidBeer = buffer.overlay(beer);
+        buffer.shutdown();
+
+        // then
+        final int total = THREADS * UPDATES_PER_THREAD;
+        assertThat(quantityBeforeFlush).isZero();
+        assertThat(overlaidBeer.getQuantity()).isEqualTo(total);
+        assertThat(beer.getQuantity()).isZero();
+        assertThat(beerRepository.findById(beer.getId()).orElseThrow())
+                .satisfies(flushedBeer -> {
+                    assertThat(flushedBeer.getQuantity()).isEqualTo(total);
+                    assertThat(flushedBeer.getVersion()).isEqualTo(beer.getVersion() + total);
+                });
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stock_movements WHERE beer_id = ? AND quantity <= ?",
+                Integer.class, beer.getId(), total)).isEqualTo(total);
+        assertThat(jdbcTemplate.queryForObject("SELECT MAX(quantity) FROM stock_movements WHERE beer_id = ?",
+                Integer.class, beer.getId())).isEqualTo(total);
+    }
+
+    @Test // Limits checked in memory
+    @DisplayName("When a delta exceeds the limits of the in-memory stock then it should be rejected")
+    void whenADeltaExceedsTheLimitsOfTheInMemoryStockThenItShouldBeRejected() throws Exception {
+        // given
+        final StockWriteBehindBuffer buffer = newBuffer();
+        buffer.apply(beer.getId(), MAX - 1);
+
+        // then
+        assertThatThrownBy(() -> buffer.apply(beer.getId(), 2)).isInstanceOf(BeerStockExceededException.class);
+        assertThat(buffer.apply(beer.getId(), 1).getQuantity()).isEqualTo(MAX);
+        buffer.shutdown();
+    }
+
+    @Test // Journal replay
+    @DisplayName("When the buffer crashes before flushing then the journal should be replayed exactly once")
+    void whenTheBufferCrashesBeforeFlushingThenTheJournalShouldBeReplayedExactlyOnce() throws Exception {
+        // given
+        final StockWriteBehindBuffer crashedBuffer = newBuffer();
+        crashedBuffer.apply(beer.getId(), 3);
+        crashedBuffer.apply(beer.getId(), 4);
+
+        // when
+        newBuffer().shutdown(); // Replays the journal left by the crashed buffer
+        newBuffer().shutdown(); // Must not replay it again
+
+        // then
+        assertThat(beerRepository.findById(beer.getId()).orElseThrow().getQuantity()).isEqualTo(7);
+        assertThat(jdbcTemplate.queryForList("SELECT quantity FROM stock_movements WHERE beer_id = ? ORDER BY id",
+                Integer.class, beer.getId())).containsExactly(3, 7);
+    }
+
+    @Test // Other stock writers
+    @DisplayName("When another writer updates the stock of a buffered beer then the next delta should be checked against it")
+    void whenAnotherWriterUpdatesTheStockOfABufferedBeerThenTheNextDeltaShouldBeCheckedAgainstIt() throws Exception {
+        // given
+        final StockWriteBehindBuffer buffer = newBuffer();
+        buffer.apply(beer.getId(), 3);
+
+        // when
+        final BeerDTO updatedBeer = beerService.updateStock(beer.getId(), BeerStock.DEFAULT_LOCATION, 4, StockAction.INCREMENT);
+        buffer.onBeerChanged(BeerChangedEvent.stockUpdated(updatedBeer, 4));
+
+        // then
+        assertThat(buffer.apply(beer.getId(), MAX - 7).getQuantity()).isEqualTo(MAX);
+        assertThatThrownBy(() -> buffer.apply(beer.getId(), 1)).isInstanceOf(BeerStockExceededException.class);
+        buffer.shutdown();
+        assertThat(beerRepository.findById(beer.getId()).orElseThrow().getQuantity()).isEqualTo(MAX);
+    }
+
+    @Test // Claimed by another writer
+    @DisplayName("When another writer claims a buffered beer then it should check the pending deltas and hold new ones off until it completes")
+    void whenAnotherWriterClaimsABufferedBeerThenItShouldCheckThePendingDeltasAndHoldNewOnesOffUntilItCompletes() throws Exception {
+        // given
+        final StockWriteBehindBuffer buffer = newBuffer();
+        buffer.apply(beer.getId(), MAX - 3);
+
+        // when
+        final List<Boolean> updated = transactionTemplate.execute(status -> {
+            buffer.claim(beer.getId());
+            assertThatThrownBy(() -> buffer.apply(beer.getId(), 1)).isInstanceOf(BeerConcurrentUpdateException.class);
+            // The conditional updates of the other writers only fit once the pending deltas are flushed
+            return List.of(beerRepository.updateQuantity(beer.getId(), 4).isPresent(),
+                    beerRepository.updateQuantity(beer.getId(), 2).isPresent());
+        });
+
+        // then
+        assertThat(updated).containsExactly(false, true);
+        assertThat(buffer.apply(beer.getId(), 1).getQuantity()).isEqualTo(MAX);
+        assertThatThrownBy(() -> buffer.apply(beer.getId(), 1)).isInstanceOf(BeerStockExceededException.class);
+        buffer.shutdown();
+        assertThat(beerRepository.findById(beer.getId()).orElseThrow().getQuantity()).isEqualTo(MAX);
+    }
+
+    @Test // Failed sync
+    @DisplayName("When the journal fails to sync a delta then it should neither be applied nor replayed")
+    void whenTheJournalFailsToSyncADeltaThenItShouldNeitherBeAppliedNorReplayed() throws Exception {
+        // given
+        final AtomicBoolean failSync = new AtomicBoolean(true);
+        final StockJournal journal = new StockJournal(journalDirectory) {
+            @Override
+            void sync(long position) throws IOException {
+                if (failSync.get())
+                    throw new IOException("No space left on device");
+                super.sync(position);
+            }
+        };
+        final StockWriteBehindBuffer crashedBuffer = new StockWriteBehindBuffer(beerRepository, jdbcTemplate,
+                transactionTemplate, beerCache, journal, Duration.ofHours(1));
+
+        // when
+        assertThatThrownBy(() -> crashedBuffer.apply(beer.getId(), MAX)).isInstanceOf(UncheckedIOException.class);
+        failSync.set(false);
+        final BeerDTO updatedBeer = crashedBuffer.apply(beer.getId(), 2);
+        newBuffer().shutdown(); // Replays the journal left by the crashed buffer
+
+        // then
+        assertThat(updatedBeer.getQuantity()).isEqualTo(2);
+        assertThat(updatedBeer.getVersion()).isEqualTo(beer.getVersion() + 1);
+        assertThat(beerRepository.findById(beer.getId()).orElseThrow())
+                .satisfies(flushedBeer -> {
+                    assertThat(flushedBeer.getQuantity()).isEqualTo(2);
+                    assertThat(flushedBeer.getVersion()).isEqualTo(beer.getVersion() + 1);
+                });
+    }
+
+    private StockWriteBehindBuffer newBuffer() throws IOException {
+        return new StockWriteBehindBuffer(beerRepository, jdbcTemplate, transactionTemplate, beerCache,
+                journalDirectory, Duration.ofHours(1));
+    }
+
+}
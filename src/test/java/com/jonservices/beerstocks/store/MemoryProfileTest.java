@@ -0,0 +1,93 @@
+package com.jonservices.beerstocks.store;
+
+import com.jayway.jsonpath.JsonPath;
+import com.jonservices.beerstocks.data.dto.BeerDTO;
+import com.jonservices.beerstocks.data.dto.StockBatchDTO;
+import com.jonservices.beerstocks.data.dto.StockMovementDTO;
+import com.jonservices.beerstocks.data.enums.BatchMode;
+import com.jonservices.beerstocks.data.enums.StockAction;
+import com.jonservices.beerstocks.exceptions.ProblemDetailsExceptionHandler;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.util.List;
+
+import static com.jonservices.beerstocks.mocks.BeerTestMocks.*;
+import static com.jonservices.beerstocks.utils.JSONConvertionUtils.asJsonString;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("memory")
+public class MemoryProfileTest {
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test // No database
+    @DisplayName("When the memory profile is active then neither the database nor JPA should be started")
+    void whenTheMemoryProfileIsActiveThenNeitherTheDatabaseNorJpaShouldBeStarted() {
+        // then
+        assertThat(applicationContext.getBean(BeerStore.class)).isInstanceOf(InMemoryBeerStore.class);
+        assertThat(applicationContext.getBeanNamesForType(DataSource.class)).isEmpty();
+        assertThat(applicationContext.getBeanNamesForType(EntityManagerFactory.class)).isEmpty();
+        assertThat(applicationContext.getBeanNamesForType(PlatformTransactionManager.class)).isEmpty();
+    }
+
+    @Test // Stock update
+    @DisplayName("When a beer is registered and decremented then the in-memory store should serve it")
+    void whenABeerIsRegisteredAndDecrementedThenTheInMemoryStoreShouldServeIt() throws Exception {
+        // given
+        final BeerDTO beerDTO = new BeerDTO(null, "Memory Lager", "Edge", 10, 4);
+        final String createdBeer = mockMvc.perform(post(BEER_API_URL_PATH)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(beerDTO)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        final Number id = JsonPath.read(createdBeer, "$.id");
+
+        // then
+        mockMvc.perform(patch(BEER_API_URL_PATH + "/" + id + "/decrement")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(VALID_QUANTITY_DTO)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name", is(beerDTO.getName())))
+                .andExpect(jsonPath("$.quantity", is(1)));
+    }
+
+    @Test // Database only operations
+    @DisplayName("When a stock batch is sent with the memory profile then it should be answered as not implemented")
+    void whenAStockBatchIsSentWithTheMemoryProfileThenItShouldBeAnsweredAsNotImplemented() throws Exception {
+        // given
+        final StockBatchDTO stockBatchDTO = new StockBatchDTO(BatchMode.ATOMIC,
+                List.of(new StockMovementDTO(VALID_BEER_ID, StockAction.INCREMENT, 1)));
+
+        // then
+        mockMvc.perform(post(BEER_API_URL_PATH + "/stock/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(stockBatchDTO)))
+                .andExpect(status().isNotImplemented())
+                .andExpect(content().contentType(ProblemDetailsExceptionHandler.APPLICATION_PROBLEM_JSON))
+                .andExpect(jsonPath("$.code", is("OPERATION_NOT_SUPPORTED")));
+    }
+
+}
@@ -0,0 +1,237 @@
+package com.jonservices.beerstocks.stream;
+
+import com.jonservices.beerstocks.builder.BeerDTOBuilder;
+import com.jonservices.beerstocks.data.dto.BeerDTO;
+import com.jonservices.beerstocks.data.dto.StockChangeDTO;
+import com.jonservices.beerstocks.data.enums.BeerChangeType;
+import com.jonservices.beerstocks.events.BeerChangedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StockChangeBroadcasterTest {
+
+    private static final int SUBSCRIBERS = 5000;
+    private static final Duration SEND_TIMEOUT = Duration.ofSeconds(5);
+
+    private final AtomicLong nanoTime = new AtomicLong();
+
+    // The window never elapses during a test, flushes are triggered by the tests themselves
+    private final StockChangeBroadcaster stockChangeBroadcaster = new StockChangeBroadcaster(Duration.ofDays(1),
+            2, 4, SEND_TIMEOUT, new SimpleMeterRegistry(), nanoTime::get);
+
+    @AfterEach
+    void tearDown() {
+        stockChangeBroadcaster.shutdown();
+    }
+
+    @Test // Coalesced fan-out
+    @DisplayName("When a beer changes several times inside the window then every subscriber should get one merged change")
+    void whenABeerChangesSeveralTimesInsideTheWindowThenEverySubscriberShouldGetOneMergedChange() throws Exception {
+        // given
+        final CountDownLatch received = new CountDownLatch(SUBSCRIBERS);
+        final List<List<StockChangeDTO>> changesBySubscriber = new ArrayList<>();
+        for (int i = 0; i < SUBSCRIBERS; i++) {
+            final List<StockChangeDTO> changes = Collections.synchronizedList(new ArrayList<>());
+            changesBySubscriber.add(changes);
+            stockChangeBroadcaster.subscribe(change -> {
+                changes.add(change);
+                received.countDown();
+            });
+        }
+
+        // when
+        for (int quantity = 1; quantity <= 5; quantity++)
+            stockChangeBroadcaster.onBeerChanged(BeerChangedEvent.stockUpdated(beer(quantity, (long) quantity), 1));
+        stockChangeBroadcaster.flush();
+        stockChangeBroadcaster.flush();
+
+        // then
+        assertThat(received.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(changesBySubscriber).allSatisfy(changes -> assertThat(changes).containsExactly(StockChangeDTO.builder()
+                .id(1L)
+                .quantity(5)
+                .delta(5)
+                .action(BeerChangeType.STOCK_UPDATED)
+                .build()));
+    }
+
+    @Test // Out of order commits
+    @DisplayName("When an older version is delivered last then the merged change should keep the newer quantity")
+    void whenAnOlderVersionIsDeliveredLastThenTheMergedChangeShouldKeepTheNewerQuantity() throws Exception {
+        // given
+        final CountDownLatch received = new CountDownLatch(1);
+        final List<StockChangeDTO> changes = Collections.synchronizedList(new ArrayList<>());
+        stockChangeBroadcaster.subscribe(change -> {
+            changes.add(change);
+            received.countDown();
+        });
+
+        // when
+        stockChangeBroadcaster.onBeerChanged(BeerChangedEvent.stockUpdated(beer(4, 2L), 2));
+        stockChangeBroadcaster.onBeerChanged(BeerChangedEvent.stockUpdated(beer(2, 1L), -1));
+        stockChangeBroadcaster.flush();
+
+        // then
+        assertThat(received.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(changes).extracting(StockChangeDTO::getQuantity).containsExactly(4);
+        assertThat(changes).extracting(StockChangeDTO::getDelta).containsExactly(1);
+    }
+
+    @Test // Slow subscriber
+    @DisplayName("When a subscriber falls behind its buffer then it should be dropped without affecting the others")
+    void whenASubscriberFallsBehindItsBufferThenItShouldBeDroppedWithoutAffectingTheOthers() throws Exception {
+        // given
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch dropped = new CountDownLatch(1);
+        final BlockingQueue<StockChangeDTO> fastReceived = new LinkedBlockingQueue<>();
+        stockChangeBroadcaster.subscribe(new StockChangeListener() {
+            @Override
+            public void send(StockChangeDTO change) {
+                try {
+                    blocked.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public void closed() {
+                dropped.countDown();
+            }
+        });
+        stockChangeBroadcaster.subscribe(fastReceived::add);
+
+        // when
+        for (long id = 1; id <= 10; id++) {
+            final BeerDTO beer = beer(1, 0L);
+            beer.setId(id);
+            stockChangeBroadcaster.onBeerChanged(BeerChangedEvent.stockUpdated(beer, 1));
+            stockChangeBroadcaster.flush(); // One change per window, so the slow subscriber has more batches than its buffer holds
+            assertThat(fastReceived.poll(10, TimeUnit.SECONDS)).extracting(StockChangeDTO::getId).isEqualTo(id);
+        }
+
+        // then
+        assertThat(dropped.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(stockChangeBroadcaster.subscriberCount()).isEqualTo(1);
+        blocked.countDown();
+    }
+
+    @Test // Stalled subscribers
+    @DisplayName("When sends stall on every fan-out thread then they should time out without blocking the other subscribers")
+    void whenSendsStallOnEveryFanOutThreadThenTheyShouldTimeOutWithoutBlockingTheOtherSubscribers() throws Exception {
+        // given
+        final int stalledSubscribers = 4;
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch sending = new CountDownLatch(stalledSubscribers);
+        final CountDownLatch dropped = new CountDownLatch(stalledSubscribers);
+        for (int i = 0; i < stalledSubscribers; i++)
+            stockChangeBroadcaster.subscribe(new StockChangeListener() {
+                @Override
+                public void send(StockChangeDTO change) throws IOException {
+                    sending.countDown();
+                    try {
+                        blocked.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    throw new IOException("Broken pipe");
+                }
+
+                @Override
+                public void closed() {
+                    dropped.countDown();
+                }
+            });
+        stockChangeBroadcaster.onBeerChanged(BeerChangedEvent.stockUpdated(beer(1, 0L), 1));
+        stockChangeBroadcaster.flush();
+        assertThat(sending.await(10, TimeUnit.SECONDS)).isTrue();
+        final CountDownLatch received = new CountDownLatch(1);
+        stockChangeBroadcaster.subscribe(change -> received.countDown());
+
+        // when
+        stockChangeBroadcaster.onBeerChanged(BeerChangedEvent.stockUpdated(beer(2, 1L), 1));
+        nanoTime.addAndGet(SEND_TIMEOUT.toNanos() + 1);
+        stockChangeBroadcaster.flush();
+
+        // then
+        assertThat(dropped.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(received.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(stockChangeBroadcaster.subscriberCount()).isEqualTo(1);
+        blocked.countDown();
+    }
+
+    @Test // Closing a stalled subscriber
+    @DisplayName("When closing a timed out subscriber waits for its stalled send then the flush should not be blocked")
+    void whenClosingATimedOutSubscriberWaitsForItsStalledSendThenTheFlushShouldNotBeBlocked() throws Exception {
+        // given
+        final Object emitterLock = new Object(); // Like ResponseBodyEmitter, send and complete share one monitor
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch sending = new CountDownLatch(1);
+        final CountDownLatch dropped = new CountDownLatch(1);
+        stockChangeBroadcaster.subscribe(new StockChangeListener() {
+            @Override
+            public void send(StockChangeDTO change) {
+                synchronized (emitterLock) {
+                    sending.countDown();
+                    try {
+                        blocked.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+
+            @Override
+            public void closed() {
+                synchronized (emitterLock) {
+                    dropped.countDown();
+                }
+            }
+        });
+        stockChangeBroadcaster.onBeerChanged(BeerChangedEvent.stockUpdated(beer(1, 0L), 1));
+        stockChangeBroadcaster.flush();
+        assertThat(sending.await(10, TimeUnit.SECONDS)).isTrue();
+        final CountDownLatch received = new CountDownLatch(1);
+        stockChangeBroadcaster.subscribe(change -> received.countDown());
+        final ExecutorService flushThread = Executors.newSingleThreadExecutor();
+
+        // when
+        stockChangeBroadcaster.onBeerChanged(BeerChangedEvent.stockUpdated(beer(2, 1L), 1));
+        nanoTime.addAndGet(SEND_TIMEOUT.toNanos() + 1);
+        final Future<?> flush = flushThread.submit(stockChangeBroadcaster::flush);
+
+        // then
+        flush.get(10, TimeUnit.SECONDS);
+        assertThat(received.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(stockChangeBroadcaster.subscriberCount()).isEqualTo(1);
+        assertThat(dropped.getCount()).isEqualTo(1);
+        blocked.countDown();
+        assertThat(dropped.await(10, TimeUnit.SECONDS)).isTrue();
+        flushThread.shutdown();
+    }
+
+    private BeerDTO beer(int quantity, Long version) {
+        final BeerDTO beer = BeerDTOBuilder.builder().quantity(quantity).build().toBeerDTO();
+        beer.setVersion(version);
+        return beer;
+    }
+
+}